@@ -6,10 +6,10 @@ import com.partikar.user.User;
 import com.partikar.user.UserRepository;
 import com.partikar.annonces.dto.AnnonceResponse;
 import com.partikar.annonces.dto.CreerAnnonceRequest;
+import com.partikar.montant.Montant;
+import com.partikar.security.UtilisateurCourant;
 import com.partikar.voiture.Voiture;
 import com.partikar.voiture.VoitureRepository;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,7 +18,11 @@ import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -34,15 +38,21 @@ public class AnnonceService {
     private final DisponibiliteRepository disponibiliteRepository;
     private final UserRepository userRepository;
     private final com.partikar.avis.AvisRepository avisRepository;
+    private final VoituresARecalculer voituresARecalculer;
+    private final UtilisateurCourant utilisateurCourant;
 
     public AnnonceService(VoitureRepository voitureRepository,
                           DisponibiliteRepository disponibiliteRepository,
                           UserRepository userRepository,
-                          com.partikar.avis.AvisRepository avisRepository) {
+                          com.partikar.avis.AvisRepository avisRepository,
+                          VoituresARecalculer voituresARecalculer,
+                          UtilisateurCourant utilisateurCourant) {
         this.voitureRepository = voitureRepository;
         this.disponibiliteRepository = disponibiliteRepository;
         this.userRepository = userRepository;
         this.avisRepository = avisRepository;
+        this.voituresARecalculer = voituresARecalculer;
+        this.utilisateurCourant = utilisateurCourant;
     }
 
     /**
@@ -75,13 +85,7 @@ public class AnnonceService {
                 proprietaire = userRepository.findById(proprietaireId)
                         .orElseThrow(() -> new RuntimeException("Propriétaire introuvable avec l'ID: " + proprietaireId));
             } else {
-                Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-                if (auth == null || auth.getName() == null) {
-                    throw new RuntimeException("Utilisateur non authentifié");
-                }
-                String email = auth.getName();
-                proprietaire = userRepository.findByEmail(email)
-                        .orElseThrow(() -> new RuntimeException("Propriétaire introuvable pour l'utilisateur authentifié"));
+                proprietaire = utilisateurCourant.charger();
             }
 
             // Validation : vérifier que l'immatriculation n'existe pas pour une voiture ACTIVE
@@ -191,6 +195,7 @@ public class AnnonceService {
                 }
             }
 
+            voituresARecalculer.marquer(voitureSauvegardee.getId());
             return AnnonceResponse.fromVoiture(voitureSauvegardee, nbJoursDisponibles);
         } catch (Exception ex) {
             // Log complet et renvoyer un message lisible pour le frontend
@@ -297,6 +302,10 @@ public class AnnonceService {
 
         List<Voiture> voitures = voitureRepository.findAll();
 
+        // Bornes de prix converties une seule fois en centimes
+        long prixMinCentimes = request.getPrixMin() != null ? Montant.centimes(request.getPrixMin()) : Long.MIN_VALUE;
+        long prixMaxCentimes = request.getPrixMax() != null ? Montant.centimes(request.getPrixMax()) : Long.MAX_VALUE;
+
         return voitures.stream()
                 // Filtrer uniquement les annonces disponibles
                 .filter(v -> "disponible".equalsIgnoreCase(v.getStatut()))
@@ -366,22 +375,14 @@ public class AnnonceService {
                     return v.getNbPlaces() != null && v.getNbPlaces().equals(request.getNbPlaces());
                 })
 
-                // Filtre prix minimum
+                // Filtre prix minimum / maximum (comparaison en centimes)
                 .filter(v -> {
-                    if (request.getPrixMin() == null) {
+                    if (request.getPrixMin() == null && request.getPrixMax() == null) {
                         return true;
                     }
                     return v.getPrixParJour() != null &&
-                            v.getPrixParJour().doubleValue() >= request.getPrixMin();
-                })
-
-                // Filtre prix maximum
-                .filter(v -> {
-                    if (request.getPrixMax() == null) {
-                        return true;
-                    }
-                    return v.getPrixParJour() != null &&
-                            v.getPrixParJour().doubleValue() <= request.getPrixMax();
+                            v.getPrixParJourCentimes() >= prixMinCentimes &&
+                            v.getPrixParJourCentimes() <= prixMaxCentimes;
                 })
 
                 // Filtre année minimum
@@ -508,7 +509,7 @@ public class AnnonceService {
             case PRIX_ASC:
                 return (a, b) -> {
                     if (a.getPrixParJour() != null && b.getPrixParJour() != null) {
-                        return a.getPrixParJour().compareTo(b.getPrixParJour());
+                        return Long.compare(a.getPrixParJourCentimes(), b.getPrixParJourCentimes());
                     }
                     return 0;
                 };
@@ -516,7 +517,7 @@ public class AnnonceService {
             case PRIX_DESC:
                 return (a, b) -> {
                     if (a.getPrixParJour() != null && b.getPrixParJour() != null) {
-                        return b.getPrixParJour().compareTo(a.getPrixParJour());
+                        return Long.compare(b.getPrixParJourCentimes(), a.getPrixParJourCentimes());
                     }
                     return 0;
                 };
@@ -619,14 +620,8 @@ public class AnnonceService {
      */
     @Transactional(readOnly = true)
     public List<AnnonceResponse> getAnnoncesUtilisateurCourant() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur authentifié introuvable"));
-        return getAnnoncesProprietaire(user.getId());
+        Long userId = utilisateurCourant.id();
+        return getAnnoncesProprietaire(userId);
     }
 
     /**
@@ -644,14 +639,8 @@ public class AnnonceService {
                 .orElseThrow(() -> new RuntimeException("Voiture introuvable"));
 
         // Vérifie propriétaire
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur authentifié introuvable"));
-        if (!v.getProprietaire().getId().equals(user.getId())) {
+        Long userId = utilisateurCourant.id();
+        if (!v.getProprietaire().getId().equals(userId)) {
             throw new RuntimeException("Accès refusé: vous n'êtes pas le propriétaire de cette annonce");
         }
 
@@ -718,6 +707,8 @@ public class AnnonceService {
                 cur = cur.plusDays(1);
             }
         }
+        // Le calendrier a pu changer : statut recalculé après le commit
+        voituresARecalculer.marquer(v.getId());
         v.setMajLe(java.time.LocalDateTime.now());
         com.partikar.voiture.Voiture saved = voitureRepository.save(v);
         int nbJours = disponibiliteRepository.findByVoitureId(saved.getId()).size();
@@ -744,8 +735,30 @@ public class AnnonceService {
     }
 
     /**
-     * Met à jour automatiquement le statut d'une voiture en fonction de ses disponibilités.
-     * Appelé après une réservation ou une annulation.
+     * Recalcule le statut des voitures non inactives dont l'ID est dans [debut, fin].
+     * Utilisé au démarrage pour (re)construire l'index des dates de changement de statut.
+     *
+     * @return nombre de voitures dont le statut a changé
+     */
+    @Transactional
+    public int recalculerStatutsTranche(LocalDate aujourdhui, long debut, long fin) {
+        return appliquerStatuts(voitureRepository.findJoursFutursParVoiture(aujourdhui, debut, fin), aujourdhui);
+    }
+
+    /**
+     * Recalcule le statut d'un lot de voitures marquées par {@link VoituresARecalculer}.
+     *
+     * @return nombre de voitures dont le statut a changé
+     */
+    @Transactional
+    public int recalculerStatuts(Collection<Long> voitureIds, LocalDate aujourdhui) {
+        return appliquerStatuts(voitureRepository.findJoursFutursParVoitureIdIn(aujourdhui, voitureIds), aujourdhui);
+    }
+
+    /**
+     * Détermine le statut de chaque voiture à partir de son dernier jour DISPONIBLE et de son dernier jour
+     * (à partir d'aujourd'hui), n'écrit que les statuts qui changent (une mise à jour par statut cible)
+     * et planifie la date du prochain changement.
      *
      * Logique des transitions de statut :
      * - disponible → completement_reservee (quand toutes dates futures sont réservées)
@@ -754,58 +767,41 @@ public class AnnonceService {
      * - completement_reservee → expiree (quand toutes les dates sont passées)
      * - inactive : ne change JAMAIS (suppression définitive par le propriétaire)
      */
-    @Transactional
-    public void mettreAJourStatutVoiture(Long voitureId) {
-        Voiture voiture = voitureRepository.findById(voitureId)
-                .orElseThrow(() -> new RuntimeException("Voiture introuvable avec l'ID: " + voitureId));
-
-        // Si la voiture est inactive (supprimée par le propriétaire), on ne change JAMAIS son statut
-        if ("inactive".equalsIgnoreCase(voiture.getStatut())) {
-            return;
-        }
-
-        List<Disponibilite> disponibilites = disponibiliteRepository.findByVoitureId(voitureId);
-        LocalDate aujourdhui = LocalDate.now();
-
-        // Vérifier s'il y a au moins une date dans le futur (disponible ou réservée)
-        boolean aDesDatesFutures = disponibilites.stream()
-                .anyMatch(d -> d.getJour().isAfter(aujourdhui) || d.getJour().isEqual(aujourdhui));
-
-        // Si toutes les dates sont passées → expiree (peu importe le statut actuel)
-        if (!aDesDatesFutures) {
-            if (!"expiree".equalsIgnoreCase(voiture.getStatut())) {
-                logger.info("Mise à jour du statut de la voiture {} : {} → expiree (toutes les dates sont passées)",
-                        voitureId, voiture.getStatut());
-                voiture.setStatut("expiree");
-                voiture.setMajLe(LocalDateTime.now());
-                voitureRepository.save(voiture);
+    private int appliquerStatuts(List<Object[]> lignes, LocalDate aujourdhui) {
+        Map<String, List<Long>> idsParStatut = new HashMap<>();
+        for (Object[] ligne : lignes) {
+            Long voitureId = (Long) ligne[0];
+            String statutActuel = (String) ligne[1];
+            LocalDate dernierJourDisponible = (LocalDate) ligne[2];
+            LocalDate dernierJour = (LocalDate) ligne[3];
+
+            String nouveauStatut;
+            if (dernierJourDisponible != null) {
+                // Au moins une date disponible à partir d'aujourd'hui
+                nouveauStatut = "disponible";
+                voituresARecalculer.planifier(voitureId, dernierJourDisponible.plusDays(1));
+            } else if (dernierJour != null) {
+                // Des dates à venir, mais toutes réservées
+                nouveauStatut = "completement_reservee";
+                voituresARecalculer.planifier(voitureId, dernierJour.plusDays(1));
+            } else {
+                // Toutes les dates sont passées
+                nouveauStatut = "expiree";
+                voituresARecalculer.planifier(voitureId, null);
             }
-            return;
-        }
 
-        // Vérifier s'il y a des dates DISPONIBLES dans le futur
-        boolean aDesDatesFuturesDisponibles = disponibilites.stream()
-                .anyMatch(d -> (d.getJour().isAfter(aujourdhui) || d.getJour().isEqual(aujourdhui))
-                        && d.getStatut() == Disponibilite.Statut.DISPONIBLE);
-
-        // Déterminer le nouveau statut
-        String nouveauStatut;
-        if (aDesDatesFuturesDisponibles) {
-            // Il y a au moins une date future disponible
-            nouveauStatut = "disponible";
-        } else {
-            // Il y a des dates futures mais toutes sont réservées
-            nouveauStatut = "completement_reservee";
+            if (!nouveauStatut.equalsIgnoreCase(statutActuel)) {
+                logger.info("Mise à jour du statut de la voiture {} : {} → {}", voitureId, statutActuel, nouveauStatut);
+                idsParStatut.computeIfAbsent(nouveauStatut, s -> new ArrayList<>()).add(voitureId);
+            }
         }
 
-        // Mettre à jour le statut si nécessaire
-        if (!nouveauStatut.equalsIgnoreCase(voiture.getStatut())) {
-            logger.info("Mise à jour du statut de la voiture {} : {} → {}",
-                    voitureId, voiture.getStatut(), nouveauStatut);
-            voiture.setStatut(nouveauStatut);
-            voiture.setMajLe(LocalDateTime.now());
-            voitureRepository.save(voiture);
+        LocalDateTime maintenant = LocalDateTime.now();
+        int nbMisesAJour = 0;
+        for (Map.Entry<String, List<Long>> entree : idsParStatut.entrySet()) {
+            nbMisesAJour += voitureRepository.changerStatut(entree.getValue(), entree.getKey(), maintenant);
         }
+        return nbMisesAJour;
     }
 
     /**
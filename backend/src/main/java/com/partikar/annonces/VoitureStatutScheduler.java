@@ -1,94 +1,174 @@
 package com.partikar.annonces;
 
-import com.partikar.disponibilite.Disponibilite;
-import com.partikar.disponibilite.DisponibiliteRepository;
-import com.partikar.voiture.Voiture;
+import com.partikar.planification.CoordinateurTaches;
 import com.partikar.voiture.VoitureRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Service planifié pour vérifier et mettre à jour automatiquement
  * le statut des voitures en fonction de leurs disponibilités.
+ *
+ * - Au démarrage : recalcul complet par tranches d'IDs de voitures (une transaction par tranche,
+ *   plusieurs tranches en parallèle), qui construit aussi l'index des dates de changement de statut.
+ *   Fait par un seul nœud quand plusieurs démarrent ensemble (les index des nœuds se complètent :
+ *   chaque nœud y ajoute les voitures qu'il recalcule).
+ * - En continu : recalcul par lots des voitures marquées dans {@link VoituresARecalculer}
+ *   après une modification de leur calendrier (création, modification, acceptation de demandes).
+ * - Chaque nuit : seules les voitures dont la date de changement de statut est atteinte sont remises en file.
+ * - Chaque nuit à 2h : recalcul complet de filet de sécurité (voitures marquées perdues à l'arrêt d'un nœud),
+ *   dont les tranches sont réparties entre les nœuds par des baux (CoordinateurTaches).
  */
 @Service
 public class VoitureStatutScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(VoitureStatutScheduler.class);
 
+    private static final String TACHE_VERIFICATION = "statuts-voitures";
+    private static final Duration BAIL_VERIFICATION = Duration.ofHours(20);
+    private static final String TACHE_DEMARRAGE = "demarrage-statuts-voitures";
+    private static final Duration BAIL_DEMARRAGE = Duration.ofMinutes(10);
+
     private final VoitureRepository voitureRepository;
-    private final DisponibiliteRepository disponibiliteRepository;
+    private final AnnonceService annonceService;
+    private final VoituresARecalculer voituresARecalculer;
+    private final CoordinateurTaches coordinateurTaches;
+
+    /** Nombre d'IDs de voitures par tranche (une transaction par tranche) */
+    @Value("${app.voitures.statut.taille-tranche:5000}")
+    private int tailleTranche;
+
+    /** Nombre de tranches traitées en parallèle */
+    @Value("${app.voitures.statut.threads:4}")
+    private int nbThreads;
+
+    /** Nombre de voitures marquées recalculées par transaction */
+    @Value("${app.voitures.statut.taille-lot:500}")
+    private int tailleLot;
 
     public VoitureStatutScheduler(VoitureRepository voitureRepository,
-                                  DisponibiliteRepository disponibiliteRepository) {
+                                  AnnonceService annonceService,
+                                  VoituresARecalculer voituresARecalculer,
+                                  CoordinateurTaches coordinateurTaches) {
         this.voitureRepository = voitureRepository;
-        this.disponibiliteRepository = disponibiliteRepository;
+        this.annonceService = annonceService;
+        this.voituresARecalculer = voituresARecalculer;
+        this.coordinateurTaches = coordinateurTaches;
     }
 
     /**
-     * Tâche planifiée qui s'exécute tous les jours à 2h du matin
-     * pour vérifier les voitures expirées.
+     * Recalcule par lots les statuts des voitures dont le calendrier a changé.
+     */
+    @Scheduled(fixedDelayString = "${app.voitures.statut.recalcul-delai-ms:1000}")
+    public void recalculerVoituresMarquees() {
+        LocalDate aujourdhui = LocalDate.now();
+        List<Long> lot;
+        while (!(lot = voituresARecalculer.extraireLot(tailleLot)).isEmpty()) {
+            try {
+                annonceService.recalculerStatuts(lot, aujourdhui);
+            } catch (Exception e) {
+                logger.error("Erreur lors du recalcul du statut de {} voitures: {}", lot.size(), e.getMessage());
+                // Remises en file pour le prochain passage
+                lot.forEach(voituresARecalculer::marquer);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tâche planifiée qui s'exécute tous les jours à minuit : remet en file les voitures
+     * dont le statut change aujourd'hui (dernier jour disponible ou dernier jour passé).
+     */
+    @Scheduled(cron = "0 0 0 * * *") // Tous les jours à 0h00
+    public void passerAuJourSuivant() {
+        int nbVoitures = voituresARecalculer.marquerEcheances(LocalDate.now());
+        logger.info("=== Changement de jour : {} voitures à recalculer ===", nbVoitures);
+    }
+
+    /**
+     * Recalcul complet au démarrage (statuts et index des dates de changement de statut).
+     * Les nœuds démarrés pendant le bail ne le refont pas : les voitures qu'ils recalculent ensuite
+     * entrent dans leur propre index, et le recalcul de 2h reste le filet de sécurité.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(3)
+    public void recalculerTousLesStatuts() {
+        if (!coordinateurTaches.acquerir(TACHE_DEMARRAGE, BAIL_DEMARRAGE)) {
+            return; // Exécutée par un autre nœud
+        }
+        logger.info("=== Vérification des statuts de voitures ===");
+        recalculerParTranches(false);
+    }
+
+    /**
+     * Tâche planifiée qui s'exécute tous les jours à 2h du matin : chaque nœud ne traite
+     * que les tranches dont il obtient le bail.
      */
     @Scheduled(cron = "0 0 2 * * *") // Tous les jours à 2h00
-    @Transactional
     public void verifierVoituresExpirees() {
         logger.info("=== Vérification quotidienne des statuts de voitures ===");
+        recalculerParTranches(true);
+    }
 
+    private void recalculerParTranches(boolean partitionne) {
         LocalDate aujourdhui = LocalDate.now();
+        long debutExecution = System.currentTimeMillis();
 
-        // Récupérer toutes les voitures non inactives
-        List<Voiture> voitures = voitureRepository.findAll().stream()
-                .filter(v -> !"inactive".equalsIgnoreCase(v.getStatut()))
-                .toList();
+        Object[] bornes = voitureRepository.findBornesIds().get(0);
+        // Tranches alignées sur des multiples de tailleTranche : même découpage sur tous les nœuds
+        long premier = (Long) bornes[0] / tailleTranche * tailleTranche;
+        long dernier = (Long) bornes[1];
 
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, nbThreads));
         int nbMisesAJour = 0;
+        int nbTranchesTraitees = 0;
+        int nbTranchesEnErreur = 0;
+        try {
+            List<Future<Integer>> tranches = new ArrayList<>();
+            for (long debut = premier; debut <= dernier; debut += tailleTranche) {
+                long fin = debut + tailleTranche - 1;
+                long debutTranche = debut;
+                tranches.add(executor.submit(() -> {
+                    if (partitionne && !coordinateurTaches.acquerir(
+                            CoordinateurTaches.partition(TACHE_VERIFICATION, debutTranche / tailleTranche), BAIL_VERIFICATION)) {
+                        return null; // Tranche prise par un autre nœud
+                    }
+                    return annonceService.recalculerStatutsTranche(aujourdhui, debutTranche, fin);
+                }));
+            }
 
-        for (Voiture voiture : voitures) {
-            try {
-                List<Disponibilite> disponibilites = disponibiliteRepository.findByVoitureId(voiture.getId());
-
-                // Vérifier s'il y a des dates DISPONIBLES dans le futur
-                boolean aDesDatesFuturesDisponibles = disponibilites.stream()
-                        .anyMatch(d -> d.getJour().isAfter(aujourdhui)
-                            && d.getStatut() == Disponibilite.Statut.DISPONIBLE);
-
-                // Vérifier s'il y a au moins une date dans le futur
-                boolean aDesDatesFutures = disponibilites.stream()
-                        .anyMatch(d -> d.getJour().isAfter(aujourdhui));
-
-                // Déterminer le nouveau statut
-                String nouveauStatut;
-                if (aDesDatesFuturesDisponibles) {
-                    nouveauStatut = "disponible";
-                } else if (aDesDatesFutures) {
-                    nouveauStatut = "completement_reservee";
-                } else {
-                    nouveauStatut = "expiree";
-                }
-
-                // Mettre à jour si nécessaire
-                if (!nouveauStatut.equalsIgnoreCase(voiture.getStatut())) {
-                    logger.info("Mise à jour statut voiture {} : {} -> {}",
-                        voiture.getId(), voiture.getStatut(), nouveauStatut);
-                    voiture.setStatut(nouveauStatut);
-                    voiture.setMajLe(LocalDateTime.now());
-                    voitureRepository.save(voiture);
-                    nbMisesAJour++;
+            for (Future<Integer> tranche : tranches) {
+                try {
+                    Integer nbTranche = tranche.get();
+                    if (nbTranche != null) {
+                        nbMisesAJour += nbTranche;
+                        nbTranchesTraitees++;
+                    }
+                } catch (Exception e) {
+                    // Une tranche en erreur n'empêche pas les autres d'être traitées
+                    nbTranchesEnErreur++;
+                    logger.error("Erreur lors de la vérification d'une tranche de voitures: {}", e.getMessage());
                 }
-            } catch (Exception e) {
-                logger.error("Erreur lors de la vérification de la voiture {}: {}",
-                    voiture.getId(), e.getMessage());
             }
+        } finally {
+            executor.shutdown();
         }
 
-        logger.info("=== Vérification terminée : {} voitures mises à jour ===", nbMisesAJour);
+        logger.info("=== Vérification terminée : {} tranches traitées, {} voitures mises à jour en {} ms ({} tranches en erreur) ===",
+                nbTranchesTraitees, nbMisesAJour, System.currentTimeMillis() - debutExecution, nbTranchesEnErreur);
     }
 }
-
@@ -0,0 +1,113 @@
+package com.partikar.annonces;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Voitures dont le statut (disponible / completement_reservee / expiree) doit être recalculé.
+ *
+ * - File sans doublons des voitures "sales" : toute écriture qui modifie le calendrier d'une voiture
+ *   la marque après le commit, et VoitureStatutScheduler recalcule les statuts par lots.
+ * - Index des dates de prochain changement de statut : le passage d'un jour ne remet en file
+ *   que les voitures dont le statut change ce jour-là (dernier jour disponible ou dernier jour passé).
+ */
+@Component
+public class VoituresARecalculer {
+
+    private final Set<Long> voituresSales = ConcurrentHashMap.newKeySet();
+
+    // Protégés par le verrou de l'instance
+    private final NavigableMap<LocalDate, Set<Long>> voituresParDateChangement = new TreeMap<>();
+    private final Map<Long, LocalDate> dateChangementParVoiture = new ConcurrentHashMap<>();
+
+    /**
+     * Marque la voiture à recalculer (après le commit de la transaction en cours).
+     */
+    public void marquer(Long voitureId) {
+        apresCommit(() -> voituresSales.add(voitureId));
+    }
+
+    /**
+     * Retire de la file au plus {@code taille} voitures à recalculer.
+     */
+    public List<Long> extraireLot(int taille) {
+        List<Long> lot = new ArrayList<>();
+        Iterator<Long> it = voituresSales.iterator();
+        while (lot.size() < taille && it.hasNext()) {
+            Long voitureId = it.next();
+            it.remove();
+            lot.add(voitureId);
+        }
+        return lot;
+    }
+
+    public int taille() {
+        return voituresSales.size();
+    }
+
+    /**
+     * Enregistre la date à laquelle le statut de la voiture changera sans nouvelle écriture
+     * (null : aucun changement prévu, ex: voiture expirée).
+     */
+    public synchronized void planifier(Long voitureId, LocalDate dateChangement) {
+        LocalDate ancienne = dateChangement != null
+                ? dateChangementParVoiture.put(voitureId, dateChangement)
+                : dateChangementParVoiture.remove(voitureId);
+        if (ancienne != null && !ancienne.equals(dateChangement)) {
+            Set<Long> voitures = voituresParDateChangement.get(ancienne);
+            if (voitures != null) {
+                voitures.remove(voitureId);
+                if (voitures.isEmpty()) {
+                    voituresParDateChangement.remove(ancienne);
+                }
+            }
+        }
+        if (dateChangement != null) {
+            voituresParDateChangement.computeIfAbsent(dateChangement, d -> new HashSet<>()).add(voitureId);
+        }
+    }
+
+    /**
+     * Met en file les voitures dont la date de changement de statut est atteinte.
+     *
+     * @return nombre de voitures mises en file
+     */
+    public synchronized int marquerEcheances(LocalDate aujourdhui) {
+        int nbVoitures = 0;
+        Map<LocalDate, Set<Long>> echues = voituresParDateChangement.headMap(aujourdhui, true);
+        for (Set<Long> voitures : echues.values()) {
+            for (Long voitureId : voitures) {
+                dateChangementParVoiture.remove(voitureId);
+                voituresSales.add(voitureId);
+                nbVoitures++;
+            }
+        }
+        echues.clear();
+        return nbVoitures;
+    }
+
+    private void apresCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
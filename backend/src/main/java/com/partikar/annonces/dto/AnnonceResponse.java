@@ -1,5 +1,6 @@
 package com.partikar.annonces.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.partikar.voiture.Voiture;
 
 import java.math.BigDecimal;
@@ -23,6 +24,7 @@ public class AnnonceResponse {
     private String imageUrl;
     private String statut;
     private BigDecimal prixParJour;
+    private long prixParJourCentimes; // Pour le tri par prix (non exposé)
     private String boiteVitesse;
     private Boolean climatisation;
     private String localisation;
@@ -57,6 +59,7 @@ public class AnnonceResponse {
         response.setImageUrl(voiture.getImageUrl());
         response.setStatut(voiture.getStatut());
         response.setPrixParJour(voiture.getPrixParJour());
+        response.prixParJourCentimes = voiture.getPrixParJourCentimes();
         response.setBoiteVitesse(voiture.getBoiteVitesse().name());
         response.setClimatisation(voiture.getClimatisation());
         response.setLocalisation(voiture.getLocalisation());
@@ -107,6 +110,8 @@ public class AnnonceResponse {
 
     public BigDecimal getPrixParJour() { return prixParJour; }
     public void setPrixParJour(BigDecimal prixParJour) { this.prixParJour = prixParJour; }
+    @JsonIgnore
+    public long getPrixParJourCentimes() { return prixParJourCentimes; }
 
     public String getBoiteVitesse() { return boiteVitesse; }
     public void setBoiteVitesse(String boiteVitesse) { this.boiteVitesse = boiteVitesse; }
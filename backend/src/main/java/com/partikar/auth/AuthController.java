@@ -1,42 +1,100 @@
 package com.partikar.auth;
 
-import com.partikar.auth.dto.AuthResponse;
 import com.partikar.auth.dto.LoginRequest;
+import com.partikar.auth.dto.RefreshRequest;
 import com.partikar.auth.dto.RegisterRequest;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid; // Important pour la validation
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth") // Toutes les routes ici commenceront par /api/auth
 public class AuthController {
 
     private final AuthService authService;
+    private final ExecuteurMotsDePasse executeurMotsDePasse;
+    private final LimiteurTentatives limiteurTentatives;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService,
+                          ExecuteurMotsDePasse executeurMotsDePasse,
+                          LimiteurTentatives limiteurTentatives) {
         this.authService = authService;
+        this.executeurMotsDePasse = executeurMotsDePasse;
+        this.limiteurTentatives = limiteurTentatives;
     }
 
     /**
      * Endpoint pour l'inscription (création de compte).
      * Mappé sur POST /api/auth/register
+     *
+     * Le hachage BCrypt s'exécute sur le pool dédié (le thread Tomcat est libéré pendant ce temps).
      */
     @PostMapping("/register")
-    public ResponseEntity<AuthResponse> register(@Valid @RequestBody RegisterRequest request) {
-        AuthResponse response = authService.register(request);
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<?>> register(@Valid @RequestBody RegisterRequest request,
+                                                         HttpServletRequest http) {
+        try {
+            limiteurTentatives.verifierInscription(http.getRemoteAddr());
+            return executeurMotsDePasse.executer(() -> ResponseEntity.ok(authService.register(request)));
+        } catch (AuthentificationSatureeException e) {
+            return CompletableFuture.completedFuture(refus(e));
+        }
     }
 
     /**
      * Endpoint pour la connexion.
      * Mappé sur POST /api/auth/login
+     *
+     * 429 si l'IP ou l'email a fait trop de tentatives récentes, 503 si le pool BCrypt est saturé.
      */
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request) {
-        AuthResponse response = authService.login(request);
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody LoginRequest request,
+                                                      HttpServletRequest http) {
+        try {
+            limiteurTentatives.verifierConnexion(http.getRemoteAddr(), request.email());
+            return executeurMotsDePasse.executer(() -> ResponseEntity.ok(authService.login(request)));
+        } catch (AuthentificationSatureeException e) {
+            return CompletableFuture.completedFuture(refus(e));
+        }
+    }
+
+    /**
+     * Endpoint de renouvellement des tokens (le jeton de rafraîchissement présenté est consommé).
+     * Mappé sur POST /api/auth/refresh
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshRequest request) {
+        try {
+            return ResponseEntity.ok(authService.rafraichir(request.refreshToken()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Endpoint de déconnexion : révoque le jeton de rafraîchissement (corps) et le token d'accès (en-tête).
+     * Mappé sur POST /api/auth/logout
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody(required = false) RefreshRequest request,
+                                       @RequestHeader(value = "Authorization", required = false) String authorization) {
+        String tokenAcces = authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+        authService.deconnecter(request != null ? request.refreshToken() : null, tokenAcces);
+        return ResponseEntity.noContent().build();
+    }
+
+    private static ResponseEntity<?> refus(AuthentificationSatureeException e) {
+        return ResponseEntity.status(e.getStatut())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getReessayerApresSecondes()))
+                .body(Map.of("message", e.getMessage()));
     }
-}
\ No newline at end of file
+}
@@ -3,20 +3,32 @@ package com.partikar.auth;
 import com.partikar.auth.dto.AuthResponse;
 import com.partikar.auth.dto.LoginRequest;
 import com.partikar.auth.dto.RegisterRequest;
+import com.partikar.security.JetonRafraichissement;
+import com.partikar.security.JetonRafraichissementRepository;
 import com.partikar.security.JwtService;
+import com.partikar.security.ListeRevocation;
+import com.partikar.transaction.GrandLivreService;
 import com.partikar.user.User;
 import com.partikar.user.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.Period;
+import java.util.Base64;
+import java.util.HexFormat;
 
 @Service
 public class AuthService {
@@ -24,21 +36,35 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
     private final AuthenticationManager authenticationManager;
+    private final GrandLivreService grandLivreService;
+    private final JetonRafraichissementRepository jetonRafraichissementRepository;
+    private final ListeRevocation listeRevocation;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${app.securite.jwt.duree-rafraichissement-jours:30}")
+    private long dureeRafraichissementJours;
+
+    /** Délai pendant lequel un jeton qui vient d'être renouvelé est refusé sans être pris pour un vol */
+    @Value("${app.securite.jwt.grace-rafraichissement-secondes:30}")
+    private long graceRafraichissementSecondes;
 
     public AuthService(
             UserRepository userRepository, 
             PasswordEncoder passwordEncoder,
             JwtService jwtService,
-            UserDetailsService userDetailsService,
-            AuthenticationManager authenticationManager
+            AuthenticationManager authenticationManager,
+            GrandLivreService grandLivreService,
+            JetonRafraichissementRepository jetonRafraichissementRepository,
+            ListeRevocation listeRevocation
     ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
         this.authenticationManager = authenticationManager;
+        this.grandLivreService = grandLivreService;
+        this.jetonRafraichissementRepository = jetonRafraichissementRepository;
+        this.listeRevocation = listeRevocation;
     }
 
     @Transactional
@@ -74,13 +100,10 @@ public class AuthService {
         user.setCredits(new BigDecimal("100.00"));
         //Sauvegarder l'utilisateur
         userRepository.save(user);
+        grandLivreService.enregistrerDotation(user.getId(), user.getCredits());
 
-        //Générer un token
-        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
-        String token = jwtService.generateToken(userDetails);
-
-        //Renvoyer le DTO de réponse
-        return new AuthResponse(token);
+        //Générer les tokens et renvoyer le DTO de réponse
+        return emettreJetons(user);
     }
 
     /**
@@ -94,8 +117,84 @@ public class AuthService {
                         request.password()
                 )
         );
-        UserDetails userDetails = userDetailsService.loadUserByUsername(request.email());
-        String token = jwtService.generateToken(userDetails);
-        return new AuthResponse(token);
+        User user = userRepository.findByEmail(request.email())
+                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+        return emettreJetons(user);
+    }
+
+    /**
+     * Échange un jeton de rafraîchissement contre une nouvelle paire de tokens (sans BCrypt).
+     * Chaque jeton ne sert qu'une fois : présenter un jeton déjà utilisé (vol ou rejeu) révoque
+     * toutes les sessions de l'utilisateur. Les révocations sont conservées même si l'appel échoue.
+     */
+    @Transactional(noRollbackFor = IllegalStateException.class)
+    public AuthResponse rafraichir(String jetonRafraichissement) {
+        JetonRafraichissement jeton = jetonRafraichissementRepository.findByHash(hacher(jetonRafraichissement))
+                .orElseThrow(() -> new IllegalStateException("Jeton de rafraîchissement invalide"));
+        LocalDateTime maintenant = LocalDateTime.now();
+
+        if (jeton.getRevoqueLe() != null) {
+            // Renouvelé il y a quelques secondes : autre onglet du même navigateur, ou réponse perdue puis réessayée
+            if (jeton.getRevoqueLe().isAfter(maintenant.minusSeconds(graceRafraichissementSecondes))) {
+                throw new IllegalStateException("Jeton de rafraîchissement déjà renouvelé");
+            }
+            // Réutilisé plus tard : jeton probablement volé, toutes les sessions de l'utilisateur sont révoquées
+            jetonRafraichissementRepository.revoquerTous(jeton.getUtilisateurId(), maintenant);
+            listeRevocation.revoquerUtilisateur(jeton.getUtilisateurId());
+            throw new IllegalStateException("Jeton de rafraîchissement déjà utilisé, veuillez vous reconnecter");
+        }
+        if (jeton.getExpireLe().isBefore(maintenant)) {
+            throw new IllegalStateException("Jeton de rafraîchissement expiré, veuillez vous reconnecter");
+        }
+        // Deux rafraîchissements simultanés avec le même jeton : un seul l'emporte
+        if (jetonRafraichissementRepository.consommer(jeton.getId(), maintenant) == 0) {
+            throw new IllegalStateException("Jeton de rafraîchissement invalide");
+        }
+
+        User user = userRepository.findById(jeton.getUtilisateurId())
+                .orElseThrow(() -> new IllegalStateException("Utilisateur introuvable"));
+        return emettreJetons(user);
+    }
+
+    /**
+     * Déconnexion : révoque le jeton de rafraîchissement et le token d'accès présentés (chacun facultatif).
+     */
+    @Transactional
+    public void deconnecter(String jetonRafraichissement, String tokenAcces) {
+        if (jetonRafraichissement != null && !jetonRafraichissement.isBlank()) {
+            jetonRafraichissementRepository.findByHash(hacher(jetonRafraichissement))
+                    .ifPresent(j -> jetonRafraichissementRepository.consommer(j.getId(), LocalDateTime.now()));
+        }
+        if (tokenAcces != null && !tokenAcces.isBlank()) {
+            try {
+                Claims claims = jwtService.extraireClaims(tokenAcces);
+                if (claims.getId() != null) {
+                    listeRevocation.revoquerJeton(claims.getId(), claims.getExpiration());
+                }
+            } catch (JwtException e) {
+                // Token invalide ou déjà expiré : rien à révoquer
+            }
+        }
+    }
+
+    private AuthResponse emettreJetons(User user) {
+        String token = jwtService.generateToken(user);
+
+        byte[] aleatoire = new byte[32];
+        secureRandom.nextBytes(aleatoire);
+        String jetonRafraichissement = Base64.getUrlEncoder().withoutPadding().encodeToString(aleatoire);
+        jetonRafraichissementRepository.save(new JetonRafraichissement(
+                user.getId(), hacher(jetonRafraichissement), LocalDateTime.now().plusDays(dureeRafraichissementJours)));
+
+        return new AuthResponse(token, jetonRafraichissement);
+    }
+
+    private static String hacher(String jeton) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(jeton.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.partikar.auth;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Tentative d'authentification refusée avant tout calcul BCrypt : trop de tentatives
+ * récentes (429) ou pool de hachage saturé (503).
+ */
+public class AuthentificationSatureeException extends RuntimeException {
+
+    private final HttpStatus statut;
+    private final long reessayerApresSecondes;
+
+    public AuthentificationSatureeException(HttpStatus statut, String message, long reessayerApresSecondes) {
+        super(message);
+        this.statut = statut;
+        this.reessayerApresSecondes = reessayerApresSecondes;
+    }
+
+    public HttpStatus getStatut() {
+        return statut;
+    }
+
+    public long getReessayerApresSecondes() {
+        return reessayerApresSecondes;
+    }
+}
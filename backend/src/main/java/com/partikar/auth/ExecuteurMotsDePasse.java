@@ -0,0 +1,61 @@
+package com.partikar.auth;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pool dédié aux opérations BCrypt (connexion, inscription), séparé des threads Tomcat :
+ * une vague de connexions n'occupe que ce pool, les autres endpoints restent servis.
+ *
+ * La file d'attente est bornée : au-delà, la demande est refusée immédiatement (503)
+ * au lieu d'attendre plusieurs secondes.
+ */
+@Component
+public class ExecuteurMotsDePasse {
+
+    private final ThreadPoolExecutor executor;
+
+    public ExecuteurMotsDePasse(@Value("${app.auth.bcrypt.threads:0}") int nbThreads,
+                                @Value("${app.auth.bcrypt.file-max:64}") int fileMax) {
+        // Par défaut la moitié des cœurs : BCrypt est coûteux en CPU
+        int threads = nbThreads > 0 ? nbThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger numero = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, fileMax)),
+                r -> {
+                    Thread thread = new Thread(r, "bcrypt-" + numero.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Exécute la tâche (qui hache ou vérifie un mot de passe) sur le pool dédié.
+     *
+     * @throws AuthentificationSatureeException (503) si le pool et sa file sont pleins
+     */
+    public <T> CompletableFuture<T> executer(Supplier<T> tache) {
+        try {
+            return CompletableFuture.supplyAsync(tache, executor);
+        } catch (RejectedExecutionException e) {
+            throw new AuthentificationSatureeException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Trop de connexions en cours, veuillez réessayer dans un instant", 1);
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executor.shutdown();
+    }
+}
@@ -1,5 +1,6 @@
 package com.partikar.auth;
 
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -21,6 +22,15 @@ public class GlobalExceptionHandler {
                 .body(Map.of("message", ex.getMessage()));
     }
 
+    // Erreurs passagères de la base (verrou non obtenu, interblocage, délai dépassé) : la requête peut être réessayée
+    @ExceptionHandler(TransientDataAccessException.class)
+    public ResponseEntity<Map<String, String>> handleTransient(TransientDataAccessException ex) {
+        ex.printStackTrace();
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("message", "Service momentanément indisponible, veuillez réessayer"));
+    }
+
     // Gère les RuntimeException lancées par le service (validation, etc.)
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, String>> handleRuntime(RuntimeException ex) {
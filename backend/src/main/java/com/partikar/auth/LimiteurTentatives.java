@@ -0,0 +1,109 @@
+package com.partikar.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compteurs de tentatives d'authentification par adresse IP et par email, sur une fenêtre glissante
+ * (approximée par la fenêtre courante et la précédente, pondérée par son recouvrement).
+ * Une tentative au-delà de la limite est refusée (429) avant tout calcul BCrypt.
+ */
+@Component
+public class LimiteurTentatives {
+
+    /** Au-delà, les compteurs inactifs sont purgés (et tous les compteurs si cela ne suffit pas) */
+    private static final int TAILLE_MAX = 100_000;
+
+    private final Map<String, Compteur> compteurs = new ConcurrentHashMap<>();
+
+    @Value("${app.auth.tentatives.fenetre-secondes:300}")
+    private long fenetreSecondes;
+
+    @Value("${app.auth.tentatives.max-par-ip:50}")
+    private int maxParIp;
+
+    @Value("${app.auth.tentatives.max-par-email:10}")
+    private int maxParEmail;
+
+    /**
+     * Enregistre une tentative de connexion.
+     *
+     * @throws AuthentificationSatureeException (429) si l'IP ou l'email a dépassé sa limite
+     */
+    public void verifierConnexion(String ip, String email) {
+        enregistrer("ip:" + ip, maxParIp);
+        if (email != null) {
+            enregistrer("email:" + email.trim().toLowerCase(Locale.ROOT), maxParEmail);
+        }
+    }
+
+    /**
+     * Enregistre une tentative d'inscription (limitée par IP).
+     *
+     * @throws AuthentificationSatureeException (429) si l'IP a dépassé sa limite
+     */
+    public void verifierInscription(String ip) {
+        enregistrer("ip:" + ip, maxParIp);
+    }
+
+    private void enregistrer(String cle, int max) {
+        long fenetreMs = fenetreSecondes * 1000;
+        long maintenant = System.currentTimeMillis();
+        if (compteurs.size() >= TAILLE_MAX && !compteurs.containsKey(cle)) {
+            purger(maintenant);
+        }
+        Compteur compteur = compteurs.computeIfAbsent(cle, c -> new Compteur());
+        if (!compteur.tenter(maintenant, fenetreMs, max)) {
+            long reessayerApres = Math.max(1, (fenetreMs - maintenant % fenetreMs) / 1000);
+            throw new AuthentificationSatureeException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Trop de tentatives, veuillez réessayer plus tard", reessayerApres);
+        }
+    }
+
+    /**
+     * Supprime les compteurs sans tentative depuis deux fenêtres.
+     */
+    @Scheduled(fixedDelay = 60_000) // Toutes les minutes
+    public void purgerCompteursInactifs() {
+        purger(System.currentTimeMillis());
+    }
+
+    private void purger(long maintenant) {
+        long fenetreCourante = maintenant / (fenetreSecondes * 1000);
+        compteurs.values().removeIf(c -> c.estInactif(fenetreCourante));
+        if (compteurs.size() >= TAILLE_MAX) {
+            compteurs.clear();
+        }
+    }
+
+    private static final class Compteur {
+        private long fenetre;
+        private int courant;
+        private int precedent;
+
+        synchronized boolean tenter(long maintenant, long fenetreMs, int max) {
+            long fenetreCourante = maintenant / fenetreMs;
+            if (fenetreCourante != fenetre) {
+                precedent = fenetreCourante == fenetre + 1 ? courant : 0;
+                courant = 0;
+                fenetre = fenetreCourante;
+            }
+            double poidsPrecedent = 1.0 - (double) (maintenant % fenetreMs) / fenetreMs;
+            if (precedent * poidsPrecedent + courant >= max) {
+                return false;
+            }
+            courant++;
+            return true;
+        }
+
+        synchronized boolean estInactif(long fenetreCourante) {
+            return fenetre < fenetreCourante - 1;
+        }
+    }
+}
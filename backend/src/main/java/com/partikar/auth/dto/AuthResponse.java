@@ -1,5 +1,6 @@
 package com.partikar.auth.dto;
 
 public record AuthResponse(
-        String token
-) {}
\ No newline at end of file
+        String token,
+        String refreshToken
+) {}
@@ -0,0 +1,8 @@
+package com.partikar.auth.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshRequest(
+        @NotBlank(message = "Le jeton de rafraîchissement est obligatoire")
+        String refreshToken
+) {}
@@ -14,7 +14,9 @@ import java.time.LocalDateTime;
  * sur une voiture ou sur un propriétaire.
  */
 @Entity
-@Table(name = "avis")
+@Table(name = "avis", indexes = {
+        @Index(name = "idx_avis_cible", columnList = "cible_id")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class Avis {
 
@@ -1,8 +1,11 @@
 package com.partikar.avis;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,4 +16,9 @@ public interface AvisRepository extends JpaRepository<Avis, Long> {
 
     // Compter le nombre d'avis pour une voiture spécifique
     long countByCibleId(Long cibleId);
+
+    // Note moyenne et nombre d'avis de plusieurs utilisateurs en une seule requête
+    @Query("select new com.partikar.avis.NoteMoyenneCible(a.cible.id, avg(a.noteUtilisateur), count(a)) " +
+           "from Avis a where a.cible.id in :cibleIds group by a.cible.id")
+    List<NoteMoyenneCible> findNotesMoyennesByCibleIds(@Param("cibleIds") Collection<Long> cibleIds);
 }
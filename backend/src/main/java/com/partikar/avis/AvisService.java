@@ -2,12 +2,10 @@ package com.partikar.avis;
 
 import com.partikar.location.Location;
 import com.partikar.location.LocationRepository;
+import com.partikar.security.UtilisateurCourant;
 import com.partikar.user.User;
-import com.partikar.user.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,29 +21,23 @@ public class AvisService {
 
     private final AvisRepository avisRepository;
     private final LocationRepository locationRepository;
-    private final UserRepository userRepository;
+    private final UtilisateurCourant utilisateurCourant;
 
-    public AvisService(AvisRepository avisRepository, LocationRepository locationRepository, UserRepository userRepository) {
+    public AvisService(AvisRepository avisRepository, LocationRepository locationRepository, UtilisateurCourant utilisateurCourant) {
         this.avisRepository = avisRepository;
         this.locationRepository = locationRepository;
-        this.userRepository = userRepository;
+        this.utilisateurCourant = utilisateurCourant;
     }
 
     @Transactional
     public AvisResponse creerAvis(CreerAvisRequest request) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User auteur = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+        Long auteurId = utilisateurCourant.id();
 
         Location location = locationRepository.findById(request.getLocationId())
                 .orElseThrow(() -> new RuntimeException("Location introuvable"));
 
-        boolean estLocataire = location.getLocataire().getId().equals(auteur.getId());
-        boolean estProprietaire = location.getVoiture().getProprietaire().getId().equals(auteur.getId());
+        boolean estLocataire = location.getLocataire().getId().equals(auteurId);
+        boolean estProprietaire = location.getVoiture().getProprietaire().getId().equals(auteurId);
 
         if (!estLocataire && !estProprietaire) {
             throw new RuntimeException("Vous n'êtes pas autorisé à laisser un avis pour cette location");
@@ -61,7 +53,7 @@ public class AvisService {
 
         List<Avis> avisExistants = avisRepository.findByLocationId(location.getId());
         Optional<Avis> avisExistant = avisExistants.stream()
-                .filter(a -> a.getAuteur().getId().equals(auteur.getId()))
+                .filter(a -> a.getAuteur().getId().equals(auteurId))
                 .findFirst();
 
         if (avisExistant.isPresent()) {
@@ -72,7 +64,7 @@ public class AvisService {
 
         Avis avis = new Avis();
         avis.setLocation(location);
-        avis.setAuteur(auteur);
+        avis.setAuteur(estLocataire ? location.getLocataire() : location.getVoiture().getProprietaire());
         avis.setCible(cible);
         avis.setNoteUtilisateur(request.getNoteUtilisateur());
         avis.setNoteVehicule(request.getNoteVehicule());
@@ -86,18 +78,12 @@ public class AvisService {
 
     @Transactional
     public AvisResponse modifierAvis(Long avisId, CreerAvisRequest request) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User auteur = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+        Long auteurId = utilisateurCourant.id();
 
         Avis avis = avisRepository.findById(avisId)
                 .orElseThrow(() -> new RuntimeException("Avis introuvable"));
 
-        if (!avis.getAuteur().getId().equals(auteur.getId())) {
+        if (!avis.getAuteur().getId().equals(auteurId)) {
             throw new RuntimeException("Vous n'êtes pas autorisé à modifier cet avis");
         }
 
@@ -118,17 +104,11 @@ public class AvisService {
 
     @Transactional(readOnly = true)
     public AvisResponse getMonAvisPourLocation(Long locationId) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User auteur = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+        Long auteurId = utilisateurCourant.id();
 
         List<Avis> avis = avisRepository.findByLocationId(locationId);
         Optional<Avis> monAvis = avis.stream()
-                .filter(a -> a.getAuteur().getId().equals(auteur.getId()))
+                .filter(a -> a.getAuteur().getId().equals(auteurId))
                 .findFirst();
 
         if (monAvis.isEmpty()) {
@@ -148,18 +128,12 @@ public class AvisService {
 
     @Transactional
     public void supprimerAvis(Long avisId) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User auteur = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+        Long auteurId = utilisateurCourant.id();
 
         Avis avis = avisRepository.findById(avisId)
                 .orElseThrow(() -> new RuntimeException("Avis introuvable"));
 
-        if (!avis.getAuteur().getId().equals(auteur.getId())) {
+        if (!avis.getAuteur().getId().equals(auteurId)) {
             throw new RuntimeException("Vous n'êtes pas autorisé à supprimer cet avis");
         }
 
@@ -0,0 +1,24 @@
+package com.partikar.avis;
+
+/**
+ * Agrégat des avis reçus par un utilisateur : note moyenne et nombre d'avis.
+ * Construit directement par la requête JPQL (expression "select new").
+ */
+public class NoteMoyenneCible {
+
+    private final Long cibleId;
+    private final Double moyenne;
+    private final Long nbAvis;
+
+    public NoteMoyenneCible(Long cibleId, Double moyenne, Long nbAvis) {
+        this.cibleId = cibleId;
+        this.moyenne = moyenne;
+        this.nbAvis = nbAvis;
+    }
+
+    public Long getCibleId() { return cibleId; }
+
+    public Double getMoyenne() { return moyenne; }
+
+    public Long getNbAvis() { return nbAvis; }
+}
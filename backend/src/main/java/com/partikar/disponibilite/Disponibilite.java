@@ -7,7 +7,9 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "disponibilites")
+@Table(name = "disponibilites", indexes = {
+        @Index(name = "idx_disponibilites_voiture_jour", columnList = "voiture_id, jour")
+})
 public class Disponibilite {
 
     @Id
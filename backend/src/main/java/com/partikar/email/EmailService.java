@@ -1,6 +1,7 @@
 package com.partikar.email;
 
 import com.partikar.location.Location;
+import com.partikar.location.LocationRepository;
 import com.partikar.user.User;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
@@ -13,13 +14,21 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.time.format.DateTimeFormatter;
-
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Envoi des notifications par email.
+ * Les méthodes s'exécutent en @Async, hors de la transaction de l'appelant : la Location reçue
+ * doit déjà avoir voiture, propriétaire et locataire chargés (graphe {@link Location#GRAPHE_DETAILS}).
+ */
 @Service
 public class EmailService {
 
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
     private final JavaMailSender mailSender;
+    private final LocationRepository locationRepository;
 
     @Value("${spring.mail.username}")
     private String fromEmail;
@@ -27,8 +36,9 @@ public class EmailService {
     @Value("${app.frontend.url}")
     private String frontendUrl;
 
-    public EmailService(JavaMailSender mailSender) {
+    public EmailService(JavaMailSender mailSender, LocationRepository locationRepository) {
         this.mailSender = mailSender;
+        this.locationRepository = locationRepository;
     }
 
     /**
@@ -93,6 +103,64 @@ public class EmailService {
         }
     }
 
+    /**
+     * Envoie un email à chaque locataire dont la demande a expiré sans réponse du propriétaire.
+     * Appelé une fois par lot d'expiration : les locations sont rechargées en une seule requête.
+     */
+    @Async
+    public void envoyerNotificationsDemandesExpirees(List<Long> locationIds) {
+        List<Location> locations;
+        try {
+            locations = locationRepository.findAvecDetailsByIdIn(locationIds);
+        } catch (Exception e) {
+            logger.error("Erreur lors du chargement des demandes expirées: {}", e.getMessage(), e);
+            return;
+        }
+
+        for (Location location : locations) {
+            try {
+                User locataire = location.getLocataire();
+
+                String subject = "Demande expirée - " +
+                               location.getVoiture().getMarque() + " " + location.getVoiture().getModele();
+
+                String htmlContent = construireEmailDemandeExpireeLocataire(location, locataire);
+
+                envoyerEmail(locataire.getEmail(), subject, htmlContent);
+            } catch (Exception e) {
+                logger.error("Erreur lors de l'envoi de l'email d'expiration pour la demande {}: {}",
+                        location.getId(), e.getMessage(), e);
+            }
+        }
+        logger.info("Emails d'expiration envoyés pour {} demandes", locations.size());
+    }
+
+    /**
+     * Envoie les emails d'acceptation et de refus d'un lot de décisions du propriétaire.
+     * Les locations sont rechargées en une seule requête ; les envois se font dans ce même thread.
+     */
+    @Async
+    public void envoyerNotificationsDecisions(List<Long> accepteesIds, List<Long> refuseesIds) {
+        List<Location> locations;
+        try {
+            List<Long> ids = new ArrayList<>(accepteesIds);
+            ids.addAll(refuseesIds);
+            locations = locationRepository.findAvecDetailsByIdIn(ids);
+        } catch (Exception e) {
+            logger.error("Erreur lors du chargement des décisions à notifier: {}", e.getMessage(), e);
+            return;
+        }
+
+        // Appels internes : pas de proxy, donc exécutés ici plutôt que dans une nouvelle tâche @Async
+        for (Location location : locations) {
+            if (accepteesIds.contains(location.getId())) {
+                envoyerNotificationDemandeAccepteeLocataire(location);
+            } else {
+                envoyerNotificationDemandeRefuseeLocataire(location);
+            }
+        }
+    }
+
     /**
      * Méthode générique pour envoyer un email HTML.
      */
@@ -280,5 +348,59 @@ public class EmailService {
                 "</body>" +
                 "</html>";
     }
-}
 
+    /**
+     * Construit le contenu HTML de l'email pour une demande expirée au locataire.
+     */
+    private String construireEmailDemandeExpireeLocataire(Location location, User locataire) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        String dateDebut = location.getDateDebut().format(formatter);
+        String dateFin = location.getDateFin().format(formatter);
+
+        String lienRecherche = frontendUrl + "/search";
+
+        return "<!DOCTYPE html>" +
+                "<html>" +
+                "<head>" +
+                "<meta charset='UTF-8'>" +
+                "<style>" +
+                "body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }" +
+                ".container { max-width: 600px; margin: 0 auto; padding: 20px; }" +
+                ".header { background-color: #F59E0B; color: white; padding: 30px; text-align: center; border-radius: 10px 10px 0 0; }" +
+                ".content { background-color: #f9fafb; padding: 30px; border: 1px solid #e5e7eb; }" +
+                ".info-box { background-color: white; padding: 20px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #F59E0B; }" +
+                ".info-row { margin: 10px 0; }" +
+                ".label { font-weight: bold; color: #6b7280; }" +
+                ".value { color: #111827; }" +
+                ".button { display: inline-block; background-color: #4F46E5; color: white; padding: 15px 30px; text-decoration: none; border-radius: 8px; margin: 20px 0; font-weight: bold; }" +
+                ".button:hover { background-color: #4338CA; }" +
+                ".footer { text-align: center; padding: 20px; color: #6b7280; font-size: 14px; }" +
+                "</style>" +
+                "</head>" +
+                "<body>" +
+                "<div class='container'>" +
+                "<div class='header'>" +
+                "<h1>Demande expirée</h1>" +
+                "</div>" +
+                "<div class='content'>" +
+                "<p>Bonjour " + locataire.getPrenom() + ",</p>" +
+                "<p>Votre demande de réservation n'a pas reçu de réponse du propriétaire à temps et a été automatiquement annulée.</p>" +
+                "<div class='info-box'>" +
+                "<div class='info-row'><span class='label'>Véhicule :</span> <span class='value'>" +
+                location.getVoiture().getMarque() + " " + location.getVoiture().getModele() + "</span></div>" +
+                "<div class='info-row'><span class='label'>Période :</span> <span class='value'>Du " +
+                dateDebut + " au " + dateFin + "</span></div>" +
+                "</div>" +
+                "<p>Vos crédits suspendus ont été libérés.</p>" +
+                "<p style='text-align: center;'>" +
+                "<a href='" + lienRecherche + "' class='button'>Chercher un autre véhicule</a>" +
+                "</p>" +
+                "</div>" +
+                "<div class='footer'>" +
+                "<p>Cet email a été envoyé automatiquement par PartiKar.<br>Merci de ne pas répondre à ce message.</p>" +
+                "</div>" +
+                "</div>" +
+                "</body>" +
+                "</html>";
+    }
+}
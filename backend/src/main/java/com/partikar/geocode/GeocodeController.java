@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 public class GeocodeController {
@@ -15,11 +16,12 @@ public class GeocodeController {
         this.geocodeService = geocodeService;
     }
 
+    // Réponse asynchrone : le thread Tomcat n'attend pas l'API adresse
     @GetMapping("/api/geocode")
-    public List<GeocodeResult> search(@RequestParam(name = "q") String q,
-                                      @RequestParam(name = "limit", defaultValue = "5") int limit) {
-        if (q == null || q.trim().isEmpty()) return List.of();
-        return geocodeService.search(q, Math.max(1, Math.min(limit, 10)));
+    public CompletableFuture<List<GeocodeResult>> search(@RequestParam(name = "q") String q,
+                                                         @RequestParam(name = "limit", defaultValue = "5") int limit) {
+        if (q == null || q.trim().isEmpty()) return CompletableFuture.completedFuture(List.of());
+        return geocodeService.searchAsync(q, Math.max(1, Math.min(limit, 10)));
     }
 }
 
@@ -2,77 +2,161 @@ package com.partikar.geocode;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.*;
-import java.time.Instant;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class GeocodeService {
 
-    private final HttpClient http = HttpClient.newHttpClient();
+    private final HttpClient http;
     private final ObjectMapper mapper = new ObjectMapper();
 
-    private static class CacheEntry {
-        final long ts;
-        final List<GeocodeResult> results;
-        CacheEntry(long ts, List<GeocodeResult> results) { this.ts = ts; this.results = results; }
+    // Communes connues localement : réponse immédiate quand elles suffisent à remplir la limite,
+    // sinon complétées par l'API adresse (adresses, lieux-dits, communes absentes du fichier)
+    private final RepertoireCommunes repertoireCommunes;
+
+    private final String urlApi;
+    private final Duration delaiMax;
+
+    // Cache borné (éviction W-TinyLFU), entrées expirées retirées en tâche de fond ;
+    // métriques cache.gets / cache.evictions / cache.size avec le tag cache=geocode.
+    // Cache asynchrone : la requête en cours pour une clé est partagée par tous les appelants
+    // (un seul appel à l'API par recherche distincte, quel que soit le nombre d'utilisateurs).
+    private final AsyncCache<String, List<GeocodeResult>> cache;
+
+    public GeocodeService(RepertoireCommunes repertoireCommunes,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.geocode.url:https://api-adresse.data.gouv.fr/search/}") String urlApi,
+                          @Value("${app.geocode.delai-max-ms:2000}") long delaiMaxMs,
+                          @Value("${app.geocode.cache.taille-max:10000}") long tailleMax,
+                          @Value("${app.geocode.cache.ttl-minutes:5}") long ttlMinutes) {
+        this.repertoireCommunes = repertoireCommunes;
+        this.urlApi = urlApi;
+        this.delaiMax = Duration.ofMillis(delaiMaxMs);
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(delaiMax)
+                .build();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .scheduler(Scheduler.systemScheduler())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "geocode");
     }
 
-    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
-    private final long ttlMillis = 5 * 60 * 1000; // 5 minutes
-
     public List<GeocodeResult> search(String q, int limit) {
-        if (q == null || q.trim().length() < 2) return List.of();
-        q = q.trim();
+        return searchAsync(q, limit).join();
+    }
 
-        String key = q.toLowerCase() + "|" + limit;
-        long now = Instant.now().toEpochMilli();
-        CacheEntry cached = cache.get(key);
-        if (cached != null && (now - cached.ts) < ttlMillis) return cached.results;
+    /**
+     * Recherche sans bloquer le thread appelant. En cas d'erreur ou de délai dépassé de l'API,
+     * seules les communes locales sont renvoyées et rien n'est mis en cache (la recherche suivante réessaiera).
+     */
+    public CompletableFuture<List<GeocodeResult>> searchAsync(String q, int limit) {
+        if (q == null || q.trim().length() < 2) return CompletableFuture.completedFuture(List.of());
+        String requete = q.trim();
+        int limite = Math.max(1, Math.min(limit, 8));
+
+        List<GeocodeResult> communes = repertoireCommunes.rechercher(requete, limite);
+        if (communes.size() >= limite) return CompletableFuture.completedFuture(communes);
+
+        return cache.get(cle(requete, limite), (cle, executor) -> appelerApi(requete, limite))
+                .thenApply(resultatsApi -> fusionner(communes, resultatsApi, limite))
+                .exceptionally(e -> communes);
+    }
 
-        try {
-            // Recherche ULTRA RAPIDE sur les communes françaises
-            String url = "https://api-adresse.data.gouv.fr/search/"
-                    + "?q=" + java.net.URLEncoder.encode(q, java.nio.charset.StandardCharsets.UTF_8)
-                    + "&limit=" + Math.max(1, Math.min(limit, 8))
-                    + "&autocomplete=1";
-
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("User-Agent", "PartiKar/1.0 (contact: contact@tonsite.fr)")
-                    .GET()
-                    .build();
-
-            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
-            if (resp.statusCode() != 200) return List.of();
-
-            JsonNode root = mapper.readTree(resp.body());
-            List<GeocodeResult> list = new ArrayList<>();
-
-            for (JsonNode f : root.path("features")) {
-                JsonNode props = f.path("properties");
-                String city = props.path("city").asText(null);
-                String postcode = props.path("postcode").asText(null);
-                String label = props.path("label").asText(null);
-
-                JsonNode geom = f.path("geometry");
-                double lon = geom.path("coordinates").get(0).asDouble(0.0);
-                double lat = geom.path("coordinates").get(1).asDouble(0.0);
-
-                // Comme ton front attend :
-                list.add(new GeocodeResult(label, city, postcode, "France", lat, lon, null));
+    /**
+     * Communes locales d'abord, puis les résultats de l'API qui ne les répètent pas
+     * (même libellé sans accents ni casse, même code postal), dans la limite demandée.
+     */
+    static List<GeocodeResult> fusionner(List<GeocodeResult> communes, List<GeocodeResult> resultatsApi, int limite) {
+        List<GeocodeResult> resultats = new ArrayList<>(communes);
+        Set<String> dejaVus = new HashSet<>();
+        communes.forEach(r -> dejaVus.add(cleResultat(r)));
+        for (GeocodeResult r : resultatsApi) {
+            if (resultats.size() >= limite) break;
+            if (dejaVus.add(cleResultat(r))) {
+                resultats.add(r);
             }
+        }
+        return List.copyOf(resultats);
+    }
+
+    private static String cleResultat(GeocodeResult r) {
+        return RepertoireCommunes.plier(r.getLabel() != null ? r.getLabel() : "") + "|" + r.getPostcode();
+    }
 
-            cache.put(key, new CacheEntry(now, list));
-            return list;
+    private CompletableFuture<List<GeocodeResult>> appelerApi(String q, int limit) {
+        // Recherche ULTRA RAPIDE sur les communes françaises
+        String url = urlApi
+                + "?q=" + URLEncoder.encode(q, StandardCharsets.UTF_8)
+                + "&limit=" + limit
+                + "&autocomplete=1";
+
+        HttpRequest req = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("User-Agent", "PartiKar/1.0 (contact: contact@tonsite.fr)")
+                .timeout(delaiMax)
+                .GET()
+                .build();
+
+        return http.sendAsync(req, HttpResponse.BodyHandlers.ofString())
+                .thenApply(resp -> {
+                    if (resp.statusCode() != 200) {
+                        throw new IllegalStateException("API adresse: HTTP " + resp.statusCode());
+                    }
+                    return lireResultats(resp.body());
+                });
+    }
+
+    private List<GeocodeResult> lireResultats(String corps) {
+        JsonNode root;
+        try {
+            root = mapper.readTree(corps);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<GeocodeResult> list = new ArrayList<>();
 
-        } catch (IOException | InterruptedException e) {
-            return List.of();
+        for (JsonNode f : root.path("features")) {
+            JsonNode props = f.path("properties");
+            String city = props.path("city").asText(null);
+            String postcode = props.path("postcode").asText(null);
+            String label = props.path("label").asText(null);
+
+            JsonNode geom = f.path("geometry");
+            double lon = geom.path("coordinates").get(0).asDouble(0.0);
+            double lat = geom.path("coordinates").get(1).asDouble(0.0);
+
+            // Comme ton front attend :
+            list.add(new GeocodeResult(label, city, postcode, "France", lat, lon, null));
         }
+        return List.copyOf(list);
+    }
+
+    /**
+     * Clé de cache : casse, accents et espaces multiples n'en font pas des recherches différentes
+     * (l'API adresse les ignore aussi), limite effective envoyée à l'API.
+     */
+    static String cle(String q, int limit) {
+        String sansAccents = Normalizer.normalize(q, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return sansAccents.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ") + "|" + limit;
     }
 }
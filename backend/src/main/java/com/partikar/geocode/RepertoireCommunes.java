@@ -0,0 +1,152 @@
+package com.partikar.geocode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Géocodage local des communes françaises (résultats au niveau de la ville, comme PlaceAutocomplete),
+ * sans appel réseau : les communes du fichier configuré sont chargées au démarrage dans un index
+ * trié de clés (nom sans accents, et code postal). Une recherche est une recherche dichotomique
+ * du préfixe, puis les communes les plus peuplées de la plage sont retenues.
+ */
+@Component
+public class RepertoireCommunes {
+
+    private static final Logger logger = LoggerFactory.getLogger(RepertoireCommunes.class);
+
+    record Commune(String nom, String codePostal, double latitude, double longitude, long population) {}
+
+    private static final Comparator<Commune> PAR_POPULATION =
+            Comparator.comparingLong(Commune::population).reversed().thenComparing(Commune::nom);
+
+    // Index trié : cles[i] est la clé de recherche de communes[i]
+    private final String[] cles;
+    private final Commune[] communes;
+
+    @Autowired
+    public RepertoireCommunes(ResourceLoader resourceLoader,
+                              @Value("${app.geocode.local:true}") boolean actif,
+                              @Value("${app.geocode.communes.fichier:classpath:geocode/communes.csv}") String fichier) {
+        this(actif ? charger(resourceLoader.getResource(fichier)) : List.of());
+    }
+
+    RepertoireCommunes(List<Commune> liste) {
+        List<String> clesIndex = new ArrayList<>();
+        List<Commune> communesIndex = new ArrayList<>();
+        for (Commune commune : liste) {
+            clesIndex.add(plier(commune.nom()));
+            communesIndex.add(commune);
+            if (commune.codePostal() != null && !commune.codePostal().isEmpty()) {
+                clesIndex.add(commune.codePostal());
+                communesIndex.add(commune);
+            }
+        }
+        Integer[] ordre = new Integer[clesIndex.size()];
+        Arrays.setAll(ordre, i -> i);
+        Arrays.sort(ordre, Comparator.comparing(clesIndex::get));
+
+        this.cles = new String[ordre.length];
+        this.communes = new Commune[ordre.length];
+        for (int i = 0; i < ordre.length; i++) {
+            cles[i] = clesIndex.get(ordre[i]);
+            communes[i] = communesIndex.get(ordre[i]);
+        }
+    }
+
+    /**
+     * Communes dont le nom (ou le code postal) commence par la recherche, les plus peuplées d'abord.
+     * Liste vide si aucune ne correspond (recherche d'adresse, commune absente du fichier...).
+     */
+    public List<GeocodeResult> rechercher(String q, int limit) {
+        String prefixe = plier(q);
+        if (prefixe.length() < 2 || limit <= 0) return List.of();
+
+        // Tas des "limit" communes les plus peuplées parmi les clés qui commencent par le préfixe
+        PriorityQueue<Commune> meilleures = new PriorityQueue<>(limit + 1, PAR_POPULATION.reversed());
+        for (int i = premierIndex(prefixe); i < cles.length && cles[i].startsWith(prefixe); i++) {
+            Commune commune = communes[i];
+            if (meilleures.contains(commune)) continue; // Déjà retenue par une autre clé
+            meilleures.add(commune);
+            if (meilleures.size() > limit) {
+                meilleures.poll();
+            }
+        }
+
+        List<Commune> retenues = new ArrayList<>(meilleures);
+        retenues.sort(PAR_POPULATION);
+        List<GeocodeResult> resultats = new ArrayList<>(retenues.size());
+        for (Commune c : retenues) {
+            resultats.add(new GeocodeResult(c.nom(), c.nom(), c.codePostal(), "France", c.latitude(), c.longitude(), null));
+        }
+        return resultats;
+    }
+
+    private int premierIndex(String prefixe) {
+        int bas = 0;
+        int haut = cles.length;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (cles[milieu].compareTo(prefixe) < 0) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+
+    /**
+     * Clé de recherche : sans accents ni casse, tirets et apostrophes remplacés par des espaces
+     * ("Saint-Étienne", "saint etienne" et "SAINT ETIENNE" donnent la même clé).
+     */
+    static String plier(String texte) {
+        String sansAccents = Normalizer.normalize(texte, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return sansAccents.toLowerCase(Locale.ROOT)
+                .replaceAll("[-'’]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private static List<Commune> charger(Resource fichier) {
+        List<Commune> liste = new ArrayList<>();
+        try (BufferedReader lecteur = new BufferedReader(new InputStreamReader(fichier.getInputStream(), StandardCharsets.UTF_8))) {
+            String ligne;
+            boolean entete = true;
+            while ((ligne = lecteur.readLine()) != null) {
+                if (ligne.isBlank() || ligne.startsWith("#")) continue;
+                if (entete) { // Première ligne non commentée : noms des colonnes
+                    entete = false;
+                    continue;
+                }
+                String[] colonnes = ligne.split(";");
+                if (colonnes.length < 5) continue;
+                liste.add(new Commune(colonnes[0].trim(), colonnes[1].trim(),
+                        Double.parseDouble(colonnes[2].trim()), Double.parseDouble(colonnes[3].trim()),
+                        Long.parseLong(colonnes[4].trim())));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Sans répertoire local, toutes les recherches passent par l'API adresse
+            logger.warn("Répertoire des communes non chargé ({}): {}", fichier, e.getMessage());
+            return List.of();
+        }
+        logger.info("Répertoire des communes chargé: {} communes", liste.size());
+        return liste;
+    }
+}
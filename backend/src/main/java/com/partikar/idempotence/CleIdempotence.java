@@ -0,0 +1,81 @@
+package com.partikar.idempotence;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Clé d'idempotence (en-tête Idempotency-Key) d'un appel qui modifie des réservations ou des crédits,
+ * avec la réponse renvoyée la première fois. Une clé est propre à un utilisateur.
+ */
+@Entity
+@Table(name = "cles_idempotence", indexes = {
+        // Une seule exécution par (utilisateur, clé), même pour deux requêtes simultanées
+        @Index(name = "uk_cles_idempotence_utilisateur_cle", columnList = "utilisateur, cle", unique = true),
+        // Purge des clés expirées
+        @Index(name = "idx_cles_idempotence_cree_le", columnList = "cree_le")
+})
+public class CleIdempotence {
+
+    public static final int TAILLE_MAX_CLE = 100;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "utilisateur", nullable = false)
+    private String utilisateur; // Email de l'utilisateur authentifié
+
+    @Column(name = "cle", nullable = false, length = CleIdempotence.TAILLE_MAX_CLE)
+    private String cle;
+
+    @Column(name = "operation", nullable = false, length = 100)
+    private String operation; // Ex: "POST /api/locations"
+
+    @Column(name = "empreinte_requete", length = 64)
+    private String empreinteRequete; // SHA-256 du corps de la requête (hexadécimal), null sans corps
+
+    @Column(name = "statut_http")
+    private Integer statutHttp; // null tant que l'appel est en cours
+
+    @Column(name = "reponse", columnDefinition = "TEXT")
+    private String reponse; // Corps JSON de la réponse, null si vide
+
+    @CreationTimestamp
+    @Column(name = "cree_le", nullable = false, updatable = false)
+    private LocalDateTime creeLe;
+
+    public CleIdempotence() {}
+
+    public CleIdempotence(String utilisateur, String cle, String operation, String empreinteRequete) {
+        this.utilisateur = utilisateur;
+        this.cle = cle;
+        this.operation = operation;
+        this.empreinteRequete = empreinteRequete;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUtilisateur() { return utilisateur; }
+    public void setUtilisateur(String utilisateur) { this.utilisateur = utilisateur; }
+
+    public String getCle() { return cle; }
+    public void setCle(String cle) { this.cle = cle; }
+
+    public String getOperation() { return operation; }
+    public void setOperation(String operation) { this.operation = operation; }
+
+    public String getEmpreinteRequete() { return empreinteRequete; }
+    public void setEmpreinteRequete(String empreinteRequete) { this.empreinteRequete = empreinteRequete; }
+
+    public Integer getStatutHttp() { return statutHttp; }
+    public void setStatutHttp(Integer statutHttp) { this.statutHttp = statutHttp; }
+
+    public String getReponse() { return reponse; }
+    public void setReponse(String reponse) { this.reponse = reponse; }
+
+    public LocalDateTime getCreeLe() { return creeLe; }
+    public void setCreeLe(LocalDateTime creeLe) { this.creeLe = creeLe; }
+}
@@ -0,0 +1,40 @@
+package com.partikar.idempotence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface CleIdempotenceRepository extends JpaRepository<CleIdempotence, Long> {
+
+    Optional<CleIdempotence> findByUtilisateurAndCle(String utilisateur, String cle);
+
+    // Réponse de l'appel, si la réservation de la clé n'a pas été reprise entre-temps (0 ligne sinon)
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update CleIdempotence c set c.statutHttp = :statutHttp, c.reponse = :reponse " +
+           "where c.id = :id and c.statutHttp is null")
+    int enregistrerReponse(@Param("id") Long id,
+                           @Param("statutHttp") Integer statutHttp,
+                           @Param("reponse") String reponse);
+
+    // Libère une réservation encore en cours (appel en erreur)
+    @Modifying
+    @Transactional
+    @Query("delete from CleIdempotence c where c.id = :id and c.statutHttp is null")
+    int liberer(@Param("id") Long id);
+
+    // Supprime une réservation restée en cours au-delà du délai (nœud arrêté pendant l'appel)
+    @Modifying
+    @Transactional
+    @Query("delete from CleIdempotence c where c.id = :id and c.statutHttp is null and c.creeLe < :limite")
+    int supprimerReservationAbandonnee(@Param("id") Long id, @Param("limite") LocalDateTime limite);
+
+    @Modifying
+    @Query("delete from CleIdempotence c where c.creeLe < :limite")
+    int supprimerCreeesAvant(@Param("limite") LocalDateTime limite);
+}
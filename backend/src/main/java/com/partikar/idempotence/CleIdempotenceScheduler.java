@@ -0,0 +1,50 @@
+package com.partikar.idempotence;
+
+import com.partikar.planification.CoordinateurTaches;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Service planifié qui supprime les clés d'idempotence plus anciennes que leur durée de validité.
+ */
+@Service
+public class CleIdempotenceScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CleIdempotenceScheduler.class);
+
+    private static final String TACHE = "purge-cles-idempotence";
+    private static final Duration BAIL = Duration.ofMinutes(50);
+
+    private final CleIdempotenceRepository cleIdempotenceRepository;
+    private final CoordinateurTaches coordinateurTaches;
+
+    /** Durée pendant laquelle une requête peut être rejouée avec la même clé */
+    @Value("${app.idempotence.ttl-heures:24}")
+    private long ttlHeures;
+
+    public CleIdempotenceScheduler(CleIdempotenceRepository cleIdempotenceRepository,
+                                   CoordinateurTaches coordinateurTaches) {
+        this.cleIdempotenceRepository = cleIdempotenceRepository;
+        this.coordinateurTaches = coordinateurTaches;
+    }
+
+    /**
+     * Tâche planifiée qui s'exécute toutes les heures (à hh:45).
+     */
+    @Scheduled(cron = "0 45 * * * *") // Toutes les heures à hh:45
+    @Transactional
+    public void purgerClesExpirees() {
+        if (!coordinateurTaches.acquerir(TACHE, BAIL)) {
+            return; // Exécutée par un autre nœud
+        }
+        int nbSupprimees = cleIdempotenceRepository.supprimerCreeesAvant(LocalDateTime.now().minusHours(ttlHeures));
+        logger.info("Clés d'idempotence expirées supprimées: {}", nbSupprimees);
+    }
+}
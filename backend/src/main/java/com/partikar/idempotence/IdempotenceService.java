@@ -0,0 +1,173 @@
+package com.partikar.idempotence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Exécute au plus une fois un appel portant un en-tête Idempotency-Key.
+ * La clé est enregistrée (index unique) avant l'appel : une requête rejouée reçoit la réponse stockée
+ * sans refaire de validation, de lecture du calendrier ni d'écriture de transaction ;
+ * une requête concurrente avec la même clé reçoit 409 tant que la première n'est pas terminée.
+ * La clé est liée à l'opération et à l'empreinte du corps de la requête : réutilisée pour une autre
+ * requête, elle est refusée (422). Une clé restée en cours au-delà du délai (nœud arrêté pendant l'appel)
+ * peut être reprise par une nouvelle requête.
+ */
+@Service
+public class IdempotenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotenceService.class);
+
+    public static final String ENTETE_CLE = "Idempotency-Key";
+    public static final String ENTETE_REJOUEE = "Idempotent-Replayed";
+
+    private final CleIdempotenceRepository cleIdempotenceRepository;
+    private final ObjectMapper objectMapper;
+
+    /** Durée au-delà de laquelle une clé sans réponse est considérée comme abandonnée */
+    @Value("${app.idempotence.en-cours-delai-secondes:120}")
+    private long delaiEnCoursSecondes;
+
+    public IdempotenceService(CleIdempotenceRepository cleIdempotenceRepository, ObjectMapper objectMapper) {
+        this.cleIdempotenceRepository = cleIdempotenceRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Exécute un appel sans corps de requête une seule fois pour la clé donnée.
+     *
+     * @see #executer(String, String, Object, Supplier)
+     */
+    public ResponseEntity<?> executer(String cle, String operation, Supplier<ResponseEntity<?>> appel) {
+        return executer(cle, operation, null, appel);
+    }
+
+    /**
+     * Exécute l'appel une seule fois pour la clé donnée, ou renvoie la réponse déjà enregistrée.
+     * Sans clé (ou sans utilisateur authentifié), l'appel est simplement exécuté.
+     *
+     * @param cle valeur de l'en-tête Idempotency-Key (peut être null)
+     * @param operation identifiant de l'endpoint, ex: "POST /api/locations"
+     * @param corps corps de la requête (null si aucun), comparé lors d'un rejeu
+     */
+    public ResponseEntity<?> executer(String cle, String operation, Object corps, Supplier<ResponseEntity<?>> appel) {
+        if (cle == null || cle.isBlank()) {
+            return appel.get();
+        }
+        if (cle.length() > CleIdempotence.TAILLE_MAX_CLE) {
+            return erreur(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key trop longue (maximum " + CleIdempotence.TAILLE_MAX_CLE + " caractères)");
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth.getName() == null) {
+            return appel.get();
+        }
+        String utilisateur = auth.getName();
+        String empreinte = empreinte(corps);
+
+        // Cas le plus fréquent d'un rejeu : la clé existe déjà
+        Optional<CleIdempotence> existante = cleIdempotenceRepository.findByUtilisateurAndCle(utilisateur, cle);
+        if (existante.isPresent() && !estAbandonnee(existante.get())) {
+            return rejouer(existante.get(), operation, empreinte);
+        }
+
+        // Réserver la clé (commit immédiat) : l'index unique départage deux requêtes simultanées
+        CleIdempotence reservation;
+        try {
+            reservation = cleIdempotenceRepository.saveAndFlush(new CleIdempotence(utilisateur, cle, operation, empreinte));
+        } catch (DataIntegrityViolationException e) {
+            // Clé insérée entre-temps par une requête concurrente
+            existante = cleIdempotenceRepository.findByUtilisateurAndCle(utilisateur, cle);
+            return existante.isPresent()
+                    ? rejouer(existante.get(), operation, empreinte)
+                    : erreur(HttpStatus.CONFLICT, "Requête déjà en cours de traitement");
+        }
+
+        ResponseEntity<?> reponse;
+        try {
+            reponse = appel.get();
+        } catch (RuntimeException e) {
+            // Aucune réponse à rejouer : libérer la clé pour permettre un nouvel essai
+            cleIdempotenceRepository.liberer(reservation.getId());
+            throw e;
+        }
+
+        try {
+            String corpsReponse = reponse.getBody() != null ? objectMapper.writeValueAsString(reponse.getBody()) : null;
+            if (cleIdempotenceRepository.enregistrerReponse(reservation.getId(), reponse.getStatusCode().value(), corpsReponse) == 0) {
+                logger.warn("Clé d'idempotence {} reprise par une autre requête pendant l'appel (délai dépassé)", cle);
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.error("Impossible d'enregistrer la réponse pour la clé d'idempotence {}: {}", cle, e.getMessage());
+            cleIdempotenceRepository.liberer(reservation.getId());
+        }
+        return reponse;
+    }
+
+    /**
+     * true si la clé est restée sans réponse au-delà du délai et vient d'être supprimée pour être reprise.
+     */
+    private boolean estAbandonnee(CleIdempotence cle) {
+        if (cle.getStatutHttp() != null) {
+            return false;
+        }
+        LocalDateTime limite = LocalDateTime.now().minusSeconds(delaiEnCoursSecondes);
+        return cle.getCreeLe().isBefore(limite)
+                && cleIdempotenceRepository.supprimerReservationAbandonnee(cle.getId(), limite) == 1;
+    }
+
+    private ResponseEntity<?> rejouer(CleIdempotence cle, String operation, String empreinte) {
+        if (!cle.getOperation().equals(operation)) {
+            return erreur(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key déjà utilisée pour une autre opération");
+        }
+        // Clés enregistrées avant l'empreinte : pas de comparaison possible
+        if (cle.getEmpreinteRequete() != null && !cle.getEmpreinteRequete().equals(empreinte)) {
+            return erreur(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key déjà utilisée avec une autre requête");
+        }
+        if (cle.getStatutHttp() == null) {
+            return erreur(HttpStatus.CONFLICT, "Requête déjà en cours de traitement");
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(cle.getStatutHttp()).header(ENTETE_REJOUEE, "true");
+        if (cle.getReponse() == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).body(cle.getReponse());
+    }
+
+    /**
+     * SHA-256 (hexadécimal) du corps de la requête sérialisé en JSON, null sans corps.
+     */
+    private String empreinte(Object corps) {
+        if (corps == null) {
+            return null;
+        }
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(corps)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Impossible de calculer l'empreinte de la requête", e);
+        }
+    }
+
+    private ResponseEntity<?> erreur(HttpStatus statut, String message) {
+        return ResponseEntity.status(statut).body(Map.of("message", message));
+    }
+}
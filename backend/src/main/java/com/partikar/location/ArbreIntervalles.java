@@ -0,0 +1,186 @@
+package com.partikar.location;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Arbre d'intervalles augmenté (AVL trié par date de début, chaque nœud portant la plus grande
+ * date de fin de son sous-arbre) des demandes EN_ATTENTE d'une voiture.
+ * Ajout/retrait en O(log n), recherche des demandes qui chevauchent une période en O(log n + k).
+ * Non thread-safe : les accès sont synchronisés par {@link DemandesEnAttenteIndex}.
+ */
+class ArbreIntervalles {
+
+    private static final class Noeud {
+        final long debut; // jours depuis l'époque
+        final long fin;
+        final long id;
+        long finMax;
+        int hauteur = 1;
+        Noeud gauche;
+        Noeud droite;
+
+        Noeud(long debut, long fin, long id) {
+            this.debut = debut;
+            this.fin = fin;
+            this.id = id;
+            this.finMax = fin;
+        }
+    }
+
+    private Noeud racine;
+    // Date de début de chaque demande présente : permet de retrouver son nœud à partir de l'ID
+    private final Map<Long, Long> debutParId = new HashMap<>();
+
+    void ajouter(Long id, LocalDate debut, LocalDate fin) {
+        retirer(id);
+        racine = inserer(racine, new Noeud(debut.toEpochDay(), fin.toEpochDay(), id));
+        debutParId.put(id, debut.toEpochDay());
+    }
+
+    void retirer(Long id) {
+        Long debut = debutParId.remove(id);
+        if (debut != null) {
+            racine = supprimer(racine, debut, id);
+        }
+    }
+
+    int taille() {
+        return debutParId.size();
+    }
+
+    List<Long> ids() {
+        return List.copyOf(debutParId.keySet());
+    }
+
+    /**
+     * IDs des demandes dont la période [debut, fin] (bornes incluses) chevauche celle donnée,
+     * triés par date de début, sans la demande idExclu.
+     */
+    List<Long> chevauchements(LocalDate debut, LocalDate fin, Long idExclu) {
+        List<Long> resultat = new ArrayList<>();
+        chercher(racine, debut.toEpochDay(), fin.toEpochDay(), idExclu == null ? -1 : idExclu, resultat);
+        return resultat;
+    }
+
+    private void chercher(Noeud noeud, long debut, long fin, long idExclu, List<Long> resultat) {
+        // Aucun intervalle du sous-arbre ne finit après le début recherché
+        if (noeud == null || noeud.finMax < debut) {
+            return;
+        }
+        chercher(noeud.gauche, debut, fin, idExclu, resultat);
+        // Ce nœud et tout le sous-arbre droit commencent après la fin recherchée
+        if (noeud.debut > fin) {
+            return;
+        }
+        if (noeud.fin >= debut && noeud.id != idExclu) {
+            resultat.add(noeud.id);
+        }
+        chercher(noeud.droite, debut, fin, idExclu, resultat);
+    }
+
+    private static int comparer(long debut, long id, Noeud noeud) {
+        int c = Long.compare(debut, noeud.debut);
+        return c != 0 ? c : Long.compare(id, noeud.id);
+    }
+
+    private static Noeud inserer(Noeud noeud, Noeud nouveau) {
+        if (noeud == null) {
+            return nouveau;
+        }
+        if (comparer(nouveau.debut, nouveau.id, noeud) < 0) {
+            noeud.gauche = inserer(noeud.gauche, nouveau);
+        } else {
+            noeud.droite = inserer(noeud.droite, nouveau);
+        }
+        return equilibrer(noeud);
+    }
+
+    private static Noeud supprimer(Noeud noeud, long debut, long id) {
+        if (noeud == null) {
+            return null;
+        }
+        int c = comparer(debut, id, noeud);
+        if (c < 0) {
+            noeud.gauche = supprimer(noeud.gauche, debut, id);
+        } else if (c > 0) {
+            noeud.droite = supprimer(noeud.droite, debut, id);
+        } else {
+            if (noeud.gauche == null) {
+                return noeud.droite;
+            }
+            if (noeud.droite == null) {
+                return noeud.gauche;
+            }
+            // Remplacer par le successeur (plus petit nœud du sous-arbre droit)
+            Noeud successeur = noeud.droite;
+            while (successeur.gauche != null) {
+                successeur = successeur.gauche;
+            }
+            successeur.droite = supprimerMin(noeud.droite);
+            successeur.gauche = noeud.gauche;
+            noeud = successeur;
+        }
+        return equilibrer(noeud);
+    }
+
+    private static Noeud supprimerMin(Noeud noeud) {
+        if (noeud.gauche == null) {
+            return noeud.droite;
+        }
+        noeud.gauche = supprimerMin(noeud.gauche);
+        return equilibrer(noeud);
+    }
+
+    private static Noeud equilibrer(Noeud noeud) {
+        mettreAJour(noeud);
+        int facteur = hauteur(noeud.gauche) - hauteur(noeud.droite);
+        if (facteur > 1) {
+            if (hauteur(noeud.gauche.gauche) < hauteur(noeud.gauche.droite)) {
+                noeud.gauche = rotationGauche(noeud.gauche);
+            }
+            return rotationDroite(noeud);
+        }
+        if (facteur < -1) {
+            if (hauteur(noeud.droite.droite) < hauteur(noeud.droite.gauche)) {
+                noeud.droite = rotationDroite(noeud.droite);
+            }
+            return rotationGauche(noeud);
+        }
+        return noeud;
+    }
+
+    private static Noeud rotationDroite(Noeud noeud) {
+        Noeud pivot = noeud.gauche;
+        noeud.gauche = pivot.droite;
+        pivot.droite = noeud;
+        mettreAJour(noeud);
+        mettreAJour(pivot);
+        return pivot;
+    }
+
+    private static Noeud rotationGauche(Noeud noeud) {
+        Noeud pivot = noeud.droite;
+        noeud.droite = pivot.gauche;
+        pivot.gauche = noeud;
+        mettreAJour(noeud);
+        mettreAJour(pivot);
+        return pivot;
+    }
+
+    private static void mettreAJour(Noeud noeud) {
+        noeud.hauteur = 1 + Math.max(hauteur(noeud.gauche), hauteur(noeud.droite));
+        noeud.finMax = Math.max(noeud.fin, Math.max(finMax(noeud.gauche), finMax(noeud.droite)));
+    }
+
+    private static int hauteur(Noeud noeud) {
+        return noeud == null ? 0 : noeud.hauteur;
+    }
+
+    private static long finMax(Noeud noeud) {
+        return noeud == null ? Long.MIN_VALUE : noeud.finMax;
+    }
+}
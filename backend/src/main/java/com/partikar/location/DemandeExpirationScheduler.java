@@ -0,0 +1,76 @@
+package com.partikar.location;
+
+import com.partikar.email.EmailService;
+import com.partikar.planification.CoordinateurTaches;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Service planifié qui annule automatiquement les demandes de réservation restées EN_ATTENTE :
+ * date de début dépassée, ou demande plus ancienne que la durée de validité configurée.
+ * Les demandes sont traitées par lots (une transaction par lot) et les crédits suspendus
+ * sont libérés dans le même lot.
+ */
+@Service
+public class DemandeExpirationScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DemandeExpirationScheduler.class);
+
+    private static final String TACHE = "expiration-demandes";
+    private static final Duration BAIL = Duration.ofMinutes(50);
+
+    private final LocationService locationService;
+    private final EmailService emailService;
+    private final CoordinateurTaches coordinateurTaches;
+
+    /** Durée de validité d'une demande sans réponse du propriétaire */
+    @Value("${app.locations.demande-ttl-heures:168}")
+    private long ttlHeures;
+
+    /** Nombre de demandes annulées par transaction */
+    @Value("${app.locations.expiration.taille-lot:500}")
+    private int tailleLot;
+
+    public DemandeExpirationScheduler(LocationService locationService, EmailService emailService,
+                                      CoordinateurTaches coordinateurTaches) {
+        this.locationService = locationService;
+        this.emailService = emailService;
+        this.coordinateurTaches = coordinateurTaches;
+    }
+
+    /**
+     * Tâche planifiée qui s'exécute toutes les heures (à hh:15)
+     * pour annuler les demandes EN_ATTENTE expirées.
+     */
+    @Scheduled(cron = "0 15 * * * *") // Toutes les heures à hh:15
+    public void expirerDemandesEnAttente() {
+        if (!coordinateurTaches.acquerir(TACHE, BAIL)) {
+            return; // Exécutée par un autre nœud
+        }
+        logger.info("=== Expiration des demandes EN_ATTENTE ===");
+
+        LocalDate aujourdhui = LocalDate.now();
+        LocalDateTime limiteCreation = LocalDateTime.now().minusHours(ttlHeures);
+
+        int nbAnnulees = 0;
+        List<Long> lot;
+        do {
+            lot = locationService.expirerLotDemandesEnAttente(aujourdhui, limiteCreation, tailleLot);
+            if (!lot.isEmpty()) {
+                nbAnnulees += lot.size();
+                // Un seul envoi asynchrone par lot, après le commit du lot
+                emailService.envoyerNotificationsDemandesExpirees(lot);
+            }
+        } while (lot.size() == tailleLot);
+
+        logger.info("=== Expiration terminée : {} demandes annulées ===", nbAnnulees);
+    }
+}
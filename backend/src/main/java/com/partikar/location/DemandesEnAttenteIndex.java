@@ -0,0 +1,200 @@
+package com.partikar.location;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index en mémoire des demandes EN_ATTENTE, un {@link ArbreIntervalles} par voiture.
+ * Sert à indiquer au propriétaire quelles autres demandes chevauchent une demande
+ * (celles qui seraient annulées automatiquement s'il l'accepte).
+ *
+ * L'arbre d'une voiture est chargé depuis la base au premier besoin, puis tenu à jour
+ * après le commit des créations, acceptations et annulations faites sur ce nœud.
+ * Les changements faits par les autres nœuds (dont l'expiration des demandes) n'y arrivent pas :
+ * chaque arbre est relu en base au plus tard ttl-secondes après son chargement, et le nombre
+ * de voitures indexées est borné (les moins utilisées sont évincées).
+ */
+@Component
+public class DemandesEnAttenteIndex {
+
+    private final LocationRepository locationRepository;
+
+    private final Cache<Long, ArbreIntervalles> arbresParVoiture;
+    // Voiture de chaque demande indexée (les annulations en masse ne connaissent que les IDs)
+    private final Map<Long, Long> voitureParDemande = new ConcurrentHashMap<>();
+    // Incrémenté à chaque modification : un chargement en lot concurrent d'une modification n'est pas gardé
+    private final AtomicLong generation = new AtomicLong();
+
+    public DemandesEnAttenteIndex(LocationRepository locationRepository,
+                                  @Value("${app.locations.index-demandes.ttl-secondes:30}") long ttlSecondes,
+                                  @Value("${app.locations.index-demandes.taille-max:10000}") long tailleMax) {
+        this.locationRepository = locationRepository;
+        long ttlNanos = Duration.ofSeconds(ttlSecondes).toNanos();
+        this.arbresParVoiture = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                // Durée comptée depuis le chargement : les mises à jour locales ne prolongent pas l'arbre
+                .expireAfter(new Expiry<Long, ArbreIntervalles>() {
+                    @Override
+                    public long expireAfterCreate(Long voitureId, ArbreIntervalles arbre, long maintenant) {
+                        return ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long voitureId, ArbreIntervalles arbre, long maintenant, long dureeRestante) {
+                        return dureeRestante;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long voitureId, ArbreIntervalles arbre, long maintenant, long dureeRestante) {
+                        return dureeRestante;
+                    }
+                })
+                .executor(Runnable::run)
+                .removalListener((Long voitureId, ArbreIntervalles arbre, RemovalCause cause) -> {
+                    if (voitureId != null && arbre != null && cause != RemovalCause.REPLACED) {
+                        oublier(voitureId, arbre);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Charge en une seule requête les arbres des voitures qui ne sont pas encore indexées.
+     */
+    public void precharger(Collection<Long> voitureIds) {
+        List<Long> manquantes = voitureIds.stream().distinct()
+                .filter(id -> arbresParVoiture.getIfPresent(id) == null)
+                .toList();
+        if (manquantes.isEmpty()) {
+            return;
+        }
+
+        long generationLecture = generation.get();
+        Map<Long, ArbreIntervalles> nouveaux = new HashMap<>();
+        manquantes.forEach(id -> nouveaux.put(id, new ArbreIntervalles()));
+        for (Location demande : locationRepository.findByVoitureIdInAndStatut(manquantes, "EN_ATTENTE")) {
+            nouveaux.get(demande.getVoiture().getId()).ajouter(demande.getId(), demande.getDateDebut(), demande.getDateFin());
+        }
+        nouveaux.forEach((voitureId, arbre) -> {
+            indexer(voitureId, arbre);
+            arbresParVoiture.asMap().putIfAbsent(voitureId, arbre);
+        });
+
+        // Une modification commitée pendant la lecture a pu être manquée (et ne pas trouver l'arbre à mettre à jour) :
+        // les arbres de ce lot sont retirés, conflits() rechargera chaque voiture seule
+        if (generation.get() != generationLecture) {
+            nouveaux.forEach((voitureId, arbre) -> arbresParVoiture.asMap().remove(voitureId, arbre));
+        }
+    }
+
+    /**
+     * IDs des autres demandes EN_ATTENTE de la voiture qui chevauchent la période donnée.
+     */
+    public List<Long> conflits(Long voitureId, Long locationId, LocalDate dateDebut, LocalDate dateFin) {
+        // Chargement atomique : une modification de cette voiture attend la fin de la lecture puis s'y applique
+        ArbreIntervalles arbre = arbresParVoiture.get(voitureId, this::charger);
+        synchronized (arbre) {
+            return arbre.chevauchements(dateDebut, dateFin, locationId);
+        }
+    }
+
+    /**
+     * Indexe une nouvelle demande EN_ATTENTE (après le commit de la transaction en cours).
+     */
+    public void ajouter(Location demande) {
+        Long id = demande.getId();
+        Long voitureId = demande.getVoiture().getId();
+        LocalDate dateDebut = demande.getDateDebut();
+        LocalDate dateFin = demande.getDateFin();
+        apresCommit(() -> {
+            generation.incrementAndGet();
+            // Voiture pas encore indexée : la demande sera lue en base au premier chargement
+            arbresParVoiture.asMap().computeIfPresent(voitureId, (v, arbre) -> {
+                synchronized (arbre) {
+                    arbre.ajouter(id, dateDebut, dateFin);
+                }
+                voitureParDemande.put(id, voitureId);
+                return arbre;
+            });
+        });
+    }
+
+    /**
+     * Retire des demandes qui ne sont plus EN_ATTENTE (après le commit de la transaction en cours).
+     */
+    public void retirer(Collection<Long> demandeIds) {
+        List<Long> ids = List.copyOf(demandeIds);
+        apresCommit(() -> {
+            generation.incrementAndGet();
+            for (Long id : ids) {
+                Long voitureId = voitureParDemande.remove(id);
+                if (voitureId == null) {
+                    continue;
+                }
+                arbresParVoiture.asMap().computeIfPresent(voitureId, (v, arbre) -> {
+                    synchronized (arbre) {
+                        arbre.retirer(id);
+                    }
+                    return arbre;
+                });
+            }
+        });
+    }
+
+    public void retirer(Long demandeId) {
+        retirer(List.of(demandeId));
+    }
+
+    private ArbreIntervalles charger(Long voitureId) {
+        ArbreIntervalles arbre = new ArbreIntervalles();
+        for (Location demande : locationRepository.findByVoitureIdAndStatut(voitureId, "EN_ATTENTE")) {
+            arbre.ajouter(demande.getId(), demande.getDateDebut(), demande.getDateFin());
+        }
+        indexer(voitureId, arbre);
+        return arbre;
+    }
+
+    private void indexer(Long voitureId, ArbreIntervalles arbre) {
+        arbre.ids().forEach(id -> voitureParDemande.put(id, voitureId));
+    }
+
+    // Arbre expiré ou évincé : ses demandes ne sont plus à suivre (sauf si un arbre plus récent les a reprises)
+    private void oublier(Long voitureId, ArbreIntervalles arbre) {
+        if (arbresParVoiture.getIfPresent(voitureId) != null) {
+            return;
+        }
+        List<Long> ids;
+        synchronized (arbre) {
+            ids = arbre.ids();
+        }
+        ids.forEach(id -> voitureParDemande.remove(id, voitureId));
+    }
+
+    private void apresCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -15,10 +15,33 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "locations")
+@Table(name = "locations", indexes = {
+        // Boîte de réception propriétaire : demandes d'une voiture filtrées par statut
+        @Index(name = "idx_locations_voiture_statut", columnList = "voiture_id, statut"),
+        // Réservations du locataire par statut (en cours / passées) : pagination par curseur (creeLe, id)
+        @Index(name = "idx_locations_locataire_statut_cree_le", columnList = "locataire_id, statut, cree_le, id"),
+        // Historique du locataire : pagination par curseur (creeLe, id)
+        @Index(name = "idx_locations_locataire_cree_le", columnList = "locataire_id, cree_le, id"),
+        // Expiration des demandes EN_ATTENTE (date de début dépassée ou demande trop ancienne)
+        @Index(name = "idx_locations_statut_date_debut", columnList = "statut, date_debut"),
+        @Index(name = "idx_locations_statut_cree_le", columnList = "statut, cree_le"),
+        // Passage automatique des réservations CONFIRMEE terminées en TERMINEE
+        @Index(name = "idx_locations_statut_date_fin", columnList = "statut, date_fin")
+})
 @EntityListeners(AuditingEntityListener.class)
+@NamedEntityGraph(
+        // Tout ce que lit la conversion en LocationResponse (et les emails) : voiture, propriétaire, locataire
+        name = Location.GRAPHE_DETAILS,
+        attributeNodes = {
+                @NamedAttributeNode(value = "voiture", subgraph = "voiture"),
+                @NamedAttributeNode("locataire")
+        },
+        subgraphs = @NamedSubgraph(name = "voiture", attributeNodes = @NamedAttributeNode("proprietaire"))
+)
 public class Location {
 
+    public static final String GRAPHE_DETAILS = "Location.details";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
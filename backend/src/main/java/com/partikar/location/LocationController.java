@@ -1,9 +1,12 @@
 package com.partikar.location;
 
+import com.partikar.idempotence.IdempotenceService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -15,11 +18,20 @@ import java.util.List;
 public class LocationController {
 
     private final LocationService locationService;
+    private final LotReservationService lotReservationService;
+    private final IdempotenceService idempotenceService;
 
-    public LocationController(LocationService locationService) {
+    public LocationController(LocationService locationService,
+                              LotReservationService lotReservationService,
+                              IdempotenceService idempotenceService) {
         this.locationService = locationService;
+        this.lotReservationService = lotReservationService;
+        this.idempotenceService = idempotenceService;
     }
 
+    // Avec une Idempotency-Key, seuls les refus métier (ReservationRefuseeException) sont enregistrés
+    // et rejoués : une erreur technique remonte (GlobalExceptionHandler) et libère la clé pour un nouvel essai.
+
     /**
      * Crée une nouvelle réservation de voiture.
      * POST /api/locations
@@ -34,13 +46,16 @@ public class LocationController {
      * }
      */
     @PostMapping
-    public ResponseEntity<?> creerLocation(@RequestBody CreerLocationRequest request) {
-        try {
-            LocationResponse response = locationService.creerLocation(request);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
-        }
+    public ResponseEntity<?> creerLocation(@RequestBody CreerLocationRequest request,
+                                           @RequestHeader(value = IdempotenceService.ENTETE_CLE, required = false) String cleIdempotence) {
+        return idempotenceService.executer(cleIdempotence, "POST /api/locations", request, () -> {
+            try {
+                LocationResponse response = locationService.creerLocation(request);
+                return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            } catch (ReservationRefuseeException e) {
+                return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+            }
+        });
     }
 
     /**
@@ -55,13 +70,15 @@ public class LocationController {
 
     /**
      * Récupère les demandes de réservation en attente pour un propriétaire.
-     * GET /api/locations/proprietaire/en-attente
+     * GET /api/locations/proprietaire/en-attente?page=0&taille=50
      * IMPORTANT: Doit être AVANT /proprietaire/{proprietaireId} pour éviter les conflits
      */
     @GetMapping("/proprietaire/en-attente")
-    public ResponseEntity<?> getDemandesEnAttente() {
+    public ResponseEntity<?> getDemandesEnAttente(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int taille) {
         try {
-            List<LocationResponse> demandes = locationService.getDemandesEnAttenteProprietaire();
+            List<LocationResponse> demandes = locationService.getDemandesEnAttenteProprietaire(page, taille);
             return ResponseEntity.ok(demandes);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -70,13 +87,18 @@ public class LocationController {
     }
 
     /**
-     * Récupère toutes les demandes de réservation du locataire authentifié.
-     * GET /api/locations/mes-demandes
+     * Récupère les demandes de réservation du locataire authentifié (plus récentes d'abord).
+     * GET /api/locations/mes-demandes?statut=EN_ATTENTE&taille=50
+     * Page suivante : apresCreeLe et apresId = creeLe et locationId du dernier élément reçu.
      */
     @GetMapping("/mes-demandes")
-    public ResponseEntity<?> getMesDemandesReservation() {
+    public ResponseEntity<?> getMesDemandesReservation(
+            @RequestParam(required = false) List<String> statut,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime apresCreeLe,
+            @RequestParam(required = false) Long apresId,
+            @RequestParam(defaultValue = "50") int taille) {
         try {
-            List<LocationResponse> demandes = locationService.getMesDemandesReservation();
+            List<LocationResponse> demandes = locationService.getMesDemandesReservation(statut, apresCreeLe, apresId, taille);
             return ResponseEntity.ok(demandes);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -131,13 +153,16 @@ public class LocationController {
      * POST /api/locations/1/valider
      */
     @PostMapping("/{locationId}/valider")
-    public ResponseEntity<?> validerReservation(@PathVariable Long locationId) {
-        try {
-            locationService.validerReservation(locationId);
-            return ResponseEntity.ok().build();
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
-        }
+    public ResponseEntity<?> validerReservation(@PathVariable Long locationId,
+            @RequestHeader(value = IdempotenceService.ENTETE_CLE, required = false) String cleIdempotence) {
+        return idempotenceService.executer(cleIdempotence, "POST /api/locations/" + locationId + "/valider", () -> {
+            try {
+                locationService.validerReservation(locationId);
+                return ResponseEntity.ok().build();
+            } catch (ReservationRefuseeException e) {
+                return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+            }
+        });
     }
 
     /**
@@ -145,13 +170,41 @@ public class LocationController {
      * POST /api/locations/1/annuler
      */
     @PostMapping("/{locationId}/annuler")
-    public ResponseEntity<?> annulerReservation(@PathVariable Long locationId) {
-        try {
-            locationService.annulerReservationProprietaire(locationId);
-            return ResponseEntity.ok().build();
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
-        }
+    public ResponseEntity<?> annulerReservation(@PathVariable Long locationId,
+            @RequestHeader(value = IdempotenceService.ENTETE_CLE, required = false) String cleIdempotence) {
+        return idempotenceService.executer(cleIdempotence, "POST /api/locations/" + locationId + "/annuler", () -> {
+            try {
+                locationService.annulerReservationProprietaire(locationId);
+                return ResponseEntity.ok().build();
+            } catch (ReservationRefuseeException e) {
+                return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Accepte et/ou refuse plusieurs demandes de réservation du propriétaire authentifié.
+     * POST /api/locations/batch
+     *
+     * Exemple de payload JSON (200 opérations maximum):
+     * [
+     *   { "locationId": 1, "action": "VALIDER" },
+     *   { "locationId": 2, "action": "REFUSER" }
+     * ]
+     *
+     * Réponse : un résultat par opération ({ locationId, action, succes, message }), dans l'ordre reçu.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> traiterLot(@RequestBody List<OperationLotRequest> operations,
+                                        @RequestHeader(value = IdempotenceService.ENTETE_CLE, required = false) String cleIdempotence) {
+        return idempotenceService.executer(cleIdempotence, "POST /api/locations/batch", operations, () -> {
+            try {
+                List<ResultatOperationResponse> resultats = lotReservationService.traiterLot(operations);
+                return ResponseEntity.ok(resultats);
+            } catch (ReservationRefuseeException e) {
+                return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+            }
+        });
     }
 
     /**
@@ -159,24 +212,35 @@ public class LocationController {
      * POST /api/locations/1/annuler-locataire
      */
     @PostMapping("/{locationId}/annuler-locataire")
-    public ResponseEntity<?> annulerDemandeLocataire(@PathVariable Long locationId) {
-        try {
-            locationService.annulerDemandeLocataire(locationId);
-            return ResponseEntity.ok().build();
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
-        }
+    public ResponseEntity<?> annulerDemandeLocataire(@PathVariable Long locationId,
+            @RequestHeader(value = IdempotenceService.ENTETE_CLE, required = false) String cleIdempotence) {
+        return idempotenceService.executer(cleIdempotence, "POST /api/locations/" + locationId + "/annuler-locataire", () -> {
+            try {
+                locationService.annulerDemandeLocataire(locationId);
+                return ResponseEntity.ok().build();
+            } catch (ReservationRefuseeException e) {
+                return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+            }
+        });
     }
 
     /**
      * Récupère les réservations du locataire authentifié (en cours et passées).
-     * GET /api/locations/mes-reservations
+     * GET /api/locations/mes-reservations?periode=passees&taille=50
+     * Page suivante (periode obligatoire) : apresCreeLe et apresId = creeLe et locationId
+     * du dernier élément reçu pour cette période.
      */
     @GetMapping("/mes-reservations")
-    public ResponseEntity<?> getMesReservations() {
+    public ResponseEntity<?> getMesReservations(
+            @RequestParam(required = false) String periode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime apresCreeLe,
+            @RequestParam(required = false) Long apresId,
+            @RequestParam(defaultValue = "50") int taille) {
         try {
-            MesReservationsResponse reservations = locationService.getMesReservations();
+            MesReservationsResponse reservations = locationService.getMesReservations(periode, apresCreeLe, apresId, taille);
             return ResponseEntity.ok(reservations);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new ErrorResponse(e.getMessage()));
@@ -1,17 +1,121 @@
 package com.partikar.location;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface LocationRepository extends JpaRepository<Location, Long> {
+    @EntityGraph(Location.GRAPHE_DETAILS)
     List<Location> findByLocataireId(Long locataireId);
     List<Location> findByVoitureId(Long voitureId);
+    @EntityGraph(Location.GRAPHE_DETAILS)
     List<Location> findByVoitureProprietaireId(Long proprietaireId);
     List<Location> findByStatut(String statut);
     List<Location> findByVoitureIdAndLocataireIdAndStatut(Long voitureId, Long locataireId, String statut);
     List<Location> findByVoitureIdAndStatut(Long voitureId, String statut);
-}
+    List<Location> findByVoitureIdInAndStatut(Collection<Long> voitureIds, String statut);
+
+    // Location avec voiture, propriétaire et locataire chargés (utilisable hors transaction, ex: emails @Async)
+    @EntityGraph(Location.GRAPHE_DETAILS)
+    Optional<Location> findAvecDetailsById(Long id);
+
+    @EntityGraph(Location.GRAPHE_DETAILS)
+    List<Location> findAvecDetailsByIdIn(Collection<Long> ids);
+
+    // Couples (locationId, voitureId) : permet de regrouper un lot d'opérations par voiture sans charger les entités
+    @Query("select l.id, l.voiture.id from Location l where l.id in :ids")
+    List<Object[]> findVoitureIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Verrouille la location jusqu'à la fin de la transaction : l'expiration des demandes (SKIP LOCKED) l'ignore,
+    // et une expiration déjà en cours fait attendre la validation, qui lit ensuite le statut commité
+    @Query(value = "SELECT id FROM locations WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> verrouiller(@Param("id") Long id);
+
+    // Même verrou pour un lot, dans l'ordre des IDs (pas d'interblocage entre deux lots qui se recouvrent)
+    @Query(value = "SELECT id FROM locations WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> verrouiller(@Param("ids") Collection<Long> ids);
+
+    // Lot de demandes EN_ATTENTE expirées, verrouillées (les lignes déjà verrouillées par une validation sont ignorées)
+    @Query(value = "SELECT id FROM locations WHERE statut = 'EN_ATTENTE' " +
+                   "AND (date_debut < :aujourdhui OR cree_le < :limiteCreation) " +
+                   "ORDER BY id LIMIT :taille FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Long> findIdsDemandesExpirees(@Param("aujourdhui") LocalDate aujourdhui,
+                                       @Param("limiteCreation") LocalDateTime limiteCreation,
+                                       @Param("taille") int taille);
+
+    // Lot de réservations CONFIRMEE dont la date de fin est passée, par ordre d'ID après le curseur
+    @Query(value = "SELECT id FROM locations WHERE statut = 'CONFIRMEE' AND date_fin < :aujourdhui " +
+                   "AND id > :apresId ORDER BY id LIMIT :taille",
+           nativeQuery = true)
+    List<Long> findIdsReservationsATerminer(@Param("aujourdhui") LocalDate aujourdhui,
+                                            @Param("apresId") Long apresId,
+                                            @Param("taille") int taille);
 
+    // Passage en masse des réservations CONFIRMEE en TERMINEE
+    @Modifying
+    @Query("update Location l set l.statut = 'TERMINEE', l.majLe = :maintenant " +
+           "where l.id in :ids and l.statut = 'CONFIRMEE'")
+    int terminerReservations(@Param("ids") Collection<Long> ids, @Param("maintenant") LocalDateTime maintenant);
+
+    // Annulation en masse de demandes encore EN_ATTENTE
+    @Modifying
+    @Query("update Location l set l.statut = 'ANNULEE', l.majLe = :maintenant " +
+           "where l.id in :ids and l.statut = 'EN_ATTENTE'")
+    int annulerDemandesEnAttente(@Param("ids") Collection<Long> ids, @Param("maintenant") LocalDateTime maintenant);
+
+    // Boîte de réception du propriétaire : voiture et locataire chargés dans la même requête
+    @Query("select l from Location l join fetch l.voiture v join fetch l.locataire " +
+           "where v.proprietaire.id = :proprietaireId and l.statut = :statut " +
+           "order by l.creeLe asc, l.id asc")
+    List<Location> findBoiteReceptionProprietaire(@Param("proprietaireId") Long proprietaireId,
+                                                  @Param("statut") String statut,
+                                                  Pageable pageable);
+
+    // Historique du locataire, plus récentes d'abord, après le curseur (creeLe, id)
+    @EntityGraph(Location.GRAPHE_DETAILS)
+    @Query("select l from Location l where l.locataire.id = :locataireId " +
+           "and (l.creeLe < :creeLe or (l.creeLe = :creeLe and l.id < :id)) " +
+           "order by l.creeLe desc, l.id desc")
+    List<Location> findHistoriqueLocataire(@Param("locataireId") Long locataireId,
+                                           @Param("creeLe") LocalDateTime creeLe,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+
+    // Même historique restreint à certains statuts
+    @EntityGraph(Location.GRAPHE_DETAILS)
+    @Query("select l from Location l where l.locataire.id = :locataireId and l.statut in :statuts " +
+           "and (l.creeLe < :creeLe or (l.creeLe = :creeLe and l.id < :id)) " +
+           "order by l.creeLe desc, l.id desc")
+    List<Location> findHistoriqueLocataireParStatuts(@Param("locataireId") Long locataireId,
+                                                     @Param("statuts") Collection<String> statuts,
+                                                     @Param("creeLe") LocalDateTime creeLe,
+                                                     @Param("id") Long id,
+                                                     Pageable pageable);
+
+    // Réservations du locataire ayant un statut donné (CONFIRMEE = en cours, TERMINEE = passées)
+    @EntityGraph(Location.GRAPHE_DETAILS)
+    @Query("select l from Location l where l.locataire.id = :locataireId and l.statut = :statut " +
+           "and (l.creeLe < :creeLe or (l.creeLe = :creeLe and l.id < :id)) " +
+           "order by l.creeLe desc, l.id desc")
+    List<Location> findReservationsLocataire(@Param("locataireId") Long locataireId,
+                                             @Param("statut") String statut,
+                                             @Param("creeLe") LocalDateTime creeLe,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    // Locations des voitures d'un propriétaire ayant un statut donné
+    @EntityGraph(Location.GRAPHE_DETAILS)
+    List<Location> findByVoitureProprietaireIdAndStatut(Long proprietaireId, String statut);
+}
@@ -3,6 +3,7 @@ package com.partikar.location;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * DTO de réponse après création d'une location.
@@ -29,6 +30,10 @@ public class LocationResponse {
     private Integer nbJours;
     private String statut;
     private LocalDateTime creeLe;
+    // Autres demandes EN_ATTENTE qui chevauchent celle-ci (annulées si elle est acceptée).
+    // Renseigné uniquement dans la boîte de réception du propriétaire.
+    private Integer nbDemandesEnConflit;
+    private List<Long> demandesEnConflitIds;
 
     // Constructeurs
     public LocationResponse() {}
@@ -193,5 +198,20 @@ public class LocationResponse {
     public void setCreeLe(LocalDateTime creeLe) {
         this.creeLe = creeLe;
     }
-}
 
+    public Integer getNbDemandesEnConflit() {
+        return nbDemandesEnConflit;
+    }
+
+    public void setNbDemandesEnConflit(Integer nbDemandesEnConflit) {
+        this.nbDemandesEnConflit = nbDemandesEnConflit;
+    }
+
+    public List<Long> getDemandesEnConflitIds() {
+        return demandesEnConflitIds;
+    }
+
+    public void setDemandesEnConflitIds(List<Long> demandesEnConflitIds) {
+        this.demandesEnConflitIds = demandesEnConflitIds;
+    }
+}
@@ -1,15 +1,19 @@
 package com.partikar.location;
 
+import com.partikar.annonces.VoituresARecalculer;
+import com.partikar.avis.NoteMoyenneCible;
 import com.partikar.disponibilite.Disponibilite;
 import com.partikar.disponibilite.DisponibiliteRepository;
+import com.partikar.montant.Montant;
+import com.partikar.security.UtilisateurCourant;
 import com.partikar.user.User;
 import com.partikar.user.UserRepository;
 import com.partikar.voiture.Voiture;
 import com.partikar.voiture.VoitureRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,7 +21,12 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service pour gérer les réservations/locations de voitures.
@@ -27,31 +36,46 @@ public class LocationService {
 
     private static final Logger logger = LoggerFactory.getLogger(LocationService.class);
 
+    /** Nombre maximum d'éléments renvoyés par page */
+    private static final int TAILLE_PAGE_MAX = 100;
+
+    /** Curseur de la première page d'un historique (plus récent que toute location existante) */
+    private static final LocalDateTime CURSEUR_DEBUT = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private static final String PERIODE_EN_COURS = "en-cours";
+    private static final String PERIODE_PASSEES = "passees";
+
     private final LocationRepository locationRepository;
     private final VoitureRepository voitureRepository;
     private final UserRepository userRepository;
     private final DisponibiliteRepository disponibiliteRepository;
-    private final com.partikar.annonces.AnnonceService annonceService;
+    private final VoituresARecalculer voituresARecalculer;
     private final com.partikar.avis.AvisRepository avisRepository;
     private final com.partikar.transaction.TransactionService transactionService;
     private final com.partikar.email.EmailService emailService;
+    private final DemandesEnAttenteIndex demandesEnAttenteIndex;
+    private final UtilisateurCourant utilisateurCourant;
 
     public LocationService(LocationRepository locationRepository,
                           VoitureRepository voitureRepository,
                           UserRepository userRepository,
                           DisponibiliteRepository disponibiliteRepository,
-                          com.partikar.annonces.AnnonceService annonceService,
+                          VoituresARecalculer voituresARecalculer,
                           com.partikar.avis.AvisRepository avisRepository,
                           com.partikar.transaction.TransactionService transactionService,
-                          com.partikar.email.EmailService emailService) {
+                          com.partikar.email.EmailService emailService,
+                          DemandesEnAttenteIndex demandesEnAttenteIndex,
+                          UtilisateurCourant utilisateurCourant) {
         this.locationRepository = locationRepository;
         this.voitureRepository = voitureRepository;
         this.userRepository = userRepository;
         this.disponibiliteRepository = disponibiliteRepository;
-        this.annonceService = annonceService;
+        this.voituresARecalculer = voituresARecalculer;
         this.avisRepository = avisRepository;
         this.transactionService = transactionService;
         this.emailService = emailService;
+        this.demandesEnAttenteIndex = demandesEnAttenteIndex;
+        this.utilisateurCourant = utilisateurCourant;
     }
 
     /**
@@ -66,42 +90,37 @@ public class LocationService {
 
         // Validation des données
         if (request.getVoitureId() == null) {
-            throw new RuntimeException("L'ID de la voiture est requis");
+            throw new ReservationRefuseeException("L'ID de la voiture est requis");
         }
         if (request.getDateDebut() == null || request.getDateFin() == null) {
-            throw new RuntimeException("Les dates de début et de fin sont requises");
+            throw new ReservationRefuseeException("Les dates de début et de fin sont requises");
         }
         if (request.getDateFin().isBefore(request.getDateDebut())) {
-            throw new RuntimeException("La date de fin doit être égale ou postérieure à la date de début");
+            throw new ReservationRefuseeException("La date de fin doit être égale ou postérieure à la date de début");
         }
 
         // Récupérer la voiture
-        Voiture voiture = voitureRepository.findById(request.getVoitureId())
-                .orElseThrow(() -> new RuntimeException("Voiture introuvable avec l'ID: " + request.getVoitureId()));
+        Voiture voiture = voitureRepository.findAvecProprietaireById(request.getVoitureId())
+                .orElseThrow(() -> new ReservationRefuseeException("Voiture introuvable avec l'ID: " + request.getVoitureId()));
 
         // Vérifier que la voiture est disponible
         if (!"disponible".equalsIgnoreCase(voiture.getStatut())) {
-            throw new RuntimeException("Cette voiture n'est pas disponible pour la location");
+            throw new ReservationRefuseeException("Cette voiture n'est pas disponible pour la location");
         }
 
         // Récupérer le locataire (utilisateur authentifié ou via paramètre)
         User locataire;
         if (request.getLocataireId() != null) {
             locataire = userRepository.findById(request.getLocataireId())
-                    .orElseThrow(() -> new RuntimeException("Locataire introuvable"));
+                    .orElseThrow(() -> new ReservationRefuseeException("Locataire introuvable"));
         } else {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            if (auth == null || auth.getName() == null) {
-                throw new RuntimeException("Utilisateur non authentifié");
-            }
-            String email = auth.getName();
-            locataire = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+            // Entité nécessaire : associée à la location et à la transaction
+            locataire = utilisateurCourant.charger();
         }
 
         // Vérifier que le locataire n'est pas le propriétaire
         if (locataire.getId().equals(voiture.getProprietaire().getId())) {
-            throw new RuntimeException("Vous ne pouvez pas louer votre propre voiture");
+            throw new ReservationRefuseeException("Vous ne pouvez pas louer votre propre voiture");
         }
 
         // Vérifier qu'il n'y a pas déjà une demande EN_ATTENTE exactement identique
@@ -114,7 +133,7 @@ public class LocationService {
                              && demande.getDateFin().equals(request.getDateFin());
 
             if (memeDates) {
-                throw new RuntimeException("Vous avez déjà une demande de réservation en attente pour cette voiture avec exactement les mêmes dates");
+                throw new ReservationRefuseeException("Vous avez déjà une demande de réservation en attente pour cette voiture avec exactement les mêmes dates");
             }
         }
 
@@ -130,14 +149,14 @@ public class LocationService {
                         && d.getStatut() == Disponibilite.Statut.DISPONIBLE);
 
             if (!jourDisponible) {
-                throw new RuntimeException("La voiture n'est pas disponible pour la date: " + checkDate);
+                throw new ReservationRefuseeException("La voiture n'est pas disponible pour la date: " + checkDate);
             }
             current = current.plusDays(1);
         }
 
         // Calculer le nombre de jours et le prix total
         long nbJours = ChronoUnit.DAYS.between(request.getDateDebut(), request.getDateFin()) + 1;
-        BigDecimal prixTotal = voiture.getPrixParJour().multiply(BigDecimal.valueOf(nbJours));
+        BigDecimal prixTotal = Montant.deCentimes(voiture.getPrixParJourCentimes()).fois(nbJours).toBigDecimal();
 
         // Créer la location
         Location location = new Location();
@@ -151,6 +170,7 @@ public class LocationService {
         location.setMajLe(LocalDateTime.now());
 
         Location savedLocation = locationRepository.save(location);
+        demandesEnAttenteIndex.ajouter(savedLocation);
 
         // Créer une transaction EN_ATTENTE pour suspendre les crédits
         try {
@@ -216,7 +236,7 @@ public class LocationService {
     @Transactional(readOnly = true)
     public Location getLocationById(Long locationId) {
         return locationRepository.findById(locationId)
-                .orElseThrow(() -> new RuntimeException("Location introuvable avec l'ID: " + locationId));
+                .orElseThrow(() -> new ReservationRefuseeException("Location introuvable avec l'ID: " + locationId));
     }
 
     /**
@@ -224,20 +244,19 @@ public class LocationService {
      */
     @Transactional
     public void annulerLocation(Long locationId, Long userId) {
-        Location location = locationRepository.findById(locationId)
-                .orElseThrow(() -> new RuntimeException("Location introuvable"));
+        Location location = chargerVerrouillee(locationId);
 
         // Vérifier que l'utilisateur est le locataire ou le propriétaire
         boolean isLocataire = location.getLocataire().getId().equals(userId);
         boolean isProprietaire = location.getVoiture().getProprietaire().getId().equals(userId);
 
         if (!isLocataire && !isProprietaire) {
-            throw new RuntimeException("Vous n'êtes pas autorisé à annuler cette location");
+            throw new ReservationRefuseeException("Vous n'êtes pas autorisé à annuler cette location");
         }
 
         // Vérifier le statut
         if (!"EN_ATTENTE".equals(location.getStatut())) {
-            throw new RuntimeException("Cette location ne peut pas être annulée (statut: " + location.getStatut() + ")");
+            throw new ReservationRefuseeException("Cette location ne peut pas être annulée (statut: " + location.getStatut() + ")");
         }
 
         // Pour une demande EN_ATTENTE, pas besoin de libérer les disponibilités
@@ -247,59 +266,64 @@ public class LocationService {
         location.setStatut("ANNULEE");
         location.setMajLe(LocalDateTime.now());
         locationRepository.save(location);
+        demandesEnAttenteIndex.retirer(location.getId());
 
         logger.info("Demande de location annulée: ID={}", locationId);
     }
 
     /**
      * Récupère les demandes de réservation en attente pour le propriétaire authentifié.
+     * Paginé et trié par date de création (les plus anciennes d'abord).
      */
     @Transactional(readOnly = true)
-    public List<LocationResponse> getDemandesEnAttenteProprietaire() {
+    public List<LocationResponse> getDemandesEnAttenteProprietaire(int page, int taille) {
         // Récupérer l'utilisateur authentifié
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User proprietaire = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
-
-        // Récupérer toutes les locations en attente pour les voitures du propriétaire
-        List<Location> locations = locationRepository.findAll().stream()
-                .filter(l -> l.getVoiture().getProprietaire().getId().equals(proprietaire.getId()))
-                .filter(l -> "EN_ATTENTE".equals(l.getStatut()))
-                .toList();
-
-        // Transformer en LocationResponse
-        return locations.stream()
-                .map(this::toLocationResponse)
-                .toList();
+        Long proprietaireId = utilisateurCourant.id();
+
+        // Uniquement les demandes EN_ATTENTE des voitures du propriétaire (voiture et locataire chargés en une requête)
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(taille, TAILLE_PAGE_MAX)));
+        List<Location> locations = locationRepository.findBoiteReceptionProprietaire(
+                proprietaireId, "EN_ATTENTE", pageable);
+
+        // Transformer en LocationResponse, avec les autres demandes qui chevauchent chacune
+        List<LocationResponse> responses = toLocationResponses(locations);
+        demandesEnAttenteIndex.precharger(locations.stream().map(l -> l.getVoiture().getId()).toList());
+        for (int i = 0; i < locations.size(); i++) {
+            Location location = locations.get(i);
+            List<Long> conflits = demandesEnAttenteIndex.conflits(location.getVoiture().getId(), location.getId(),
+                    location.getDateDebut(), location.getDateFin());
+            responses.get(i).setNbDemandesEnConflit(conflits.size());
+            responses.get(i).setDemandesEnConflitIds(conflits);
+        }
+        return responses;
     }
 
     /**
-     * Récupère toutes les demandes de réservation du locataire authentifié (quel que soit le statut).
+     * Récupère les demandes de réservation du locataire authentifié, plus récentes d'abord.
+     * Pagination par curseur : passer le (creeLe, locationId) du dernier élément reçu.
+     *
+     * @param statuts statuts à conserver (tous si null ou vide)
+     * @param apresCreeLe date de création du dernier élément de la page précédente (null pour la première page)
+     * @param apresId ID du dernier élément de la page précédente
+     * @param taille nombre maximum d'éléments renvoyés
      */
     @Transactional(readOnly = true)
-    public List<LocationResponse> getMesDemandesReservation() {
+    public List<LocationResponse> getMesDemandesReservation(List<String> statuts, LocalDateTime apresCreeLe,
+                                                            Long apresId, int taille) {
         // Récupérer l'utilisateur authentifié
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User locataire = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+        Long locataireId = utilisateurCourant.id();
 
-        // Récupérer toutes les locations du locataire
-        List<Location> locations = locationRepository.findAll().stream()
-                .filter(l -> l.getLocataire().getId().equals(locataire.getId()))
-                .toList();
+        LocalDateTime curseurCreeLe = apresCreeLe != null ? apresCreeLe : CURSEUR_DEBUT;
+        Long curseurId = apresId != null ? apresId : Long.MAX_VALUE;
+        Pageable pageable = PageRequest.of(0, Math.max(1, Math.min(taille, TAILLE_PAGE_MAX)));
+
+        // Une seule page de l'historique du locataire, filtrée par statut si demandé
+        List<Location> locations = (statuts == null || statuts.isEmpty())
+                ? locationRepository.findHistoriqueLocataire(locataireId, curseurCreeLe, curseurId, pageable)
+                : locationRepository.findHistoriqueLocataireParStatuts(locataireId, statuts, curseurCreeLe, curseurId, pageable);
 
         // Transformer en LocationResponse
-        return locations.stream()
-                .map(this::toLocationResponse)
-                .toList();
+        return toLocationResponses(locations);
     }
 
     /**
@@ -307,39 +331,161 @@ public class LocationService {
      */
     @Transactional
     public void validerReservation(Long locationId) {
-        Location location = locationRepository.findById(locationId)
-                .orElseThrow(() -> new RuntimeException("Location introuvable"));
+        Location location = chargerVerrouillee(locationId);
 
         // Vérifier que l'utilisateur est le propriétaire
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
+        Long proprietaireId = utilisateurCourant.id();
+
+        if (!location.getVoiture().getProprietaire().getId().equals(proprietaireId)) {
+            throw new ReservationRefuseeException("Vous n'êtes pas autorisé à valider cette réservation");
         }
-        String email = auth.getName();
-        User proprietaire = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
 
-        if (!location.getVoiture().getProprietaire().getId().equals(proprietaire.getId())) {
-            throw new RuntimeException("Vous n'êtes pas autorisé à valider cette réservation");
+        // Vérifier le statut
+        if (!"EN_ATTENTE".equals(location.getStatut())) {
+            throw new ReservationRefuseeException("Cette réservation ne peut pas être validée (statut: " + location.getStatut() + ")");
+        }
+
+        // Réserver les dates, annuler les demandes qui chevauchent et confirmer la transaction
+        Long voitureId = location.getVoiture().getId();
+        accepterDemande(location, chargerCalendrier(voitureId),
+                locationRepository.findByVoitureIdAndStatut(voitureId, "EN_ATTENTE"));
+
+        // Statut de la voiture recalculé après le commit
+        voituresARecalculer.marquer(voitureId);
+
+        // Envoyer un email au locataire pour l'informer de l'acceptation
+        emailService.envoyerNotificationDemandeAccepteeLocataire(location);
+
+        logger.info("Location validée et dates réservées: ID={}", locationId);
+    }
+
+    /**
+     * Annule une réservation (utilisé par le propriétaire pour refuser une demande).
+     */
+    @Transactional
+    public void annulerReservationProprietaire(Long locationId) {
+        Location location = chargerVerrouillee(locationId);
+
+        // Vérifier que l'utilisateur est le propriétaire
+        Long proprietaireId = utilisateurCourant.id();
+
+        if (!location.getVoiture().getProprietaire().getId().equals(proprietaireId)) {
+            throw new ReservationRefuseeException("Vous n'êtes pas autorisé à annuler cette réservation");
         }
 
         // Vérifier le statut
         if (!"EN_ATTENTE".equals(location.getStatut())) {
-            throw new RuntimeException("Cette réservation ne peut pas être validée (statut: " + location.getStatut() + ")");
+            throw new ReservationRefuseeException("Cette réservation ne peut pas être annulée (statut: " + location.getStatut() + ")");
         }
 
+        refuserDemande(location);
+
+        // Envoyer un email au locataire pour l'informer du refus
+        emailService.envoyerNotificationDemandeRefuseeLocataire(location);
+
+        logger.info("Demande de location refusée par le propriétaire: ID={}", locationId);
+    }
+
+    /**
+     * Traite, dans une seule transaction, les acceptations/refus d'un propriétaire portant sur une même voiture.
+     * Le calendrier et les demandes EN_ATTENTE de la voiture sont chargés une seule fois pour tout le lot,
+     * et le statut de la voiture n'est recalculé qu'une fois à la fin.
+     * Les erreurs de validation (statut, propriétaire, action) sont renvoyées par opération ;
+     * une erreur pendant une acceptation (ex: crédits insuffisants) annule toute la transaction.
+     *
+     * @return un résultat par opération, dans l'ordre reçu
+     */
+    @Transactional
+    public List<ResultatOperationResponse> traiterOperationsVoiture(Long proprietaireId, Long voitureId,
+                                                                    List<OperationLotRequest> operations) {
+        List<Long> ids = operations.stream().map(OperationLotRequest::getLocationId).distinct().toList();
+        // Verrouillées avant lecture, comme pour une validation unitaire
+        locationRepository.verrouiller(ids);
+        Map<Long, Location> locations = locationRepository.findAvecDetailsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Location::getId, l -> l));
+
+        // Chargés au premier besoin puis partagés par toutes les acceptations du lot
+        Map<LocalDate, Disponibilite> calendrier = null;
+        List<Location> demandesEnAttente = null;
+
+        List<ResultatOperationResponse> resultats = new ArrayList<>();
+        for (OperationLotRequest operation : operations) {
+            Location location = locations.get(operation.getLocationId());
+            if (location == null || !location.getVoiture().getId().equals(voitureId)) {
+                resultats.add(ResultatOperationResponse.echec(operation, "Location introuvable"));
+                continue;
+            }
+            if (!location.getVoiture().getProprietaire().getId().equals(proprietaireId)) {
+                resultats.add(ResultatOperationResponse.echec(operation, "Vous n'êtes pas autorisé à traiter cette demande"));
+                continue;
+            }
+            if (!"EN_ATTENTE".equals(location.getStatut())) {
+                resultats.add(ResultatOperationResponse.echec(operation,
+                        "Cette demande ne peut pas être traitée (statut: " + location.getStatut() + ")"));
+                continue;
+            }
+
+            if (OperationLotRequest.ACTION_VALIDER.equals(operation.getAction())) {
+                if (calendrier == null) {
+                    calendrier = chargerCalendrier(voitureId);
+                    demandesEnAttente = locationRepository.findByVoitureIdAndStatut(voitureId, "EN_ATTENTE");
+                }
+                accepterDemande(location, calendrier, demandesEnAttente);
+                resultats.add(ResultatOperationResponse.succes(operation));
+            } else if (OperationLotRequest.ACTION_REFUSER.equals(operation.getAction())) {
+                refuserDemande(location);
+                resultats.add(ResultatOperationResponse.succes(operation));
+            } else {
+                resultats.add(ResultatOperationResponse.echec(operation,
+                        "Action inconnue (VALIDER ou REFUSER): " + operation.getAction()));
+            }
+        }
+
+        // Le calendrier a changé : statut de la voiture recalculé une seule fois après le commit
+        if (calendrier != null) {
+            voituresARecalculer.marquer(voitureId);
+        }
+
+        logger.info("Lot de {} opérations traité pour la voiture {}", operations.size(), voitureId);
+        return resultats;
+    }
+
+    /**
+     * Verrouille la location jusqu'au commit puis la charge avec ses détails : le statut lu ne peut plus
+     * changer sous nos pieds (ex: demande expirée en parallèle par DemandeExpirationScheduler).
+     */
+    private Location chargerVerrouillee(Long locationId) {
+        locationRepository.verrouiller(locationId)
+                .orElseThrow(() -> new ReservationRefuseeException("Location introuvable"));
+        return locationRepository.findAvecDetailsById(locationId)
+                .orElseThrow(() -> new ReservationRefuseeException("Location introuvable"));
+    }
+
+    /**
+     * Charge les disponibilités d'une voiture indexées par jour.
+     */
+    private Map<LocalDate, Disponibilite> chargerCalendrier(Long voitureId) {
+        return disponibiliteRepository.findByVoitureId(voitureId).stream()
+                .collect(Collectors.toMap(Disponibilite::getJour, d -> d, (premier, doublon) -> premier));
+    }
+
+    /**
+     * Accepte une demande EN_ATTENTE : réserve ses jours, annule les autres demandes EN_ATTENTE
+     * qui la chevauchent et confirme la transaction (débit locataire, crédit propriétaire).
+     *
+     * @param calendrier disponibilités de la voiture indexées par jour
+     * @param demandesEnAttente demandes EN_ATTENTE de la voiture (celles annulées ici changent de statut)
+     */
+    private void accepterDemande(Location location, Map<LocalDate, Disponibilite> calendrier,
+                                 List<Location> demandesEnAttente) {
         // Marquer les dates comme RESERVE lors de l'acceptation
-        List<Disponibilite> disponibilites = disponibiliteRepository.findByVoitureId(location.getVoiture().getId());
         LocalDate current = location.getDateDebut();
         while (!current.isAfter(location.getDateFin())) {
-            final LocalDate dateToUpdate = current;
-            disponibilites.stream()
-                    .filter(d -> d.getJour().equals(dateToUpdate))
-                    .findFirst()
-                    .ifPresent(d -> {
-                        d.setStatut(Disponibilite.Statut.RESERVE);
-                        disponibiliteRepository.save(d);
-                    });
+            Disponibilite disponibilite = calendrier.get(current);
+            if (disponibilite != null) {
+                disponibilite.setStatut(Disponibilite.Statut.RESERVE);
+                disponibiliteRepository.save(disponibilite);
+            }
             current = current.plusDays(1);
         }
 
@@ -347,12 +493,14 @@ public class LocationService {
         location.setStatut("CONFIRMEE");
         location.setMajLe(LocalDateTime.now());
         locationRepository.save(location);
+        demandesEnAttenteIndex.retirer(location.getId());
 
         // Supprimer automatiquement les autres demandes EN_ATTENTE qui se chevauchent avec les dates acceptées
-        List<Location> autresDemandesEnAttente = locationRepository.findByVoitureIdAndStatut(
-                location.getVoiture().getId(), "EN_ATTENTE");
+        for (Location autreDemande : demandesEnAttente) {
+            if (autreDemande.getId().equals(location.getId()) || !"EN_ATTENTE".equals(autreDemande.getStatut())) {
+                continue;
+            }
 
-        for (Location autreDemande : autresDemandesEnAttente) {
             // Vérifier si les dates se chevauchent
             boolean seChevauche = !(autreDemande.getDateFin().isBefore(location.getDateDebut()) ||
                                    autreDemande.getDateDebut().isAfter(location.getDateFin()));
@@ -362,6 +510,7 @@ public class LocationService {
                 autreDemande.setStatut("ANNULEE");
                 autreDemande.setMajLe(LocalDateTime.now());
                 locationRepository.save(autreDemande);
+                demandesEnAttenteIndex.retirer(autreDemande.getId());
 
                 // Annuler la transaction associée pour libérer les crédits suspendus
                 try {
@@ -372,51 +521,19 @@ public class LocationService {
                 }
 
                 logger.info("Demande EN_ATTENTE ID={} automatiquement annulée car elle chevauche avec la réservation acceptée ID={}",
-                           autreDemande.getId(), locationId);
+                           autreDemande.getId(), location.getId());
             }
         }
 
         // Confirmer la transaction : débiter le locataire et créditer le propriétaire
         transactionService.confirmerTransaction(location.getId());
-
-        // Mettre à jour le statut de la voiture
-        annonceService.mettreAJourStatutVoiture(location.getVoiture().getId());
-
-        // Envoyer un email au locataire pour l'informer de l'acceptation
-        emailService.envoyerNotificationDemandeAccepteeLocataire(location);
-
-        logger.info("Location validée et dates réservées: ID={}", locationId);
     }
 
     /**
-     * Annule une réservation (utilisé par le propriétaire pour refuser une demande).
+     * Refuse une demande EN_ATTENTE : libère les crédits suspendus et marque la demande ANNULEE.
+     * Pas besoin de libérer les disponibilités car elles n'ont jamais été réservées.
      */
-    @Transactional
-    public void annulerReservationProprietaire(Long locationId) {
-        Location location = locationRepository.findById(locationId)
-                .orElseThrow(() -> new RuntimeException("Location introuvable"));
-
-        // Vérifier que l'utilisateur est le propriétaire
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User proprietaire = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
-
-        if (!location.getVoiture().getProprietaire().getId().equals(proprietaire.getId())) {
-            throw new RuntimeException("Vous n'êtes pas autorisé à annuler cette réservation");
-        }
-
-        // Vérifier le statut
-        if (!"EN_ATTENTE".equals(location.getStatut())) {
-            throw new RuntimeException("Cette réservation ne peut pas être annulée (statut: " + location.getStatut() + ")");
-        }
-
-        // Pour une demande EN_ATTENTE, pas besoin de libérer les disponibilités
-        // car elles n'ont jamais été réservées
-
+    private void refuserDemande(Location location) {
         // Annuler la transaction EN_ATTENTE pour libérer les crédits suspendus
         transactionService.annulerTransaction(location.getId());
 
@@ -424,11 +541,7 @@ public class LocationService {
         location.setStatut("ANNULEE");
         location.setMajLe(LocalDateTime.now());
         locationRepository.save(location);
-
-        // Envoyer un email au locataire pour l'informer du refus
-        emailService.envoyerNotificationDemandeRefuseeLocataire(location);
-
-        logger.info("Demande de location refusée par le propriétaire: ID={}", locationId);
+        demandesEnAttenteIndex.retirer(location.getId());
     }
 
     /**
@@ -436,25 +549,19 @@ public class LocationService {
      */
     @Transactional
     public void annulerDemandeLocataire(Long locationId) {
-        Location location = locationRepository.findById(locationId)
-                .orElseThrow(() -> new RuntimeException("Location introuvable"));
+        // Verrouillée comme pour une acceptation : le propriétaire ne peut pas la confirmer pendant l'annulation
+        Location location = chargerVerrouillee(locationId);
 
         // Vérifier que l'utilisateur est le locataire
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User locataire = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+        Long locataireId = utilisateurCourant.id();
 
-        if (!location.getLocataire().getId().equals(locataire.getId())) {
-            throw new RuntimeException("Vous n'êtes pas autorisé à annuler cette demande");
+        if (!location.getLocataire().getId().equals(locataireId)) {
+            throw new ReservationRefuseeException("Vous n'êtes pas autorisé à annuler cette demande");
         }
 
         // Vérifier le statut
         if (!"EN_ATTENTE".equals(location.getStatut())) {
-            throw new RuntimeException("Cette demande ne peut pas être annulée (statut: " + location.getStatut() + ")");
+            throw new ReservationRefuseeException("Cette demande ne peut pas être annulée (statut: " + location.getStatut() + ")");
         }
 
         // Pour une demande EN_ATTENTE, pas besoin de libérer les disponibilités
@@ -467,14 +574,81 @@ public class LocationService {
         location.setStatut("ANNULEE_PAR_LOCATAIRE");
         location.setMajLe(LocalDateTime.now());
         locationRepository.save(location);
+        demandesEnAttenteIndex.retirer(location.getId());
 
         logger.info("Demande de location annulée par le locataire: ID={}", locationId);
     }
 
+    /**
+     * Annule un lot de demandes EN_ATTENTE expirées (date de début dépassée ou demande plus ancienne
+     * que la limite de création) et libère leurs crédits suspendus, dans la même transaction.
+     * Utilisé par {@link DemandeExpirationScheduler}.
+     *
+     * @return IDs des demandes annulées (vide quand il n'y a plus rien à expirer)
+     */
+    @Transactional
+    public List<Long> expirerLotDemandesEnAttente(LocalDate aujourdhui, LocalDateTime limiteCreation, int taille) {
+        List<Long> ids = locationRepository.findIdsDemandesExpirees(aujourdhui, limiteCreation, taille);
+        if (ids.isEmpty()) {
+            return ids;
+        }
+
+        locationRepository.annulerDemandesEnAttente(ids, LocalDateTime.now());
+        transactionService.annulerTransactionsEnAttente(ids);
+        demandesEnAttenteIndex.retirer(ids);
+        return ids;
+    }
+
+    /**
+     * Passe en TERMINEE un lot de réservations CONFIRMEE dont la date de fin est passée.
+     * Parcours par ordre d'ID (curseur) : chaque appel est une transaction de taille bornée.
+     * Utilisé par {@link ReservationTermineeScheduler}.
+     *
+     * @param apresId dernier ID traité au lot précédent (0 pour commencer)
+     * @return IDs du lot traité (vide quand il n'y a plus rien à terminer)
+     */
+    @Transactional
+    public List<Long> terminerLotReservations(LocalDate aujourdhui, Long apresId, int taille) {
+        List<Long> ids = locationRepository.findIdsReservationsATerminer(aujourdhui, apresId, taille);
+        if (ids.isEmpty()) {
+            return ids;
+        }
+
+        locationRepository.terminerReservations(ids, LocalDateTime.now());
+        return ids;
+    }
+
+    /**
+     * Convertit une liste de Location en LocationResponse.
+     * Les notes des locataires sont chargées en une seule requête pour toute la liste.
+     */
+    private List<LocationResponse> toLocationResponses(List<Location> locations) {
+        Map<Long, NoteMoyenneCible> notes = chargerNotesLocataires(locations);
+        return locations.stream()
+                .map(l -> toLocationResponse(l, notes.get(l.getLocataire().getId())))
+                .toList();
+    }
+
+    /**
+     * Charge la note moyenne et le nombre d'avis de tous les locataires d'une liste de locations.
+     */
+    private Map<Long, NoteMoyenneCible> chargerNotesLocataires(List<Location> locations) {
+        if (locations.isEmpty()) {
+            return Map.of();
+        }
+        Set<Long> locataireIds = locations.stream()
+                .map(l -> l.getLocataire().getId())
+                .collect(Collectors.toSet());
+        return avisRepository.findNotesMoyennesByCibleIds(locataireIds).stream()
+                .collect(Collectors.toMap(NoteMoyenneCible::getCibleId, n -> n));
+    }
+
     /**
      * Convertit une Location en LocationResponse.
+     *
+     * @param noteLocataire agrégat des avis reçus par le locataire (null si aucun avis)
      */
-    private LocationResponse toLocationResponse(Location location) {
+    private LocationResponse toLocationResponse(Location location, NoteMoyenneCible noteLocataire) {
         LocationResponse response = new LocationResponse();
         response.setLocationId(location.getId());
         response.setVoitureId(location.getVoiture().getId());
@@ -484,15 +658,10 @@ public class LocationService {
         response.setLocataireNom(location.getLocataire().getNom());
         response.setLocatairePrenom(location.getLocataire().getPrenom());
 
-        // Calculer la note moyenne et le nombre d'avis du locataire
-        List<com.partikar.avis.Avis> avisLocataire = avisRepository.findByCibleId(location.getLocataire().getId());
-        if (!avisLocataire.isEmpty()) {
-            double moyenne = avisLocataire.stream()
-                .mapToInt(com.partikar.avis.Avis::getNoteUtilisateur)
-                .average()
-                .orElse(0.0);
-            response.setLocataireMoyenneAvis(moyenne);
-            response.setLocataireNbAvis(avisLocataire.size());
+        // Note moyenne et nombre d'avis du locataire
+        if (noteLocataire != null && noteLocataire.getNbAvis() > 0) {
+            response.setLocataireMoyenneAvis(noteLocataire.getMoyenne());
+            response.setLocataireNbAvis(noteLocataire.getNbAvis().intValue());
         } else {
             response.setLocataireMoyenneAvis(null);
             response.setLocataireNbAvis(0);
@@ -507,42 +676,61 @@ public class LocationService {
     }
 
     /**
-     * Récupère les réservations du locataire authentifié (en cours et passées).
+     * Récupère les réservations du locataire authentifié (en cours et passées), plus récentes d'abord.
+     * Chaque liste est limitée à {@code taille} éléments ; les indicateurs suiteEnCours / suitePassees
+     * signalent qu'une page suivante existe (curseur = creeLe et locationId du dernier élément de cette liste).
+     * Les deux listes avançant séparément, une page suivante se demande pour une seule période.
+     *
+     * @param periode "en-cours" ou "passees" pour ne charger qu'une des deux listes (les deux si null,
+     *                première page uniquement)
      */
     @Transactional(readOnly = true)
-    public MesReservationsResponse getMesReservations() {
+    public MesReservationsResponse getMesReservations(String periode, LocalDateTime apresCreeLe,
+                                                      Long apresId, int taille) {
         // Récupérer l'utilisateur authentifié
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User locataire = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
-
-        // Récupérer toutes les réservations CONFIRMEES du locataire
-        List<Location> reservations = locationRepository.findByLocataireId(locataire.getId()).stream()
-                .filter(l -> "CONFIRMEE".equals(l.getStatut()) || "TERMINEE".equals(l.getStatut()))
-                .toList();
-
-        LocalDate aujourdhui = LocalDate.now();
+        Long locataireId = utilisateurCourant.id();
 
-        // Séparer en cours et passées
-        List<LocationResponse> enCours = reservations.stream()
-                .filter(l -> "CONFIRMEE".equals(l.getStatut()))
-                .filter(l -> !l.getDateFin().isBefore(aujourdhui))
-                .map(this::toLocationResponseAvecProprio)
-                .toList();
+        if (periode != null && !PERIODE_EN_COURS.equals(periode) && !PERIODE_PASSEES.equals(periode)) {
+            throw new IllegalArgumentException("Période invalide (en-cours ou passees): " + periode);
+        }
+        // Un curseur n'est valable que pour la liste dont il vient
+        if (periode == null && (apresCreeLe != null || apresId != null)) {
+            throw new IllegalArgumentException("Période obligatoire (en-cours ou passees) pour charger la page suivante");
+        }
 
-        List<LocationResponse> passees = reservations.stream()
-                .filter(l -> "TERMINEE".equals(l.getStatut()) ||
-                            ("CONFIRMEE".equals(l.getStatut()) && l.getDateFin().isBefore(aujourdhui)))
-                .map(this::toLocationResponseAvecProprio)
-                .toList();
+        LocalDateTime curseurCreeLe = apresCreeLe != null ? apresCreeLe : CURSEUR_DEBUT;
+        Long curseurId = apresId != null ? apresId : Long.MAX_VALUE;
+        int tailleBornee = Math.max(1, Math.min(taille, TAILLE_PAGE_MAX));
+        // Un élément de plus pour savoir s'il existe une page suivante
+        Pageable pageable = PageRequest.of(0, tailleBornee + 1);
+
+        // En cours = CONFIRMEE, passées = TERMINEE (transition faite chaque nuit par ReservationTermineeScheduler)
+        List<Location> enCours = List.of();
+        List<Location> passees = List.of();
+        if (periode == null || PERIODE_EN_COURS.equals(periode)) {
+            enCours = locationRepository.findReservationsLocataire(
+                    locataireId, "CONFIRMEE", curseurCreeLe, curseurId, pageable);
+        }
+        if (periode == null || PERIODE_PASSEES.equals(periode)) {
+            passees = locationRepository.findReservationsLocataire(
+                    locataireId, "TERMINEE", curseurCreeLe, curseurId, pageable);
+        }
 
         MesReservationsResponse response = new MesReservationsResponse();
-        response.setEnCours(enCours);
-        response.setPassees(passees);
+        response.setSuiteEnCours(enCours.size() > tailleBornee);
+        response.setSuitePassees(passees.size() > tailleBornee);
+        enCours = enCours.subList(0, Math.min(enCours.size(), tailleBornee));
+        passees = passees.subList(0, Math.min(passees.size(), tailleBornee));
+
+        Map<Long, NoteMoyenneCible> notes = chargerNotesLocataires(
+                Stream.concat(enCours.stream(), passees.stream()).toList());
+
+        response.setEnCours(enCours.stream()
+                .map(l -> toLocationResponseAvecProprio(l, notes.get(l.getLocataire().getId())))
+                .toList());
+        response.setPassees(passees.stream()
+                .map(l -> toLocationResponseAvecProprio(l, notes.get(l.getLocataire().getId())))
+                .toList());
         return response;
     }
 
@@ -552,37 +740,22 @@ public class LocationService {
     @Transactional(readOnly = true)
     public MesReservationsResponse getMesLocations() {
         // Récupérer l'utilisateur authentifié
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User proprietaire = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+        Long proprietaireId = utilisateurCourant.id();
 
-        // Récupérer toutes les locations CONFIRMEES pour les voitures du propriétaire
-        List<Location> locations = locationRepository.findByVoitureProprietaireId(proprietaire.getId()).stream()
-                .filter(l -> "CONFIRMEE".equals(l.getStatut()) || "TERMINEE".equals(l.getStatut()))
-                .toList();
+        // En cours = CONFIRMEE, passées = TERMINEE (transition faite chaque nuit par ReservationTermineeScheduler)
+        List<Location> enCours = locationRepository.findByVoitureProprietaireIdAndStatut(proprietaireId, "CONFIRMEE");
+        List<Location> passees = locationRepository.findByVoitureProprietaireIdAndStatut(proprietaireId, "TERMINEE");
 
-        LocalDate aujourdhui = LocalDate.now();
-
-        // Séparer en cours et passées
-        List<LocationResponse> enCours = locations.stream()
-                .filter(l -> "CONFIRMEE".equals(l.getStatut()))
-                .filter(l -> !l.getDateFin().isBefore(aujourdhui))
-                .map(this::toLocationResponse)
-                .toList();
-
-        List<LocationResponse> passees = locations.stream()
-                .filter(l -> "TERMINEE".equals(l.getStatut()) ||
-                            ("CONFIRMEE".equals(l.getStatut()) && l.getDateFin().isBefore(aujourdhui)))
-                .map(this::toLocationResponse)
-                .toList();
+        Map<Long, NoteMoyenneCible> notes = chargerNotesLocataires(
+                Stream.concat(enCours.stream(), passees.stream()).toList());
 
         MesReservationsResponse response = new MesReservationsResponse();
-        response.setEnCours(enCours);
-        response.setPassees(passees);
+        response.setEnCours(enCours.stream()
+                .map(l -> toLocationResponse(l, notes.get(l.getLocataire().getId())))
+                .toList());
+        response.setPassees(passees.stream()
+                .map(l -> toLocationResponse(l, notes.get(l.getLocataire().getId())))
+                .toList());
         return response;
     }
 
@@ -591,25 +764,19 @@ public class LocationService {
      */
     @Transactional
     public void terminerReservation(Long locationId) {
-        Location location = locationRepository.findById(locationId)
-                .orElseThrow(() -> new RuntimeException("Location introuvable"));
+        Location location = locationRepository.findAvecDetailsById(locationId)
+                .orElseThrow(() -> new ReservationRefuseeException("Location introuvable"));
 
         // Vérifier que l'utilisateur est le locataire
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName() == null) {
-            throw new RuntimeException("Utilisateur non authentifié");
-        }
-        String email = auth.getName();
-        User locataire = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+        Long locataireId = utilisateurCourant.id();
 
-        if (!location.getLocataire().getId().equals(locataire.getId())) {
-            throw new RuntimeException("Vous n'êtes pas autorisé à terminer cette réservation");
+        if (!location.getLocataire().getId().equals(locataireId)) {
+            throw new ReservationRefuseeException("Vous n'êtes pas autorisé à terminer cette réservation");
         }
 
         // Vérifier le statut
         if (!"CONFIRMEE".equals(location.getStatut())) {
-            throw new RuntimeException("Cette réservation ne peut pas être terminée (statut: " + location.getStatut() + ")");
+            throw new ReservationRefuseeException("Cette réservation ne peut pas être terminée (statut: " + location.getStatut() + ")");
         }
 
         // Marquer comme terminée
@@ -623,8 +790,8 @@ public class LocationService {
     /**
      * Convertit une Location en LocationResponse avec les infos du propriétaire.
      */
-    private LocationResponse toLocationResponseAvecProprio(Location location) {
-        LocationResponse response = toLocationResponse(location);
+    private LocationResponse toLocationResponseAvecProprio(Location location, NoteMoyenneCible noteLocataire) {
+        LocationResponse response = toLocationResponse(location, noteLocataire);
         response.setProprietaireId(location.getVoiture().getProprietaire().getId());
         response.setProprietaireNom(location.getVoiture().getProprietaire().getNom());
         response.setProprietairePrenom(location.getVoiture().getProprietaire().getPrenom());
@@ -0,0 +1,142 @@
+package com.partikar.location;
+
+import com.partikar.email.EmailService;
+import com.partikar.security.UtilisateurCourant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service pour accepter/refuser plusieurs demandes de réservation en un seul appel.
+ * Les opérations sont regroupées par voiture : une transaction par voiture
+ * (LocationService.traiterOperationsVoiture), puis un seul envoi d'emails pour tout le lot.
+ */
+@Service
+public class LotReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LotReservationService.class);
+
+    /** Nombre maximum d'opérations par appel */
+    public static final int TAILLE_LOT_MAX = 200;
+
+    private final LocationService locationService;
+    private final LocationRepository locationRepository;
+    private final UtilisateurCourant utilisateurCourant;
+    private final EmailService emailService;
+
+    public LotReservationService(LocationService locationService,
+                                 LocationRepository locationRepository,
+                                 UtilisateurCourant utilisateurCourant,
+                                 EmailService emailService) {
+        this.locationService = locationService;
+        this.locationRepository = locationRepository;
+        this.utilisateurCourant = utilisateurCourant;
+        this.emailService = emailService;
+    }
+
+    /**
+     * Traite un lot de décisions du propriétaire authentifié.
+     * Une opération en échec n'empêche pas les autres : chaque résultat indique son succès ou sa raison d'échec.
+     *
+     * @return un résultat par opération, dans l'ordre reçu
+     */
+    public List<ResultatOperationResponse> traiterLot(List<OperationLotRequest> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new ReservationRefuseeException("Aucune opération à traiter");
+        }
+        if (operations.size() > TAILLE_LOT_MAX) {
+            throw new ReservationRefuseeException("Trop d'opérations dans le lot (maximum " + TAILLE_LOT_MAX + ")");
+        }
+        if (operations.stream().anyMatch(op -> op.getLocationId() == null)) {
+            throw new ReservationRefuseeException("Chaque opération doit préciser un locationId");
+        }
+
+        // Récupérer l'utilisateur authentifié une seule fois pour tout le lot
+        Long proprietaireId = utilisateurCourant.id();
+
+        // Regrouper les opérations par voiture (indices dans le lot reçu)
+        Map<Long, Long> voitureParLocation = new HashMap<>();
+        for (Object[] ligne : locationRepository.findVoitureIdsByIdIn(
+                operations.stream().map(OperationLotRequest::getLocationId).toList())) {
+            voitureParLocation.put((Long) ligne[0], (Long) ligne[1]);
+        }
+
+        ResultatOperationResponse[] resultats = new ResultatOperationResponse[operations.size()];
+        Map<Long, List<Integer>> indicesParVoiture = new LinkedHashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            Long voitureId = voitureParLocation.get(operations.get(i).getLocationId());
+            if (voitureId == null) {
+                resultats[i] = ResultatOperationResponse.echec(operations.get(i), "Location introuvable");
+            } else {
+                indicesParVoiture.computeIfAbsent(voitureId, v -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (Map.Entry<Long, List<Integer>> entry : indicesParVoiture.entrySet()) {
+            List<Integer> indices = entry.getValue();
+            List<OperationLotRequest> operationsVoiture = indices.stream().map(operations::get).toList();
+            List<ResultatOperationResponse> resultatsVoiture =
+                    traiterVoiture(proprietaireId, entry.getKey(), operationsVoiture);
+            for (int j = 0; j < indices.size(); j++) {
+                resultats[indices.get(j)] = resultatsVoiture.get(j);
+            }
+        }
+
+        // Un seul envoi asynchrone pour toutes les décisions appliquées
+        List<Long> acceptees = new ArrayList<>();
+        List<Long> refusees = new ArrayList<>();
+        for (ResultatOperationResponse resultat : resultats) {
+            if (!resultat.isSucces()) {
+                continue;
+            }
+            if (OperationLotRequest.ACTION_VALIDER.equals(resultat.getAction())) {
+                acceptees.add(resultat.getLocationId());
+            } else {
+                refusees.add(resultat.getLocationId());
+            }
+        }
+        if (!acceptees.isEmpty() || !refusees.isEmpty()) {
+            emailService.envoyerNotificationsDecisions(acceptees, refusees);
+        }
+
+        logger.info("Lot de {} opérations traité pour le propriétaire {} : {} acceptées, {} refusées",
+                operations.size(), proprietaireId, acceptees.size(), refusees.size());
+        return Arrays.asList(resultats);
+    }
+
+    /**
+     * Traite les opérations d'une voiture dans une seule transaction. Si la transaction échoue
+     * (ex: crédits insuffisants lors d'une acceptation), tout est annulé pour cette voiture :
+     * les opérations sont alors rejouées une par une pour n'écarter que celles en erreur.
+     * Une erreur technique (verrou, base indisponible) n'est pas un échec d'opération : elle interrompt le lot.
+     */
+    private List<ResultatOperationResponse> traiterVoiture(Long proprietaireId, Long voitureId,
+                                                           List<OperationLotRequest> operations) {
+        try {
+            return locationService.traiterOperationsVoiture(proprietaireId, voitureId, operations);
+        } catch (ReservationRefuseeException e) {
+            if (operations.size() == 1) {
+                return List.of(ResultatOperationResponse.echec(operations.get(0), e.getMessage()));
+            }
+            logger.warn("Échec du lot pour la voiture {} ({}), traitement opération par opération",
+                    voitureId, e.getMessage());
+        }
+
+        List<ResultatOperationResponse> resultats = new ArrayList<>();
+        for (OperationLotRequest operation : operations) {
+            try {
+                resultats.addAll(locationService.traiterOperationsVoiture(proprietaireId, voitureId, List.of(operation)));
+            } catch (ReservationRefuseeException e) {
+                resultats.add(ResultatOperationResponse.echec(operation, e.getMessage()));
+            }
+        }
+        return resultats;
+    }
+}
@@ -9,6 +9,8 @@ public class MesReservationsResponse {
 
     private List<LocationResponse> enCours;
     private List<LocationResponse> passees;
+    private boolean suiteEnCours;
+    private boolean suitePassees;
 
     public MesReservationsResponse() {}
 
@@ -27,5 +29,20 @@ public class MesReservationsResponse {
     public void setPassees(List<LocationResponse> passees) {
         this.passees = passees;
     }
-}
 
+    public boolean isSuiteEnCours() {
+        return suiteEnCours;
+    }
+
+    public void setSuiteEnCours(boolean suiteEnCours) {
+        this.suiteEnCours = suiteEnCours;
+    }
+
+    public boolean isSuitePassees() {
+        return suitePassees;
+    }
+
+    public void setSuitePassees(boolean suitePassees) {
+        this.suitePassees = suitePassees;
+    }
+}
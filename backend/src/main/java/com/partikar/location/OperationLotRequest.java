@@ -0,0 +1,38 @@
+package com.partikar.location;
+
+/**
+ * DTO d'une opération d'un lot de décisions du propriétaire (accepter ou refuser une demande).
+ */
+public class OperationLotRequest {
+
+    public static final String ACTION_VALIDER = "VALIDER";
+    public static final String ACTION_REFUSER = "REFUSER";
+
+    private Long locationId;
+    private String action; // VALIDER ou REFUSER
+
+    // Constructeurs
+    public OperationLotRequest() {}
+
+    public OperationLotRequest(Long locationId, String action) {
+        this.locationId = locationId;
+        this.action = action;
+    }
+
+    // Getters et Setters
+    public Long getLocationId() {
+        return locationId;
+    }
+
+    public void setLocationId(Long locationId) {
+        this.locationId = locationId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+}
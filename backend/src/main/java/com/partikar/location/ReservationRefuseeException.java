@@ -0,0 +1,14 @@
+package com.partikar.location;
+
+/**
+ * Refus métier d'une opération sur une réservation (validation, droits, statut, crédits insuffisants...).
+ * Réponse définitive (400) : réessayer la même requête donnerait le même refus, elle peut donc être
+ * enregistrée et rejouée pour une Idempotency-Key. Les autres exceptions (verrou, base indisponible...)
+ * ne sont pas des refus et libèrent la clé.
+ */
+public class ReservationRefuseeException extends RuntimeException {
+
+    public ReservationRefuseeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,93 @@
+package com.partikar.location;
+
+import com.partikar.planification.CoordinateurTaches;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Service planifié qui passe automatiquement en TERMINEE les réservations CONFIRMEE
+ * dont la date de fin est passée. Les lectures (en cours / passées) s'appuient
+ * ainsi uniquement sur le statut.
+ */
+@Service
+public class ReservationTermineeScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationTermineeScheduler.class);
+
+    private static final String TACHE = "terminaison-reservations";
+    // Bail court prolongé à chaque lot : repris rapidement si le nœud s'arrête en cours de tâche
+    private static final Duration BAIL = Duration.ofMinutes(10);
+
+    private final LocationService locationService;
+    private final CoordinateurTaches coordinateurTaches;
+
+    /** Nombre de réservations terminées par transaction */
+    @Value("${app.locations.terminaison.taille-lot:1000}")
+    private int tailleLot;
+
+    public ReservationTermineeScheduler(LocationService locationService, CoordinateurTaches coordinateurTaches) {
+        this.locationService = locationService;
+        this.coordinateurTaches = coordinateurTaches;
+    }
+
+    /**
+     * Tâche planifiée qui s'exécute tous les jours à 0h05
+     * pour terminer les réservations dont la date de fin est passée.
+     */
+    @Scheduled(cron = "0 5 0 * * *") // Tous les jours à 0h05
+    public void terminerReservationsPassees() {
+        if (!coordinateurTaches.acquerir(TACHE, BAIL)) {
+            return; // Exécutée par un autre nœud
+        }
+        logger.info("=== Passage en TERMINEE des réservations passées ===");
+        terminerParLots();
+    }
+
+    /**
+     * Rattrapage au démarrage (même bail que la tâche de nuit) : les lectures ne se fient qu'au statut,
+     * les réservations passées pendant un arrêt ou une nuit manquée ne doivent pas rester "en cours".
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void rattraperReservationsPassees() {
+        if (!coordinateurTaches.acquerir(TACHE, BAIL)) {
+            return; // Exécutée par un autre nœud
+        }
+        logger.info("=== Rattrapage au démarrage : passage en TERMINEE des réservations passées ===");
+        terminerParLots();
+    }
+
+    // Lots d'IDs croissants, bail prolongé après chaque lot complet
+    private void terminerParLots() {
+        LocalDate aujourdhui = LocalDate.now();
+        long debut = System.currentTimeMillis();
+
+        int nbTerminees = 0;
+        long dernierId = 0L;
+        List<Long> lot;
+        do {
+            lot = locationService.terminerLotReservations(aujourdhui, dernierId, tailleLot);
+            if (!lot.isEmpty()) {
+                nbTerminees += lot.size();
+                dernierId = lot.get(lot.size() - 1);
+            }
+            if (lot.size() == tailleLot && !coordinateurTaches.prolonger(TACHE, BAIL)) {
+                logger.warn("Bail de la tâche {} perdu, arrêt après {} réservations", TACHE, nbTerminees);
+                return;
+            }
+        } while (lot.size() == tailleLot);
+
+        logger.info("=== Terminé : {} réservations passées en TERMINEE en {} ms ===",
+                nbTerminees, System.currentTimeMillis() - debut);
+    }
+}
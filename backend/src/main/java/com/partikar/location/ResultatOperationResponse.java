@@ -0,0 +1,63 @@
+package com.partikar.location;
+
+/**
+ * DTO du résultat d'une opération d'un lot de décisions du propriétaire.
+ */
+public class ResultatOperationResponse {
+
+    private Long locationId;
+    private String action;
+    private boolean succes;
+    private String message; // Raison de l'échec, null si succès
+
+    // Constructeurs
+    public ResultatOperationResponse() {}
+
+    public ResultatOperationResponse(Long locationId, String action, boolean succes, String message) {
+        this.locationId = locationId;
+        this.action = action;
+        this.succes = succes;
+        this.message = message;
+    }
+
+    public static ResultatOperationResponse succes(OperationLotRequest operation) {
+        return new ResultatOperationResponse(operation.getLocationId(), operation.getAction(), true, null);
+    }
+
+    public static ResultatOperationResponse echec(OperationLotRequest operation, String message) {
+        return new ResultatOperationResponse(operation.getLocationId(), operation.getAction(), false, message);
+    }
+
+    // Getters et Setters
+    public Long getLocationId() {
+        return locationId;
+    }
+
+    public void setLocationId(Long locationId) {
+        this.locationId = locationId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public boolean isSucces() {
+        return succes;
+    }
+
+    public void setSucces(boolean succes) {
+        this.succes = succes;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,95 @@
+package com.partikar.montant;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Montant en euros/crédits représenté en centimes sur un long.
+ *
+ * Utilisé dans les calculs répétés (filtres et tris de la recherche, calcul du prix d'une période) :
+ * comparaisons et additions sur des primitives, sans allocation. Les colonnes en base restent
+ * des BigDecimal (2 décimales) ; la conversion ne se fait qu'à l'entrée et à la sortie.
+ */
+public final class Montant implements Comparable<Montant> {
+
+    public static final Montant ZERO = new Montant(0);
+
+    private final long centimes;
+
+    private Montant(long centimes) {
+        this.centimes = centimes;
+    }
+
+    public static Montant deCentimes(long centimes) {
+        return centimes == 0 ? ZERO : new Montant(centimes);
+    }
+
+    public static Montant de(BigDecimal valeur) {
+        return deCentimes(centimes(valeur));
+    }
+
+    /**
+     * Centimes d'une valeur en euros (arrondi au centime le plus proche).
+     */
+    public static long centimes(BigDecimal valeur) {
+        return valeur.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Centimes d'une valeur en euros saisie en double (ex: filtre de prix d'une recherche).
+     */
+    public static long centimes(double valeur) {
+        return Math.round(valeur * 100);
+    }
+
+    /**
+     * Valeur en euros à 2 décimales, pour l'écriture en base et les réponses JSON.
+     */
+    public static BigDecimal versBigDecimal(long centimes) {
+        return BigDecimal.valueOf(centimes, 2);
+    }
+
+    public long centimes() {
+        return centimes;
+    }
+
+    public Montant plus(Montant autre) {
+        return deCentimes(Math.addExact(centimes, autre.centimes));
+    }
+
+    public Montant moins(Montant autre) {
+        return deCentimes(Math.subtractExact(centimes, autre.centimes));
+    }
+
+    public Montant fois(long quantite) {
+        return deCentimes(Math.multiplyExact(centimes, quantite));
+    }
+
+    public boolean estInferieurA(Montant autre) {
+        return centimes < autre.centimes;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return versBigDecimal(centimes);
+    }
+
+    @Override
+    public int compareTo(Montant autre) {
+        return Long.compare(centimes, autre.centimes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Montant autre && autre.centimes == centimes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centimes);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
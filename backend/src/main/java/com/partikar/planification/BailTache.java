@@ -0,0 +1,33 @@
+package com.partikar.planification;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bail (lease) d'une tâche planifiée ou d'une partition de tâche : tant que le bail n'a pas expiré,
+ * seul le nœud propriétaire exécute la tâche. Une ligne par tâche (ex: "expiration-demandes")
+ * ou par partition (ex: "statuts-voitures#3"), créée à la première acquisition.
+ */
+@Entity
+@Table(name = "baux_taches")
+public class BailTache {
+
+    public static final int TAILLE_MAX_NOM = 100;
+
+    @Id
+    @Column(name = "nom", length = BailTache.TAILLE_MAX_NOM)
+    private String nom;
+
+    @Column(name = "proprietaire", nullable = false, length = 100)
+    private String proprietaire; // Identifiant du nœud qui détient le bail
+
+    @Column(name = "expire_le", nullable = false)
+    private LocalDateTime expireLe;
+
+    public BailTache() {}
+
+    public String getNom() { return nom; }
+    public String getProprietaire() { return proprietaire; }
+    public LocalDateTime getExpireLe() { return expireLe; }
+}
@@ -0,0 +1,50 @@
+package com.partikar.planification;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Les baux sont pris dans leur propre transaction : ils doivent être visibles
+ * des autres nœuds immédiatement, quelle que soit la transaction de l'appelant.
+ */
+@Repository
+public interface BailTacheRepository extends JpaRepository<BailTache, String> {
+
+    // Prend le bail s'il est expiré ou déjà détenu par ce nœud (0 ligne : détenu par un autre nœud, ou absent).
+    // Échéances calculées par l'horloge de la base, commune à tous les nœuds
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "update baux_taches set proprietaire = :noeud, " +
+                   "expire_le = CURRENT_TIMESTAMP + CAST(:secondes AS BIGINT) * INTERVAL '1' SECOND " +
+                   "where nom = :nom and (expire_le < CURRENT_TIMESTAMP or proprietaire = :noeud)",
+           nativeQuery = true)
+    int prendre(@Param("nom") String nom,
+                @Param("noeud") String noeud,
+                @Param("secondes") long secondes);
+
+    // Prolonge le bail d'une tâche en cours (0 ligne : le bail a expiré et a été repris par un autre nœud)
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "update baux_taches " +
+                   "set expire_le = CURRENT_TIMESTAMP + CAST(:secondes AS BIGINT) * INTERVAL '1' SECOND " +
+                   "where nom = :nom and proprietaire = :noeud",
+           nativeQuery = true)
+    int prolonger(@Param("nom") String nom,
+                  @Param("noeud") String noeud,
+                  @Param("secondes") long secondes);
+
+    // Première acquisition : crée la ligne (échoue sur la clé primaire si un autre nœud l'a créée avant)
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "insert into baux_taches (nom, proprietaire, expire_le) " +
+                   "values (:nom, :noeud, CURRENT_TIMESTAMP + CAST(:secondes AS BIGINT) * INTERVAL '1' SECOND)",
+           nativeQuery = true)
+    int creer(@Param("nom") String nom,
+              @Param("noeud") String noeud,
+              @Param("secondes") long secondes);
+}
@@ -0,0 +1,97 @@
+package com.partikar.planification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Coordination des tâches planifiées entre les instances du backend (plusieurs répliques
+ * derrière le load balancer) : une tâche n'est exécutée que par le nœud qui obtient son bail
+ * dans la table baux_taches. Le bail d'un nœud arrêté expire de lui-même. Les échéances des baux
+ * sont calculées par la base (CURRENT_TIMESTAMP) : un nœud dont l'horloge dérive ne peut pas
+ * reprendre un bail encore valide.
+ *
+ * Les grosses tâches sont découpées en partitions (un bail par partition) : chaque nœud
+ * traite les partitions qu'il obtient, au lieu que tous les nœuds refassent tout.
+ *
+ * Un bail n'est pas rendu à la fin de la tâche : il couvre la période de la tâche
+ * (durée choisie un peu plus courte que l'intervalle entre deux exécutions), ce qui empêche
+ * un nœud en retard de la relancer. Une tâche longue dont la reprise ne doit pas attendre
+ * la période suivante si son nœud s'arrête prend plutôt un bail court, prolongé au fil
+ * de son avancement ({@link #prolonger}).
+ */
+@Service
+public class CoordinateurTaches {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoordinateurTaches.class);
+
+    private final BailTacheRepository bailTacheRepository;
+    private final String noeud;
+
+    public CoordinateurTaches(BailTacheRepository bailTacheRepository,
+                              @Value("${app.taches.noeud:}") String noeud) {
+        this.bailTacheRepository = bailTacheRepository;
+        this.noeud = noeud != null && !noeud.isBlank() ? noeud : identifiantNoeudParDefaut();
+    }
+
+    /**
+     * Tente d'obtenir le bail de la tâche pour la durée donnée.
+     *
+     * @return true si ce nœud détient le bail et doit exécuter la tâche
+     */
+    public boolean acquerir(String tache, Duration duree) {
+        long secondes = duree.toSeconds();
+
+        if (bailTacheRepository.prendre(tache, noeud, secondes) == 1) {
+            return true;
+        }
+        if (bailTacheRepository.existsById(tache)) {
+            logger.debug("Tâche {} déjà prise par un autre nœud", tache);
+            return false;
+        }
+        try {
+            return bailTacheRepository.creer(tache, noeud, secondes) == 1;
+        } catch (DataIntegrityViolationException e) {
+            // Un autre nœud a créé le bail en même temps
+            return false;
+        }
+    }
+
+    /**
+     * Prolonge le bail détenu par ce nœud (battement de cœur d'une tâche longue).
+     *
+     * @return false si le bail a été perdu : la tâche doit s'arrêter, un autre nœud a pu la reprendre
+     */
+    public boolean prolonger(String tache, Duration duree) {
+        return bailTacheRepository.prolonger(tache, noeud, duree.toSeconds()) == 1;
+    }
+
+    /**
+     * Nom du bail d'une partition de tâche.
+     */
+    public static String partition(String tache, long numero) {
+        return tache + "#" + numero;
+    }
+
+    public String getNoeud() {
+        return noeud;
+    }
+
+    private static String identifiantNoeudParDefaut() {
+        String hote;
+        try {
+            hote = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            hote = "inconnu";
+        }
+        // Suffixe aléatoire : deux processus sur le même hôte sont deux nœuds différents
+        String noeud = hote + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return noeud.length() > 100 ? noeud.substring(noeud.length() - 100) : noeud;
+    }
+}
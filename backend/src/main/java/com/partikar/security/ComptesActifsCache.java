@@ -0,0 +1,58 @@
+package com.partikar.security;
+
+import com.partikar.user.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache à durée de vie courte de l'état des comptes, consulté par JwtAuthFilter :
+ * un token n'est accepté que si son compte existe toujours avec le même email.
+ * La base n'est interrogée qu'une fois par utilisateur et par période de validité du cache,
+ * au lieu d'une fois par requête.
+ */
+@Component
+public class ComptesActifsCache {
+
+    /** Au-delà, les entrées expirées sont purgées (et tout le cache si cela ne suffit pas) */
+    private static final int TAILLE_MAX = 10_000;
+
+    private record Entree(String email, long expireA) {}
+
+    private final UserRepository userRepository;
+    private final Map<Long, Entree> entrees = new ConcurrentHashMap<>();
+
+    @Value("${app.securite.cache-comptes.ttl-secondes:60}")
+    private long ttlSecondes;
+
+    public ComptesActifsCache(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * true si l'utilisateur existe toujours et que son email est celui du token.
+     */
+    public boolean estActif(Long utilisateurId, String email) {
+        long maintenant = System.currentTimeMillis();
+        Entree entree = entrees.get(utilisateurId);
+        if (entree == null || entree.expireA() < maintenant) {
+            Optional<String> emailActuel = userRepository.findEmailById(utilisateurId);
+            entree = new Entree(emailActuel.orElse(null), maintenant + ttlSecondes * 1000);
+            if (entrees.size() >= TAILLE_MAX) {
+                purger(maintenant);
+            }
+            entrees.put(utilisateurId, entree);
+        }
+        return email.equals(entree.email());
+    }
+
+    private void purger(long maintenant) {
+        entrees.values().removeIf(e -> e.expireA() < maintenant);
+        if (entrees.size() >= TAILLE_MAX) {
+            entrees.clear();
+        }
+    }
+}
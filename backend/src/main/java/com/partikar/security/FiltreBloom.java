@@ -0,0 +1,73 @@
+package com.partikar.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtre de Bloom sur des chaînes : "absent" est certain, "peut-être présent" doit être confirmé
+ * ailleurs (faux positifs au taux choisi tant que la capacité n'est pas dépassée).
+ * Ajouts et lectures concurrents possibles sans verrou.
+ */
+final class FiltreBloom {
+
+    private final AtomicLongArray mots;
+    private final int nbBits;
+    private final int nbHachages;
+
+    FiltreBloom(int capacite, double tauxFauxPositifs) {
+        int n = Math.max(1, capacite);
+        double bitsOptimal = -n * Math.log(tauxFauxPositifs) / (Math.log(2) * Math.log(2));
+        this.nbBits = (int) Math.max(64, Math.min(bitsOptimal, Integer.MAX_VALUE - 64));
+        this.nbHachages = Math.max(1, (int) Math.round((double) nbBits / n * Math.log(2)));
+        this.mots = new AtomicLongArray((nbBits + 63) / 64);
+    }
+
+    void ajouter(String cle) {
+        long hachage = hacher(cle);
+        int h1 = (int) hachage;
+        int h2 = (int) (hachage >>> 32);
+        for (int i = 0; i < nbHachages; i++) {
+            int bit = indice(h1 + i * h2);
+            long masque = 1L << bit;
+            int mot = bit >>> 6;
+            long valeur;
+            do {
+                valeur = mots.get(mot);
+                if ((valeur & masque) != 0) {
+                    break;
+                }
+            } while (!mots.compareAndSet(mot, valeur, valeur | masque));
+        }
+    }
+
+    boolean peutContenir(String cle) {
+        long hachage = hacher(cle);
+        int h1 = (int) hachage;
+        int h2 = (int) (hachage >>> 32);
+        for (int i = 0; i < nbHachages; i++) {
+            int bit = indice(h1 + i * h2);
+            if ((mots.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indice(int combine) {
+        return (combine & Integer.MAX_VALUE) % nbBits;
+    }
+
+    // FNV-1a 64 bits suivi du mélange final de MurmurHash3 (les deux moitiés servent de hachages indépendants)
+    private static long hacher(String cle) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < cle.length(); i++) {
+            h ^= cle.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,67 @@
+package com.partikar.security;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Jeton de rafraîchissement, échangé une seule fois contre une nouvelle paire de tokens (rotation).
+ * Seule l'empreinte SHA-256 du jeton est stockée.
+ */
+@Entity
+@Table(name = "jetons_rafraichissement", indexes = {
+        @Index(name = "uk_jetons_rafraichissement_hash", columnList = "hash", unique = true),
+        // Révocation de toutes les sessions d'un utilisateur
+        @Index(name = "idx_jetons_rafraichissement_utilisateur", columnList = "utilisateur_id"),
+        // Purge des jetons expirés
+        @Index(name = "idx_jetons_rafraichissement_expire_le", columnList = "expire_le")
+})
+public class JetonRafraichissement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "utilisateur_id", nullable = false)
+    private Long utilisateurId;
+
+    @Column(name = "hash", nullable = false, length = 64)
+    private String hash; // SHA-256 du jeton, en hexadécimal
+
+    @Column(name = "expire_le", nullable = false)
+    private LocalDateTime expireLe;
+
+    @Column(name = "revoque_le")
+    private LocalDateTime revoqueLe; // null tant que le jeton n'a été ni utilisé ni révoqué
+
+    @CreationTimestamp
+    @Column(name = "cree_le", nullable = false, updatable = false)
+    private LocalDateTime creeLe;
+
+    public JetonRafraichissement() {}
+
+    public JetonRafraichissement(Long utilisateurId, String hash, LocalDateTime expireLe) {
+        this.utilisateurId = utilisateurId;
+        this.hash = hash;
+        this.expireLe = expireLe;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUtilisateurId() { return utilisateurId; }
+    public void setUtilisateurId(Long utilisateurId) { this.utilisateurId = utilisateurId; }
+
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public LocalDateTime getExpireLe() { return expireLe; }
+    public void setExpireLe(LocalDateTime expireLe) { this.expireLe = expireLe; }
+
+    public LocalDateTime getRevoqueLe() { return revoqueLe; }
+    public void setRevoqueLe(LocalDateTime revoqueLe) { this.revoqueLe = revoqueLe; }
+
+    public LocalDateTime getCreeLe() { return creeLe; }
+    public void setCreeLe(LocalDateTime creeLe) { this.creeLe = creeLe; }
+}
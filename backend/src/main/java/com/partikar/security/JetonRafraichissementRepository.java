@@ -0,0 +1,32 @@
+package com.partikar.security;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface JetonRafraichissementRepository extends JpaRepository<JetonRafraichissement, Long> {
+
+    Optional<JetonRafraichissement> findByHash(String hash);
+
+    /**
+     * Marque le jeton comme utilisé, s'il ne l'est pas déjà (une seule rotation par jeton).
+     *
+     * @return 1 si ce jeton vient d'être consommé, 0 s'il l'avait déjà été
+     */
+    @Modifying
+    @Query("update JetonRafraichissement j set j.revoqueLe = :maintenant where j.id = :id and j.revoqueLe is null")
+    int consommer(@Param("id") Long id, @Param("maintenant") LocalDateTime maintenant);
+
+    @Modifying
+    @Query("update JetonRafraichissement j set j.revoqueLe = :maintenant "
+            + "where j.utilisateurId = :utilisateurId and j.revoqueLe is null")
+    int revoquerTous(@Param("utilisateurId") Long utilisateurId, @Param("maintenant") LocalDateTime maintenant);
+
+    @Modifying
+    @Query("delete from JetonRafraichissement j where j.expireLe < :limite")
+    int supprimerExpiresAvant(@Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,47 @@
+package com.partikar.security;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrée de la liste de révocation des tokens d'accès : un token (par son identifiant jti),
+ * ou tous les tokens d'un utilisateur émis avant la date de révocation.
+ * L'entrée peut être supprimée une fois les tokens concernés expirés.
+ */
+@Entity
+@Table(name = "jetons_revoques", indexes = {
+        // Mise à jour incrémentale de la liste en mémoire
+        @Index(name = "idx_jetons_revoques_revoque_le", columnList = "revoque_le"),
+        // Purge des entrées expirées
+        @Index(name = "idx_jetons_revoques_expire_le", columnList = "expire_le")
+})
+public class JetonRevoque {
+
+    @Id
+    @Column(name = "cle", length = 100)
+    private String cle; // jti du token, ou "utilisateur:<id>" pour tous ses tokens
+
+    @Column(name = "revoque_le", nullable = false)
+    private LocalDateTime revoqueLe;
+
+    @Column(name = "expire_le", nullable = false)
+    private LocalDateTime expireLe;
+
+    public JetonRevoque() {}
+
+    public JetonRevoque(String cle, LocalDateTime revoqueLe, LocalDateTime expireLe) {
+        this.cle = cle;
+        this.revoqueLe = revoqueLe;
+        this.expireLe = expireLe;
+    }
+
+    public String getCle() { return cle; }
+    public void setCle(String cle) { this.cle = cle; }
+
+    public LocalDateTime getRevoqueLe() { return revoqueLe; }
+    public void setRevoqueLe(LocalDateTime revoqueLe) { this.revoqueLe = revoqueLe; }
+
+    public LocalDateTime getExpireLe() { return expireLe; }
+    public void setExpireLe(LocalDateTime expireLe) { this.expireLe = expireLe; }
+}
@@ -0,0 +1,24 @@
+package com.partikar.security;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface JetonRevoqueRepository extends JpaRepository<JetonRevoque, String> {
+
+    /** Clés des entrées encore utiles (chargement complet de la liste en mémoire) */
+    @Query("select j.cle from JetonRevoque j where j.expireLe > :maintenant")
+    List<String> findClesNonExpirees(@Param("maintenant") LocalDateTime maintenant);
+
+    /** Clés révoquées depuis la date donnée (mise à jour incrémentale) */
+    @Query("select j.cle from JetonRevoque j where j.revoqueLe > :depuis")
+    List<String> findClesRevoqueesDepuis(@Param("depuis") LocalDateTime depuis);
+
+    @Modifying
+    @Query("delete from JetonRevoque j where j.expireLe < :limite")
+    int supprimerExpiresAvant(@Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,52 @@
+package com.partikar.security;
+
+import com.partikar.planification.CoordinateurTaches;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Service planifié qui supprime les jetons de rafraîchissement expirés et les révocations
+ * dont les tokens d'accès ont expiré.
+ */
+@Service
+public class JetonsExpiresScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(JetonsExpiresScheduler.class);
+
+    private static final String TACHE = "purge-jetons-expires";
+    private static final Duration BAIL = Duration.ofMinutes(50);
+
+    private final JetonRafraichissementRepository jetonRafraichissementRepository;
+    private final JetonRevoqueRepository jetonRevoqueRepository;
+    private final CoordinateurTaches coordinateurTaches;
+
+    public JetonsExpiresScheduler(JetonRafraichissementRepository jetonRafraichissementRepository,
+                                  JetonRevoqueRepository jetonRevoqueRepository,
+                                  CoordinateurTaches coordinateurTaches) {
+        this.jetonRafraichissementRepository = jetonRafraichissementRepository;
+        this.jetonRevoqueRepository = jetonRevoqueRepository;
+        this.coordinateurTaches = coordinateurTaches;
+    }
+
+    /**
+     * Tâche planifiée qui s'exécute toutes les heures (à hh:05).
+     */
+    @Scheduled(cron = "0 5 * * * *") // Toutes les heures à hh:05
+    @Transactional
+    public void purgerJetonsExpires() {
+        if (!coordinateurTaches.acquerir(TACHE, BAIL)) {
+            return; // Exécutée par un autre nœud
+        }
+        LocalDateTime maintenant = LocalDateTime.now();
+        int nbJetons = jetonRafraichissementRepository.supprimerExpiresAvant(maintenant);
+        int nbRevocations = jetonRevoqueRepository.supprimerExpiresAvant(maintenant);
+        logger.info("Jetons de rafraîchissement expirés supprimés: {}, révocations expirées supprimées: {}",
+                nbJetons, nbRevocations);
+    }
+}
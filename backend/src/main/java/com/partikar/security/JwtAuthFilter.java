@@ -1,28 +1,31 @@
 package com.partikar.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final ComptesActifsCache comptesActifsCache;
+    private final ListeRevocation listeRevocation;
 
-    public JwtAuthFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtAuthFilter(JwtService jwtService, ComptesActifsCache comptesActifsCache,
+                         ListeRevocation listeRevocation) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.comptesActifsCache = comptesActifsCache;
+        this.listeRevocation = listeRevocation;
     }
 
     @Override
@@ -38,7 +41,6 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userEmail;
 
         // Si pas de header ou s'il ne commence pas par "Bearer "
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -50,21 +52,22 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             // Extraire le token
             jwt = authHeader.substring(7);
 
-            // Extraire l'email du token
-            userEmail = jwtService.extractUsername(jwt);
+            // Vérifier la signature et l'expiration, et lire les claims (une seule analyse du token)
+            Claims claims = jwtService.extraireClaims(jwt);
+            String userEmail = claims.getSubject();
+            Long utilisateurId = claims.get(JwtService.CLAIM_UTILISATEUR_ID, Long.class);
 
-            // Si on a un email ET que l'utilisateur n'est pas déjà authentifié
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // Si le token identifie un utilisateur ET que l'utilisateur n'est pas déjà authentifié
+            if (userEmail != null && utilisateurId != null
+                    && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                // Charger l'utilisateur
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                // Token non révoqué (filtre en mémoire) et compte toujours actif (cache) : pas de requête à chaque appel
+                if (!listeRevocation.estRevoque(claims.getId(), utilisateurId, claims.getIssuedAt())
+                        && comptesActifsCache.estActif(utilisateurId, userEmail)) {
 
-                // Vérifier si le token est valide
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-
-                    // Authentifier l'utilisateur pour cette requête
+                    // Authentifier l'utilisateur pour cette requête, à partir des claims uniquement
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities()
+                            new UtilisateurConnecte(utilisateurId, userEmail), null, List.of()
                     );
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
@@ -1,57 +1,64 @@
 package com.partikar.security;
 
+import com.partikar.user.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
-import java.util.function.Function;
+import java.util.UUID;
 
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String SECRET_KEY;
+    /** Claim portant l'ID de l'utilisateur (le sujet est son email) */
+    public static final String CLAIM_UTILISATEUR_ID = "uid";
 
-    public String generateToken(UserDetails userDetails) {
-        return Jwts.builder()
-                .setSubject(userDetails.getUsername()) // Le "sujet" est l'email de l'utilisateur
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24)) // Expire dans 24h
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
-                .compact();
-    }
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
+    // Clé HMAC et parser construits une seule fois (le parser est immuable et thread-safe)
+    private final Key signingKey;
+    private final JwtParser parser;
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
+    // Durée de vie courte : le client renouvelle ses tokens avec son jeton de rafraîchissement
+    private final Duration dureeAcces;
 
+    public JwtService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${app.securite.jwt.duree-acces-minutes:15}") long dureeAccesMinutes) {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.dureeAcces = Duration.ofMinutes(dureeAccesMinutes);
+    }
 
-    private boolean isTokenExpired(String token) {
-        return extractClaim(token, Claims::getExpiration).before(new Date());
+    public String generateToken(User user) {
+        return Jwts.builder()
+                .setSubject(user.getEmail()) // Le "sujet" est l'email de l'utilisateur
+                .claim(CLAIM_UTILISATEUR_ID, user.getId())
+                .setId(UUID.randomUUID().toString()) // Identifiant (jti) utilisé par la liste de révocation
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + dureeAcces.toMillis()))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claimsResolver.apply(claims);
+    public Duration getDureeAcces() {
+        return dureeAcces;
     }
 
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * Vérifie la signature et l'expiration du token et renvoie ses claims, à réutiliser pour
+     * toutes les vérifications de la requête (sujet, ID utilisateur...).
+     *
+     * @throws io.jsonwebtoken.JwtException si le token est invalide ou expiré
+     */
+    public Claims extraireClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
-}
\ No newline at end of file
+}
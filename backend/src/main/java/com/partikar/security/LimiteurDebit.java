@@ -0,0 +1,121 @@
+package com.partikar.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limitation de débit des endpoints publics coûteux (recherche d'annonces, géocodage),
+ * par client (ID utilisateur si authentifié, sinon adresse IP) et par route.
+ *
+ * Chaque seau à jetons tient dans un seul AtomicLong : l'instant théorique où il sera de nouveau plein
+ * (algorithme GCRA, équivalent à un seau de {@code capacite} jetons rechargé de {@code parSeconde} jetons
+ * par seconde). Une requête acceptée ne coûte qu'un compareAndSet, sans verrou.
+ *
+ * Le nombre de seaux est borné : un seau plein est équivalent à un seau neuf et peut être supprimé ;
+ * si la table reste pleine, les nouveaux clients d'une route partagent un seau de débordement.
+ * Les refus sont comptés par route (métrique partikar.limite.debit.refus).
+ */
+@Component
+public class LimiteurDebit {
+
+    /** Au-delà, les seaux pleins sont purgés (puis seau de débordement si cela ne suffit pas) */
+    private static final int TAILLE_MAX = 100_000;
+
+    public record Regle(String nom, String methode, String chemin, int capacite, double parSeconde) {
+
+        long intervalleNanos() {
+            return (long) (TimeUnit.SECONDS.toNanos(1) / parSeconde);
+        }
+    }
+
+    private final List<Regle> regles;
+    private final Map<String, AtomicLong> seaux = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> seauxDebordement = new ConcurrentHashMap<>();
+    private final Map<String, Counter> refusParRegle = new ConcurrentHashMap<>();
+
+    public LimiteurDebit(MeterRegistry meterRegistry,
+                         @Value("${app.limites.recherche.capacite:20}") int capaciteRecherche,
+                         @Value("${app.limites.recherche.par-seconde:5}") double parSecondeRecherche,
+                         @Value("${app.limites.geocode.capacite:30}") int capaciteGeocode,
+                         @Value("${app.limites.geocode.par-seconde:10}") double parSecondeGeocode) {
+        this.regles = List.of(
+                new Regle("recherche", "POST", "/api/annonces/search", capaciteRecherche, parSecondeRecherche),
+                new Regle("geocode", "GET", "/api/geocode", capaciteGeocode, parSecondeGeocode));
+        for (Regle regle : regles) {
+            refusParRegle.put(regle.nom(), Counter.builder("partikar.limite.debit.refus")
+                    .description("Requêtes refusées par la limitation de débit")
+                    .tag("route", regle.nom())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Règle applicable à la requête, ou null si la route n'est pas limitée.
+     */
+    public Regle regle(String methode, String chemin) {
+        for (Regle regle : regles) {
+            if (regle.methode().equals(methode) && regle.chemin().equals(chemin)) {
+                return regle;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Consomme un jeton du seau du client pour la règle.
+     *
+     * @return 0 si la requête est acceptée, sinon le nombre de secondes avant de pouvoir réessayer
+     */
+    public long consommer(Regle regle, String client) {
+        long maintenant = System.nanoTime();
+        long intervalle = regle.intervalleNanos();
+        long tolerance = intervalle * regle.capacite();
+        AtomicLong seau = seau(regle, client);
+
+        while (true) {
+            long plein = seau.get();
+            long nouveau = Math.max(plein, maintenant) + intervalle;
+            long depassement = nouveau - maintenant - tolerance;
+            if (depassement > 0) {
+                refusParRegle.get(regle.nom()).increment();
+                return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(depassement + TimeUnit.SECONDS.toNanos(1) - 1));
+            }
+            if (seau.compareAndSet(plein, nouveau)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Supprime les seaux pleins (inutilisés depuis assez longtemps pour être rechargés).
+     */
+    @Scheduled(fixedDelay = 60_000) // Toutes les minutes
+    public void purgerSeauxPleins() {
+        long maintenant = System.nanoTime();
+        seaux.values().removeIf(seau -> seau.get() - maintenant <= 0);
+    }
+
+    private AtomicLong seau(Regle regle, String client) {
+        String cle = regle.nom() + "|" + client;
+        AtomicLong seau = seaux.get(cle);
+        if (seau != null) {
+            return seau;
+        }
+        if (seaux.size() >= TAILLE_MAX) {
+            purgerSeauxPleins();
+            if (seaux.size() >= TAILLE_MAX) {
+                return seauxDebordement.computeIfAbsent(regle.nom(), n -> new AtomicLong(Long.MIN_VALUE));
+            }
+        }
+        return seaux.computeIfAbsent(cle, c -> new AtomicLong(Long.MIN_VALUE));
+    }
+}
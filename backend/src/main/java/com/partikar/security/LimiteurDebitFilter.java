@@ -0,0 +1,60 @@
+package com.partikar.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Applique LimiteurDebit aux routes limitées (après JwtAuthFilter, pour identifier les utilisateurs connectés).
+ * Au-delà du débit autorisé : 429 avec l'en-tête Retry-After.
+ */
+@Component
+public class LimiteurDebitFilter extends OncePerRequestFilter {
+
+    private final LimiteurDebit limiteurDebit;
+
+    public LimiteurDebitFilter(LimiteurDebit limiteurDebit) {
+        this.limiteurDebit = limiteurDebit;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        LimiteurDebit.Regle regle = limiteurDebit.regle(request.getMethod(), request.getRequestURI());
+        if (regle == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long reessayerApres = limiteurDebit.consommer(regle, client(request));
+        if (reessayerApres > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(reessayerApres));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write("{\"message\":\"Trop de requêtes, veuillez réessayer plus tard\"}");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static String client(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof UtilisateurConnecte utilisateur) {
+            return "u:" + utilisateur.id();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,153 @@
+package com.partikar.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Liste de révocation des tokens d'accès, consultée par JwtAuthFilter à chaque requête.
+ *
+ * Les révocations sont stockées dans la table jetons_revoques ; chaque nœud en garde un filtre
+ * de Bloom en mémoire. Le cas courant (token non révoqué) est tranché par le filtre sans
+ * accès à la base ; seuls les "peut-être révoqué" sont confirmés par une requête.
+ *
+ * Le filtre est complété toutes les quelques secondes avec les révocations récentes (tous nœuds
+ * confondus) et reconstruit chaque heure sans les entrées expirées. Une révocation faite sur
+ * ce nœud y est ajoutée immédiatement après le commit.
+ */
+@Component
+public class ListeRevocation {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListeRevocation.class);
+
+    private static final String PREFIXE_UTILISATEUR = "utilisateur:";
+    private static final double TAUX_FAUX_POSITIFS = 0.01;
+
+    /** Recouvrement des mises à jour incrémentales (commits tardifs, horloges des nœuds) */
+    private static final long MARGE_SECONDES = 60;
+
+    private final JetonRevoqueRepository jetonRevoqueRepository;
+
+    // null tant que la liste n'a pas été chargée : toute vérification passe alors par la base
+    private volatile FiltreBloom filtre;
+    private LocalDateTime derniereMiseAJour; // Protégé par le verrou de l'instance
+
+    @Value("${app.securite.revocation.capacite:100000}")
+    private int capacite;
+
+    @Value("${app.securite.jwt.duree-acces-minutes:15}")
+    private long dureeAccesMinutes;
+
+    public ListeRevocation(JetonRevoqueRepository jetonRevoqueRepository) {
+        this.jetonRevoqueRepository = jetonRevoqueRepository;
+    }
+
+    /**
+     * true si le token (identifiant jti, utilisateur, date d'émission) a été révoqué.
+     */
+    public boolean estRevoque(String jti, Long utilisateurId, Date emisLe) {
+        FiltreBloom f = filtre;
+        if (jti != null && peutContenir(f, jti) && jetonRevoqueRepository.existsById(jti)) {
+            return true;
+        }
+        String cleUtilisateur = cleUtilisateur(utilisateurId);
+        if (!peutContenir(f, cleUtilisateur)) {
+            return false;
+        }
+        return jetonRevoqueRepository.findById(cleUtilisateur)
+                .map(r -> emisLe == null || !emisLe.toInstant().isAfter(r.getRevoqueLe().atZone(ZoneId.systemDefault()).toInstant()))
+                .orElse(false);
+    }
+
+    /**
+     * Révoque un token d'accès jusqu'à son expiration.
+     */
+    public void revoquerJeton(String jti, Date expiration) {
+        LocalDateTime expireLe = LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault());
+        jetonRevoqueRepository.save(new JetonRevoque(jti, LocalDateTime.now(), expireLe));
+        apresCommit(() -> ajouter(jti));
+    }
+
+    /**
+     * Révoque tous les tokens d'accès déjà émis pour l'utilisateur (les suivants restent valides).
+     */
+    public void revoquerUtilisateur(Long utilisateurId) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        String cle = cleUtilisateur(utilisateurId);
+        jetonRevoqueRepository.save(new JetonRevoque(cle, maintenant, maintenant.plusMinutes(dureeAccesMinutes)));
+        apresCommit(() -> ajouter(cle));
+    }
+
+    /**
+     * Reconstruit le filtre à partir des révocations non expirées : au démarrage, puis toutes les heures
+     * (les entrées expirées en sortent, le filtre est redimensionné si la liste a grossi).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(4)
+    @Scheduled(cron = "0 10 * * * *") // Toutes les heures à hh:10
+    public synchronized void reconstruire() {
+        LocalDateTime debut = LocalDateTime.now();
+        List<String> cles = jetonRevoqueRepository.findClesNonExpirees(debut);
+        FiltreBloom nouveau = new FiltreBloom(Math.max(capacite, cles.size() * 2), TAUX_FAUX_POSITIFS);
+        cles.forEach(nouveau::ajouter);
+        filtre = nouveau;
+        derniereMiseAJour = debut;
+        logger.info("Liste de révocation chargée: {} entrées", cles.size());
+    }
+
+    /**
+     * Ajoute au filtre les révocations faites depuis la dernière mise à jour, sur tous les nœuds.
+     */
+    @Scheduled(fixedDelayString = "${app.securite.revocation.rafraichissement-ms:5000}",
+            initialDelayString = "${app.securite.revocation.rafraichissement-ms:5000}")
+    public synchronized void mettreAJour() {
+        if (filtre == null) {
+            reconstruire();
+            return;
+        }
+        LocalDateTime debut = LocalDateTime.now();
+        List<String> cles = jetonRevoqueRepository.findClesRevoqueesDepuis(derniereMiseAJour.minusSeconds(MARGE_SECONDES));
+        cles.forEach(filtre::ajouter);
+        derniereMiseAJour = debut;
+    }
+
+    private void ajouter(String cle) {
+        FiltreBloom f = filtre;
+        if (f != null) {
+            f.ajouter(cle);
+        }
+    }
+
+    private static boolean peutContenir(FiltreBloom f, String cle) {
+        return f == null || f.peutContenir(cle);
+    }
+
+    private static String cleUtilisateur(Long utilisateurId) {
+        return PREFIXE_UTILISATEUR + utilisateurId;
+    }
+
+    private void apresCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -27,10 +27,13 @@ import java.util.List;
 public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
+    private final LimiteurDebitFilter limiteurDebitFilter;
     private final UserDetailsService userDetailsService;
 
-    public SecurityConfig(JwtAuthFilter jwtAuthFilter, UserDetailsServiceImpl userDetailsService) {
+    public SecurityConfig(JwtAuthFilter jwtAuthFilter, LimiteurDebitFilter limiteurDebitFilter,
+                          UserDetailsServiceImpl userDetailsService) {
         this.jwtAuthFilter = jwtAuthFilter;
+        this.limiteurDebitFilter = limiteurDebitFilter;
         this.userDetailsService = userDetailsService;
     }
 
@@ -98,6 +101,8 @@ public class SecurityConfig {
                 )
                 .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // Limitation de débit après l'authentification (seau par utilisateur connecté, sinon par IP)
+                .addFilterAfter(limiteurDebitFilter, JwtAuthFilter.class)
                 .build();
     }
 }
\ No newline at end of file
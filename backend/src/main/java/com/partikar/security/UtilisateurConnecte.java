@@ -0,0 +1,15 @@
+package com.partikar.security;
+
+import java.security.Principal;
+
+/**
+ * Utilisateur authentifié par un JWT, construit uniquement à partir des claims du token.
+ * getName() renvoie l'email : Authentication.getName() continue de fonctionner partout.
+ */
+public record UtilisateurConnecte(Long id, String email) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,65 @@
+package com.partikar.security;
+
+import com.partikar.user.User;
+import com.partikar.user.UserRepository;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Utilisateur authentifié de la requête en cours.
+ *
+ * L'ID est lu dans le principal construit par JwtAuthFilter (claims du token) : aucune requête.
+ * Pour une authentification sans ID (autre mécanisme, tests), l'ID est cherché une seule fois
+ * par email puis mémorisé dans le contexte de sécurité de la requête.
+ * L'entité User n'est chargée que si l'appelant en a besoin ({@link #charger()}).
+ */
+@Component
+public class UtilisateurCourant {
+
+    private final UserRepository userRepository;
+
+    public UtilisateurCourant(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * @throws RuntimeException si aucun utilisateur n'est authentifié
+     */
+    public Long id() {
+        return resoudre().id();
+    }
+
+    public String email() {
+        return resoudre().email();
+    }
+
+    /**
+     * Charge l'entité User de l'utilisateur authentifié.
+     */
+    public User charger() {
+        return userRepository.findById(id())
+                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+    }
+
+    private UtilisateurConnecte resoudre() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth.getName() == null || auth instanceof AnonymousAuthenticationToken) {
+            throw new RuntimeException("Utilisateur non authentifié");
+        }
+        if (auth.getPrincipal() instanceof UtilisateurConnecte utilisateur) {
+            return utilisateur;
+        }
+
+        Long id = userRepository.findIdByEmail(auth.getName())
+                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+        UtilisateurConnecte utilisateur = new UtilisateurConnecte(id, auth.getName());
+        UsernamePasswordAuthenticationToken resolue =
+                new UsernamePasswordAuthenticationToken(utilisateur, auth.getCredentials(), auth.getAuthorities());
+        resolue.setDetails(auth.getDetails());
+        SecurityContextHolder.getContext().setAuthentication(resolue);
+        return utilisateur;
+    }
+}
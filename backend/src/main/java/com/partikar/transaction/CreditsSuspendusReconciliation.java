@@ -0,0 +1,59 @@
+package com.partikar.transaction;
+
+import com.partikar.user.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Vérifie que le solde credits_suspendus de chaque utilisateur correspond à la somme
+ * de ses transactions EN_ATTENTE, et corrige les écarts (en les signalant dans les logs).
+ * Chaque correction est enregistrée dans le grand livre, dans la même transaction.
+ * Exécutée au démarrage (initialise le solde des utilisateurs existants) puis chaque nuit,
+ * par GrandLivreScheduler.
+ */
+@Service
+public class CreditsSuspendusReconciliation {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreditsSuspendusReconciliation.class);
+
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+    private final GrandLivreService grandLivreService;
+
+    public CreditsSuspendusReconciliation(TransactionRepository transactionRepository,
+                                          UserRepository userRepository,
+                                          GrandLivreService grandLivreService) {
+        this.transactionRepository = transactionRepository;
+        this.userRepository = userRepository;
+        this.grandLivreService = grandLivreService;
+    }
+
+    @Transactional
+    public int reconcilier() {
+        List<Object[]> ecarts = transactionRepository.findEcartsCreditsSuspendus();
+        int nbCorriges = 0;
+
+        for (Object[] ecart : ecarts) {
+            Long utilisateurId = (Long) ecart[0];
+            BigDecimal soldeMaintenu = (BigDecimal) ecart[1];
+            BigDecimal soldeAttendu = (BigDecimal) ecart[2];
+
+            logger.warn("Écart de crédits suspendus pour l'utilisateur {}: maintenu={}, transactions EN_ATTENTE={}",
+                    utilisateurId, soldeMaintenu, soldeAttendu);
+            // Solde modifié depuis la lecture (réservation en cours) : vérifié à la prochaine exécution
+            if (userRepository.corrigerCreditsSuspendus(utilisateurId, soldeMaintenu, soldeAttendu) == 0) {
+                continue;
+            }
+            grandLivreService.enregistrerCorrectionSuspendu(utilisateurId, soldeAttendu.subtract(soldeMaintenu));
+            nbCorriges++;
+        }
+
+        logger.info("Réconciliation des crédits suspendus terminée: {} écarts, {} corrigés", ecarts.size(), nbCorriges);
+        return nbCorriges;
+    }
+}
@@ -0,0 +1,77 @@
+package com.partikar.transaction;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Écriture du grand livre des crédits (partie double, en ajout seul : jamais modifiée ni supprimée).
+ *
+ * Chaque mouvement est un ensemble d'écritures de même référence dont la somme vaut 0.
+ * Comptes d'un utilisateur : DISPONIBLE et SUSPENDU (User.credits = DISPONIBLE + SUSPENDU,
+ * User.creditsSuspendus = SUSPENDU). Le compte EXTERNE (sans utilisateur) est la contrepartie
+ * des crédits qui entrent dans la plateforme.
+ */
+@Entity
+@Immutable
+@Table(name = "ecritures", indexes = {
+        // Solde d'un utilisateur depuis son dernier instantané
+        @Index(name = "idx_ecritures_utilisateur_id", columnList = "utilisateur_id, id"),
+        @Index(name = "idx_ecritures_mouvement", columnList = "mouvement")
+})
+public class Ecriture {
+
+    public enum Compte {
+        DISPONIBLE,
+        SUSPENDU,
+        EXTERNE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Référence du mouvement, ex: "SUSPENSION-42" (42 = ID de la Transaction) */
+    @Column(name = "mouvement", nullable = false, length = 64)
+    private String mouvement;
+
+    /** null pour le compte EXTERNE */
+    @Column(name = "utilisateur_id")
+    private Long utilisateurId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "compte", nullable = false, length = 16)
+    private Compte compte;
+
+    /** Positif = le compte augmente, négatif = il diminue */
+    @Column(name = "montant", nullable = false, precision = 12, scale = 2)
+    private BigDecimal montant;
+
+    @Column(name = "location_id")
+    private Long locationId;
+
+    @Column(name = "cree_le", nullable = false, updatable = false)
+    private LocalDateTime creeLe;
+
+    protected Ecriture() {}
+
+    public Ecriture(String mouvement, Long utilisateurId, Compte compte, BigDecimal montant,
+                    Long locationId, LocalDateTime creeLe) {
+        this.mouvement = mouvement;
+        this.utilisateurId = utilisateurId;
+        this.compte = compte;
+        this.montant = montant;
+        this.locationId = locationId;
+        this.creeLe = creeLe;
+    }
+
+    public Long getId() { return id; }
+    public String getMouvement() { return mouvement; }
+    public Long getUtilisateurId() { return utilisateurId; }
+    public Compte getCompte() { return compte; }
+    public BigDecimal getMontant() { return montant; }
+    public Long getLocationId() { return locationId; }
+    public LocalDateTime getCreeLe() { return creeLe; }
+}
@@ -0,0 +1,106 @@
+package com.partikar.transaction;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface EcritureRepository extends JpaRepository<Ecriture, Long> {
+
+    // Variation des comptes (DISPONIBLE, SUSPENDU) d'un utilisateur sur les écritures après un ID, jusqu'à une date
+    @Query("select coalesce(sum(case when e.compte = com.partikar.transaction.Ecriture.Compte.DISPONIBLE then e.montant else 0 end), 0), " +
+           "       coalesce(sum(case when e.compte = com.partikar.transaction.Ecriture.Compte.SUSPENDU then e.montant else 0 end), 0) " +
+           "from Ecriture e where e.utilisateurId = :utilisateurId and e.id > :apresId and e.creeLe <= :date")
+    List<Object[]> sommerDepuis(@Param("utilisateurId") Long utilisateurId,
+                                @Param("apresId") Long apresId,
+                                @Param("date") LocalDateTime date);
+
+    // Somme de toutes les écritures : 0 si chaque mouvement est équilibré
+    @Query("select coalesce(sum(e.montant), 0) from Ecriture e")
+    BigDecimal sommeTotale();
+
+    @Query("select coalesce(max(e.id), 0) from Ecriture e where e.creeLe < :limite")
+    Long findDernierIdAvant(@Param("limite") LocalDateTime limite);
+
+    // Utilisateurs qui n'ont encore aucune écriture (créés avant le grand livre)
+    @Query("select u.id from User u where not exists (select 1 from Ecriture e where e.utilisateurId = u.id)")
+    List<Long> findUtilisateursSansEcriture();
+
+    // Libération en masse des crédits suspendus de transactions EN_ATTENTE (à exécuter avant de les annuler) :
+    // une écriture SUSPENDU (-m) et une écriture DISPONIBLE (+m) par transaction
+    @Modifying
+    @Query("insert into Ecriture (mouvement, utilisateurId, compte, montant, locationId, creeLe) " +
+           "select concat('LIBERATION-', t.id), t.utilisateur.id, com.partikar.transaction.Ecriture.Compte.SUSPENDU, " +
+           "       t.montant, t.location.id, :maintenant " +
+           "from Transaction t where t.location.id in :locationIds and t.statut = 'EN_ATTENTE'")
+    int insererLiberationsSuspendu(@Param("locationIds") Collection<Long> locationIds,
+                                   @Param("maintenant") LocalDateTime maintenant);
+
+    @Modifying
+    @Query("insert into Ecriture (mouvement, utilisateurId, compte, montant, locationId, creeLe) " +
+           "select concat('LIBERATION-', t.id), t.utilisateur.id, com.partikar.transaction.Ecriture.Compte.DISPONIBLE, " +
+           "       -t.montant, t.location.id, :maintenant " +
+           "from Transaction t where t.location.id in :locationIds and t.statut = 'EN_ATTENTE'")
+    int insererLiberationsDisponible(@Param("locationIds") Collection<Long> locationIds,
+                                     @Param("maintenant") LocalDateTime maintenant);
+
+    // Écritures d'ouverture : reprennent le solde actuel des utilisateurs sans écriture
+    @Modifying
+    @Query("insert into Ecriture (mouvement, utilisateurId, compte, montant, locationId, creeLe) " +
+           "select concat('OUVERTURE-', u.id), u.id, com.partikar.transaction.Ecriture.Compte.DISPONIBLE, " +
+           "       u.credits - u.creditsSuspendus, null, :maintenant " +
+           "from User u where u.id in :ids")
+    int insererOuverturesDisponible(@Param("ids") Collection<Long> ids, @Param("maintenant") LocalDateTime maintenant);
+
+    @Modifying
+    @Query("insert into Ecriture (mouvement, utilisateurId, compte, montant, locationId, creeLe) " +
+           "select concat('OUVERTURE-', u.id), u.id, com.partikar.transaction.Ecriture.Compte.SUSPENDU, " +
+           "       u.creditsSuspendus, null, :maintenant " +
+           "from User u where u.id in :ids")
+    int insererOuverturesSuspendu(@Param("ids") Collection<Long> ids, @Param("maintenant") LocalDateTime maintenant);
+
+    @Modifying
+    @Query("insert into Ecriture (mouvement, utilisateurId, compte, montant, locationId, creeLe) " +
+           "select concat('OUVERTURE-', u.id), null, com.partikar.transaction.Ecriture.Compte.EXTERNE, " +
+           "       -u.credits, null, :maintenant " +
+           "from User u where u.id in :ids")
+    int insererOuverturesExterne(@Param("ids") Collection<Long> ids, @Param("maintenant") LocalDateTime maintenant);
+
+    // Nouveaux instantanés : dernier instantané de chaque utilisateur + ses écritures dans ]dernier, borne].
+    // Pas de borne inférieure commune à tous les utilisateurs : les IDs ne sont pas attribués dans l'ordre
+    // des commits, chaque utilisateur repart de son propre dernier instantané (idx_ecritures_utilisateur_id)
+    @Modifying
+    @Query(value = "INSERT INTO soldes_instantanes " +
+                   "(utilisateur_id, derniere_ecriture_id, solde_disponible, solde_suspendu, cree_le) " +
+                   "SELECT e.utilisateur_id, MAX(e.id), " +
+                   "       COALESCE(s.solde_disponible, 0) + SUM(CASE WHEN e.compte = 'DISPONIBLE' THEN e.montant ELSE 0 END), " +
+                   "       COALESCE(s.solde_suspendu, 0) + SUM(CASE WHEN e.compte = 'SUSPENDU' THEN e.montant ELSE 0 END), " +
+                   "       :maintenant " +
+                   "FROM ecritures e " +
+                   "LEFT JOIN soldes_instantanes s ON s.id = " +
+                   "    (SELECT MAX(s2.id) FROM soldes_instantanes s2 WHERE s2.utilisateur_id = e.utilisateur_id) " +
+                   "WHERE e.utilisateur_id IS NOT NULL " +
+                   "  AND e.id > COALESCE(s.derniere_ecriture_id, 0) AND e.id <= :borne " +
+                   "GROUP BY e.utilisateur_id, s.solde_disponible, s.solde_suspendu",
+           nativeQuery = true)
+    int creerInstantanes(@Param("borne") Long borne, @Param("maintenant") LocalDateTime maintenant);
+
+    // Vérification : soldes recalculés depuis toutes les écritures, pour une tranche d'utilisateurs
+    // (utilisateurId, credits, creditsSuspendus, somme DISPONIBLE, somme SUSPENDU)
+    @Query(value = "SELECT u.id, u.credits, u.credits_suspendus, " +
+                   "       COALESCE(SUM(CASE WHEN e.compte = 'DISPONIBLE' THEN e.montant ELSE 0 END), 0), " +
+                   "       COALESCE(SUM(CASE WHEN e.compte = 'SUSPENDU' THEN e.montant ELSE 0 END), 0) " +
+                   "FROM utilisateurs u LEFT JOIN ecritures e ON e.utilisateur_id = u.id " +
+                   "WHERE u.id BETWEEN :debut AND :fin " +
+                   "GROUP BY u.id, u.credits, u.credits_suspendus",
+           nativeQuery = true)
+    List<Object[]> recalculerSoldes(@Param("debut") Long debut, @Param("fin") Long fin);
+
+    @Query("select coalesce(min(u.id), 0), coalesce(max(u.id), 0) from User u")
+    List<Object[]> findBornesUtilisateurs();
+}
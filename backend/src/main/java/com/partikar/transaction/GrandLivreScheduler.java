@@ -0,0 +1,93 @@
+package com.partikar.transaction;
+
+import com.partikar.planification.CoordinateurTaches;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Tâches planifiées des crédits : réconciliation des crédits suspendus et ouverture des comptes
+ * du grand livre au démarrage, réconciliation nocturne, instantanés de soldes et vérification
+ * complète des soldes. Chaque tâche n'est exécutée que par le nœud qui obtient son bail.
+ */
+@Service
+public class GrandLivreScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(GrandLivreScheduler.class);
+
+    private static final Duration BAIL_DEMARRAGE = Duration.ofMinutes(10);
+    private static final Duration BAIL_HORAIRE = Duration.ofMinutes(50);
+    private static final Duration BAIL_QUOTIDIEN = Duration.ofHours(20);
+
+    private final GrandLivreService grandLivreService;
+    private final CreditsSuspendusReconciliation creditsSuspendusReconciliation;
+    private final CoordinateurTaches coordinateurTaches;
+
+    public GrandLivreScheduler(GrandLivreService grandLivreService,
+                               CreditsSuspendusReconciliation creditsSuspendusReconciliation,
+                               CoordinateurTaches coordinateurTaches) {
+        this.grandLivreService = grandLivreService;
+        this.creditsSuspendusReconciliation = creditsSuspendusReconciliation;
+        this.coordinateurTaches = coordinateurTaches;
+    }
+
+    /**
+     * Au démarrage : reprend le solde des utilisateurs qui n'ont encore aucune écriture, puis
+     * initialise credits_suspendus des utilisateurs existants (corrections enregistrées
+     * dans le grand livre, donc après l'ouverture des comptes).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void ouvrirComptes() {
+        if (!coordinateurTaches.acquerir("demarrage-credits", BAIL_DEMARRAGE)) {
+            return; // Exécutée par un autre nœud
+        }
+        int nbOuverts = grandLivreService.ouvrirComptesManquants();
+        logger.info("Grand livre: {} comptes ouverts", nbOuverts);
+        creditsSuspendusReconciliation.reconcilier();
+    }
+
+    /**
+     * Tâche planifiée qui s'exécute tous les jours à 3h30.
+     */
+    @Scheduled(cron = "0 30 3 * * *") // Tous les jours à 3h30
+    public void reconcilierCreditsSuspendus() {
+        if (coordinateurTaches.acquerir("reconciliation-credits-suspendus", BAIL_QUOTIDIEN)) {
+            creditsSuspendusReconciliation.reconcilier();
+        }
+    }
+
+    /**
+     * Tâche planifiée qui s'exécute toutes les heures (à hh:50).
+     */
+    @Scheduled(cron = "0 50 * * * *") // Toutes les heures à hh:50
+    public void creerInstantanes() {
+        if (!coordinateurTaches.acquerir("instantanes-soldes", BAIL_HORAIRE)) {
+            return; // Exécutée par un autre nœud
+        }
+        long debut = System.currentTimeMillis();
+        int nbInstantanes = grandLivreService.creerInstantanes();
+        logger.info("Grand livre: {} instantanés de soldes créés en {} ms",
+                nbInstantanes, System.currentTimeMillis() - debut);
+    }
+
+    /**
+     * Tâche planifiée qui s'exécute tous les jours à 4h du matin.
+     */
+    @Scheduled(cron = "0 0 4 * * *") // Tous les jours à 4h00
+    public void verifierSoldes() {
+        if (!coordinateurTaches.acquerir("verification-soldes", BAIL_QUOTIDIEN)) {
+            return; // Exécutée par un autre nœud
+        }
+        long debut = System.currentTimeMillis();
+        int nbEcarts = grandLivreService.verifierSoldes();
+        logger.info("Grand livre: vérification terminée en {} ms, {} soldes en écart",
+                System.currentTimeMillis() - debut, nbEcarts);
+    }
+}
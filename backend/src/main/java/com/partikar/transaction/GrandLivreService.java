@@ -0,0 +1,245 @@
+package com.partikar.transaction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Grand livre des crédits en partie double : chaque mouvement de crédits est enregistré
+ * par des écritures équilibrées, dans la même transaction que la mise à jour de User.credits.
+ * Le solde d'un utilisateur à une date se lit depuis son dernier instantané + les écritures suivantes.
+ */
+@Service
+public class GrandLivreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GrandLivreService.class);
+
+    private final EcritureRepository ecritureRepository;
+    private final SoldeInstantaneRepository soldeInstantaneRepository;
+
+    /**
+     * Écritures plus récentes que ce délai exclues des instantanés (transactions pas encore commitées).
+     * Un instantané couvre les écritures de l'utilisateur jusqu'à son derniere_ecriture_id : une écriture
+     * d'ID inférieur commitée plus tard ne serait jamais comptée. Le délai doit donc dépasser la durée
+     * maximale d'une transaction (spring.transaction.default-timeout), vérifié au démarrage.
+     */
+    private final Duration delaiInstantane;
+
+    @Value("${app.grand-livre.verification.threads:4}")
+    private int nbThreadsVerification;
+
+    @Value("${app.grand-livre.verification.taille-tranche:10000}")
+    private long tailleTrancheVerification;
+
+    public GrandLivreService(EcritureRepository ecritureRepository,
+                             SoldeInstantaneRepository soldeInstantaneRepository,
+                             @Value("${app.grand-livre.instantane.delai-secondes:300}") long delaiInstantaneSecondes,
+                             @Value("${spring.transaction.default-timeout:-1s}") Duration dureeMaxTransaction) {
+        if (dureeMaxTransaction.isNegative() || dureeMaxTransaction.isZero()
+                || dureeMaxTransaction.getSeconds() >= delaiInstantaneSecondes) {
+            throw new IllegalStateException("spring.transaction.default-timeout (" + dureeMaxTransaction
+                    + ") doit être défini et inférieur à app.grand-livre.instantane.delai-secondes ("
+                    + delaiInstantaneSecondes + " s)");
+        }
+        this.ecritureRepository = ecritureRepository;
+        this.soldeInstantaneRepository = soldeInstantaneRepository;
+        this.delaiInstantane = Duration.ofSeconds(delaiInstantaneSecondes);
+    }
+
+    /**
+     * Crédits de départ donnés à un nouvel utilisateur.
+     */
+    @Transactional
+    public void enregistrerDotation(Long utilisateurId, BigDecimal montant) {
+        enregistrer("DOTATION-" + utilisateurId, null,
+                ecriture(null, Ecriture.Compte.EXTERNE, montant.negate()),
+                ecriture(utilisateurId, Ecriture.Compte.DISPONIBLE, montant));
+    }
+
+    /**
+     * Blocage d'un montant pour une demande de réservation.
+     */
+    @Transactional
+    public void enregistrerSuspension(Long transactionId, Long locataireId, Long locationId, BigDecimal montant) {
+        enregistrer("SUSPENSION-" + transactionId, locationId,
+                ecriture(locataireId, Ecriture.Compte.DISPONIBLE, montant.negate()),
+                ecriture(locataireId, Ecriture.Compte.SUSPENDU, montant));
+    }
+
+    /**
+     * Paiement d'une réservation confirmée : le montant bloqué du locataire va au propriétaire.
+     */
+    @Transactional
+    public void enregistrerPaiement(Long transactionId, Long locataireId, Long proprietaireId,
+                                    Long locationId, BigDecimal montant) {
+        enregistrer("PAIEMENT-" + transactionId, locationId,
+                ecriture(locataireId, Ecriture.Compte.SUSPENDU, montant.negate()),
+                ecriture(proprietaireId, Ecriture.Compte.DISPONIBLE, montant));
+    }
+
+    /**
+     * Déblocage d'un montant (demande refusée, annulée ou expirée).
+     */
+    @Transactional
+    public void enregistrerLiberation(Long transactionId, Long locataireId, Long locationId, BigDecimal montant) {
+        enregistrer("LIBERATION-" + transactionId, locationId,
+                ecriture(locataireId, Ecriture.Compte.SUSPENDU, montant.negate()),
+                ecriture(locataireId, Ecriture.Compte.DISPONIBLE, montant));
+    }
+
+    /**
+     * Correction de credits_suspendus par la réconciliation : l'écart passe du compte DISPONIBLE
+     * au compte SUSPENDU (positif) ou l'inverse (négatif), User.credits restant inchangé.
+     */
+    @Transactional
+    public void enregistrerCorrectionSuspendu(Long utilisateurId, BigDecimal ecart) {
+        enregistrer("CORRECTION-SUSPENDU-" + utilisateurId, null,
+                ecriture(utilisateurId, Ecriture.Compte.DISPONIBLE, ecart.negate()),
+                ecriture(utilisateurId, Ecriture.Compte.SUSPENDU, ecart));
+    }
+
+    /**
+     * Déblocage en masse des transactions EN_ATTENTE de ces locations (à appeler avant de les annuler).
+     */
+    @Transactional
+    public void enregistrerLiberations(Collection<Long> locationIds) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        ecritureRepository.insererLiberationsSuspendu(locationIds, maintenant);
+        ecritureRepository.insererLiberationsDisponible(locationIds, maintenant);
+    }
+
+    /**
+     * Écritures d'ouverture pour les utilisateurs qui n'en ont pas encore :
+     * reprennent leurs soldes actuels (contrepartie sur le compte EXTERNE).
+     *
+     * @return nombre d'utilisateurs ouverts
+     */
+    @Transactional
+    public int ouvrirComptesManquants() {
+        List<Long> ids = ecritureRepository.findUtilisateursSansEcriture();
+        LocalDateTime maintenant = LocalDateTime.now();
+        for (int i = 0; i < ids.size(); i += 1000) {
+            List<Long> tranche = ids.subList(i, Math.min(i + 1000, ids.size()));
+            ecritureRepository.insererOuverturesDisponible(tranche, maintenant);
+            ecritureRepository.insererOuverturesSuspendu(tranche, maintenant);
+            ecritureRepository.insererOuverturesExterne(tranche, maintenant);
+        }
+        return ids.size();
+    }
+
+    /**
+     * Soldes d'un utilisateur à une date : dernier instantané antérieur + écritures suivantes.
+     */
+    @Transactional(readOnly = true)
+    public SoldeCredits soldeA(Long utilisateurId, LocalDateTime date) {
+        SoldeCredits solde = SoldeCredits.ZERO;
+        long apresId = 0;
+
+        SoldeInstantane instantane = soldeInstantaneRepository
+                .findFirstByUtilisateurIdAndCreeLeLessThanEqualOrderByIdDesc(utilisateurId, date)
+                .orElse(null);
+        if (instantane != null) {
+            solde = new SoldeCredits(instantane.getSoldeDisponible(), instantane.getSoldeSuspendu());
+            apresId = instantane.getDerniereEcritureId();
+        }
+
+        Object[] variation = ecritureRepository.sommerDepuis(utilisateurId, apresId, date).get(0);
+        return solde.plus((BigDecimal) variation[0], (BigDecimal) variation[1]);
+    }
+
+    /**
+     * Crée un instantané pour chaque utilisateur ayant de nouvelles écritures depuis son dernier instantané.
+     *
+     * @return nombre d'instantanés créés
+     */
+    @Transactional
+    public int creerInstantanes() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        Long borne = ecritureRepository.findDernierIdAvant(maintenant.minus(delaiInstantane));
+        return ecritureRepository.creerInstantanes(borne, maintenant);
+    }
+
+    /**
+     * Recalcule le solde de chaque utilisateur depuis toutes ses écritures et le compare à User.credits
+     * et User.creditsSuspendus. Les utilisateurs sont découpés en tranches d'IDs vérifiées en parallèle.
+     *
+     * @return nombre d'utilisateurs dont le solde ne correspond pas au grand livre
+     */
+    public int verifierSoldes() {
+        BigDecimal sommeTotale = ecritureRepository.sommeTotale();
+        if (sommeTotale.signum() != 0) {
+            logger.error("Grand livre déséquilibré: somme des écritures = {}", sommeTotale);
+        }
+
+        Object[] bornes = ecritureRepository.findBornesUtilisateurs().get(0);
+        long premier = (Long) bornes[0];
+        long dernier = (Long) bornes[1];
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, nbThreadsVerification));
+        try {
+            List<Future<Integer>> tranches = new ArrayList<>();
+            for (long debut = premier; debut <= dernier; debut += tailleTrancheVerification) {
+                long fin = Math.min(dernier, debut + tailleTrancheVerification - 1);
+                long debutTranche = debut;
+                tranches.add(executor.submit(() -> verifierTranche(debutTranche, fin)));
+            }
+
+            int nbEcarts = 0;
+            for (Future<Integer> tranche : tranches) {
+                nbEcarts += tranche.get();
+            }
+            return nbEcarts;
+        } catch (Exception e) {
+            throw new RuntimeException("Erreur lors de la vérification du grand livre: " + e.getMessage(), e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private int verifierTranche(long debut, long fin) {
+        int nbEcarts = 0;
+        for (Object[] ligne : ecritureRepository.recalculerSoldes(debut, fin)) {
+            Long utilisateurId = ((Number) ligne[0]).longValue();
+            BigDecimal credits = (BigDecimal) ligne[1];
+            BigDecimal creditsSuspendus = (BigDecimal) ligne[2];
+            SoldeCredits grandLivre = new SoldeCredits((BigDecimal) ligne[3], (BigDecimal) ligne[4]);
+
+            if (credits.compareTo(grandLivre.credits()) != 0 || creditsSuspendus.compareTo(grandLivre.suspendu()) != 0) {
+                logger.error("Solde de l'utilisateur {} différent du grand livre: credits={}/{}, suspendus={}/{}",
+                        utilisateurId, credits, grandLivre.credits(), creditsSuspendus, grandLivre.suspendu());
+                nbEcarts++;
+            }
+        }
+        return nbEcarts;
+    }
+
+    private void enregistrer(String mouvement, Long locationId, Ecriture... ecritures) {
+        BigDecimal somme = BigDecimal.ZERO;
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<Ecriture> lignes = new ArrayList<>();
+        for (Ecriture e : ecritures) {
+            somme = somme.add(e.getMontant());
+            lignes.add(new Ecriture(mouvement, e.getUtilisateurId(), e.getCompte(), e.getMontant(), locationId, maintenant));
+        }
+        if (somme.signum() != 0) {
+            throw new RuntimeException("Mouvement déséquilibré " + mouvement + ": somme = " + somme);
+        }
+        ecritureRepository.saveAll(lignes);
+    }
+
+    private static Ecriture ecriture(Long utilisateurId, Ecriture.Compte compte, BigDecimal montant) {
+        return new Ecriture(null, utilisateurId, compte, montant, null, null);
+    }
+}
@@ -0,0 +1,131 @@
+package com.partikar.transaction;
+
+import com.partikar.security.UtilisateurCourant;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Historique des transactions de l'utilisateur authentifié, avec le solde de crédits après chaque transaction.
+ *
+ * Le solde est calculé en SQL par une fonction de fenêtre, ancré sur User.credits dans la même requête :
+ * solde après une transaction = crédits actuels - somme des transactions CONFIRMEE plus récentes.
+ * La fenêtre ne parcourt que les lignes demandées : une page est d'abord sélectionnée (index
+ * utilisateur_id, id), puis ancrée par une seule somme des transactions plus récentes que la page.
+ */
+@Service
+public class HistoriqueTransactionsService {
+
+    /** Taille maximale d'une page d'historique */
+    public static final int TAILLE_PAGE_MAX = 100;
+
+    /** Lignes lues par aller-retour avec la base lors d'un export */
+    private static final int TAILLE_FETCH_EXPORT = 500;
+
+    private static final String SOLDE_APRES =
+            "u.credits - COALESCE(SUM(CASE WHEN t.statut = 'CONFIRMEE' THEN t.montant ELSE 0 END) " +
+            "    OVER (ORDER BY t.id DESC ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING), 0)";
+
+    // Page suivante (plus récentes d'abord) : transactions d'ID inférieur au dernier reçu,
+    // ancrées sur la somme des transactions CONFIRMEE des pages précédentes
+    private static final String SQL_PAGE =
+            "SELECT t.id, t.location_id, t.type, t.statut, t.montant, t.cree_le, " +
+            "       " + SOLDE_APRES + " - a.total AS solde_apres " +
+            "FROM (SELECT p.id, p.utilisateur_id, p.location_id, p.type, p.statut, p.montant, p.cree_le " +
+            "      FROM transactions p WHERE p.utilisateur_id = ? AND p.id < ? ORDER BY p.id DESC LIMIT ?) t " +
+            "JOIN utilisateurs u ON u.id = t.utilisateur_id " +
+            "CROSS JOIN (SELECT COALESCE(SUM(r.montant), 0) AS total FROM transactions r " +
+            "            WHERE r.utilisateur_id = ? AND r.statut = 'CONFIRMEE' AND r.id >= ?) a " +
+            "ORDER BY t.id DESC";
+
+    // Export d'une période, dans l'ordre chronologique : la fenêtre part de la première transaction de la période
+    private static final String SQL_EXPORT =
+            "SELECT h.id, h.location_id, h.type, h.statut, h.montant, h.solde_apres, h.cree_le FROM (" +
+            "  SELECT t.id, t.location_id, t.type, t.statut, t.montant, t.cree_le, " + SOLDE_APRES + " AS solde_apres " +
+            "  FROM transactions t JOIN utilisateurs u ON u.id = t.utilisateur_id " +
+            "  WHERE t.utilisateur_id = ? AND t.id >= (SELECT MIN(d.id) FROM transactions d " +
+            "      WHERE d.utilisateur_id = ? AND d.cree_le >= ? AND d.cree_le < ?)" +
+            ") h WHERE h.cree_le >= ? AND h.cree_le < ? ORDER BY h.id";
+
+    private static final DateTimeFormatter FORMAT_DATE_CSV = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final RowMapper<LigneHistoriqueResponse> LIGNE_MAPPER = (rs, i) -> new LigneHistoriqueResponse(
+            rs.getLong("id"),
+            rs.getObject("location_id", Long.class),
+            rs.getString("type"),
+            rs.getString("statut"),
+            rs.getBigDecimal("montant"),
+            rs.getBigDecimal("solde_apres"),
+            rs.getTimestamp("cree_le").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UtilisateurCourant utilisateurCourant;
+
+    public HistoriqueTransactionsService(JdbcTemplate jdbcTemplate, UtilisateurCourant utilisateurCourant) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.utilisateurCourant = utilisateurCourant;
+    }
+
+    /**
+     * Page de l'historique, plus récentes d'abord.
+     *
+     * @param apresId ID de la dernière transaction de la page précédente (null pour la première page)
+     * @param taille nombre maximum de lignes renvoyées
+     */
+    @Transactional(readOnly = true)
+    public List<LigneHistoriqueResponse> getHistorique(Long apresId, int taille) {
+        Long utilisateurId = utilisateurCourant.id();
+        int limite = Math.max(1, Math.min(taille, TAILLE_PAGE_MAX));
+        long borne = apresId != null ? apresId : Long.MAX_VALUE;
+        return jdbcTemplate.query(SQL_PAGE, LIGNE_MAPPER, utilisateurId, borne, limite, utilisateurId, borne);
+    }
+
+    /**
+     * Écrit en CSV les transactions de la période [du, au] (bornes incluses), ligne par ligne
+     * depuis un curseur JDBC : l'historique n'est jamais chargé entièrement en mémoire.
+     */
+    @Transactional(readOnly = true) // curseur côté serveur (PostgreSQL) : nécessite une transaction
+    public void exporterCsv(LocalDate du, LocalDate au, Writer writer) {
+        Long utilisateurId = utilisateurCourant.id();
+        try {
+            writer.write("transaction_id;date;type;statut;montant;location_id;solde_apres\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SQL_EXPORT);
+            statement.setFetchSize(TAILLE_FETCH_EXPORT);
+            Timestamp debut = Timestamp.valueOf(du.atStartOfDay());
+            Timestamp fin = Timestamp.valueOf(au.plusDays(1).atStartOfDay());
+            statement.setLong(1, utilisateurId);
+            statement.setLong(2, utilisateurId);
+            statement.setTimestamp(3, debut);
+            statement.setTimestamp(4, fin);
+            statement.setTimestamp(5, debut);
+            statement.setTimestamp(6, fin);
+            return statement;
+        }, rs -> {
+            try {
+                writer.write(rs.getLong("id") + ";"
+                        + rs.getTimestamp("cree_le").toLocalDateTime().format(FORMAT_DATE_CSV) + ";"
+                        + rs.getString("type") + ";"
+                        + rs.getString("statut") + ";"
+                        + rs.getBigDecimal("montant").toPlainString() + ";"
+                        + (rs.getObject("location_id") != null ? rs.getLong("location_id") : "") + ";"
+                        + rs.getBigDecimal("solde_apres").toPlainString() + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
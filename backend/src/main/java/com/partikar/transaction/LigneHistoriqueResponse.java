@@ -0,0 +1,89 @@
+package com.partikar.transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO d'une ligne de l'historique des transactions, avec le solde de crédits après la transaction.
+ */
+public class LigneHistoriqueResponse {
+
+    private Long transactionId;
+    private Long locationId;
+    private String type;
+    private String statut;
+    private BigDecimal montant;
+    private BigDecimal soldeApres; // Crédits après cette transaction (seules les CONFIRMEE modifient le solde)
+    private LocalDateTime creeLe;
+
+    // Constructeurs
+    public LigneHistoriqueResponse() {}
+
+    public LigneHistoriqueResponse(Long transactionId, Long locationId, String type, String statut,
+                                   BigDecimal montant, BigDecimal soldeApres, LocalDateTime creeLe) {
+        this.transactionId = transactionId;
+        this.locationId = locationId;
+        this.type = type;
+        this.statut = statut;
+        this.montant = montant;
+        this.soldeApres = soldeApres;
+        this.creeLe = creeLe;
+    }
+
+    // Getters et Setters
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(Long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public Long getLocationId() {
+        return locationId;
+    }
+
+    public void setLocationId(Long locationId) {
+        this.locationId = locationId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getStatut() {
+        return statut;
+    }
+
+    public void setStatut(String statut) {
+        this.statut = statut;
+    }
+
+    public BigDecimal getMontant() {
+        return montant;
+    }
+
+    public void setMontant(BigDecimal montant) {
+        this.montant = montant;
+    }
+
+    public BigDecimal getSoldeApres() {
+        return soldeApres;
+    }
+
+    public void setSoldeApres(BigDecimal soldeApres) {
+        this.soldeApres = soldeApres;
+    }
+
+    public LocalDateTime getCreeLe() {
+        return creeLe;
+    }
+
+    public void setCreeLe(LocalDateTime creeLe) {
+        this.creeLe = creeLe;
+    }
+}
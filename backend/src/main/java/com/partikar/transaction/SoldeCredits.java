@@ -0,0 +1,20 @@
+package com.partikar.transaction;
+
+import java.math.BigDecimal;
+
+/**
+ * Soldes des comptes d'un utilisateur dans le grand livre.
+ * credits = disponible + suspendu (correspond à User.credits), suspendu correspond à User.creditsSuspendus.
+ */
+public record SoldeCredits(BigDecimal disponible, BigDecimal suspendu) {
+
+    public static final SoldeCredits ZERO = new SoldeCredits(BigDecimal.ZERO, BigDecimal.ZERO);
+
+    public BigDecimal credits() {
+        return disponible.add(suspendu);
+    }
+
+    public SoldeCredits plus(BigDecimal deltaDisponible, BigDecimal deltaSuspendu) {
+        return new SoldeCredits(disponible.add(deltaDisponible), suspendu.add(deltaSuspendu));
+    }
+}
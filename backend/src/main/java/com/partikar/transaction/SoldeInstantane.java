@@ -0,0 +1,47 @@
+package com.partikar.transaction;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Instantané du solde d'un utilisateur : soldes de ses comptes en tenant compte
+ * de toutes ses écritures jusqu'à derniereEcritureId inclus.
+ */
+@Entity
+@Immutable
+@Table(name = "soldes_instantanes", indexes = {
+        @Index(name = "idx_soldes_instantanes_utilisateur", columnList = "utilisateur_id, id")
+})
+public class SoldeInstantane {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "utilisateur_id", nullable = false)
+    private Long utilisateurId;
+
+    @Column(name = "derniere_ecriture_id", nullable = false)
+    private Long derniereEcritureId;
+
+    @Column(name = "solde_disponible", nullable = false, precision = 12, scale = 2)
+    private BigDecimal soldeDisponible;
+
+    @Column(name = "solde_suspendu", nullable = false, precision = 12, scale = 2)
+    private BigDecimal soldeSuspendu;
+
+    @Column(name = "cree_le", nullable = false, updatable = false)
+    private LocalDateTime creeLe;
+
+    protected SoldeInstantane() {}
+
+    public Long getId() { return id; }
+    public Long getUtilisateurId() { return utilisateurId; }
+    public Long getDerniereEcritureId() { return derniereEcritureId; }
+    public BigDecimal getSoldeDisponible() { return soldeDisponible; }
+    public BigDecimal getSoldeSuspendu() { return soldeSuspendu; }
+    public LocalDateTime getCreeLe() { return creeLe; }
+}
@@ -0,0 +1,12 @@
+package com.partikar.transaction;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface SoldeInstantaneRepository extends JpaRepository<SoldeInstantane, Long> {
+
+    Optional<SoldeInstantane> findFirstByUtilisateurIdAndCreeLeLessThanEqualOrderByIdDesc(Long utilisateurId,
+                                                                                          LocalDateTime date);
+}
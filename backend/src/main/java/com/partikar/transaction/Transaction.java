@@ -17,7 +17,14 @@ import java.time.LocalDateTime;
  * - montant positif => crédit (le solde de l'utilisateur augmente, ex: paiement propriétaire)
  */
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        // Confirmation / annulation des transactions d'une location
+        @Index(name = "idx_transactions_location", columnList = "location_id"),
+        // Réconciliation des crédits suspendus (transactions EN_ATTENTE par utilisateur)
+        @Index(name = "idx_transactions_utilisateur_statut", columnList = "utilisateur_id, statut"),
+        // Historique paginé et solde courant d'un utilisateur (ordre des IDs)
+        @Index(name = "idx_transactions_utilisateur_id", columnList = "utilisateur_id, id")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class Transaction {
 
@@ -0,0 +1,85 @@
+package com.partikar.transaction;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Contrôleur REST pour l'historique des transactions de l'utilisateur authentifié.
+ */
+@RestController
+@RequestMapping("/api/transactions")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:3000"})
+public class TransactionController {
+
+    private final HistoriqueTransactionsService historiqueTransactionsService;
+
+    public TransactionController(HistoriqueTransactionsService historiqueTransactionsService) {
+        this.historiqueTransactionsService = historiqueTransactionsService;
+    }
+
+    /**
+     * Récupère l'historique des transactions (plus récentes d'abord) avec le solde après chacune.
+     * GET /api/transactions/historique?taille=50
+     * Page suivante : apresId = transactionId du dernier élément reçu.
+     */
+    @GetMapping("/historique")
+    public ResponseEntity<?> getHistorique(
+            @RequestParam(required = false) Long apresId,
+            @RequestParam(defaultValue = "50") int taille) {
+        try {
+            List<LigneHistoriqueResponse> lignes = historiqueTransactionsService.getHistorique(apresId, taille);
+            return ResponseEntity.ok(lignes);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * Exporte en CSV les transactions d'une période (bornes incluses), écrit au fil de la lecture.
+     * GET /api/transactions/export?du=2025-01-01&au=2025-12-31
+     */
+    @GetMapping("/export")
+    public void exporterCsv(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate du,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate au,
+            HttpServletResponse response) throws IOException {
+        if (au.isBefore(du)) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "La date de fin doit être après la date de début");
+            return;
+        }
+
+        response.setContentType("text/csv; charset=UTF-8");
+        response.setHeader("Content-Disposition",
+                "attachment; filename=\"transactions_" + du + "_" + au + ".csv\"");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        Writer writer = response.getWriter();
+        historiqueTransactionsService.exporterCsv(du, au, writer);
+        writer.flush();
+    }
+
+    /**
+     * Classe interne pour les réponses d'erreur.
+     */
+    private static class ErrorResponse {
+        private final String message;
+
+        public ErrorResponse(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
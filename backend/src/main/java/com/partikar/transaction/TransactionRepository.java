@@ -1,8 +1,12 @@
 package com.partikar.transaction;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -10,4 +14,26 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     List<Transaction> findByUtilisateurId(Long utilisateurId);
     List<Transaction> findByLocationId(Long locationId);
     List<Transaction> findByType(String type);
+
+    // Réconciliation : utilisateurs dont credits_suspendus diffère de la somme de leurs transactions EN_ATTENTE
+    // (utilisateurId, creditsSuspendus, somme attendue)
+    @Query("select u.id, u.creditsSuspendus, coalesce(sum(-t.montant), 0) from User u " +
+           "left join Transaction t on t.utilisateur = u and t.statut = 'EN_ATTENTE' " +
+           "group by u.id, u.creditsSuspendus " +
+           "having u.creditsSuspendus <> coalesce(sum(-t.montant), 0)")
+    List<Object[]> findEcartsCreditsSuspendus();
+
+    // Change le statut d'une transaction seulement si elle a encore le statut attendu :
+    // de deux confirmations/annulations concurrentes, une seule obtient 1 ligne modifiée
+    @Modifying
+    @Query("update Transaction t set t.statut = :nouveauStatut, t.type = :type " +
+           "where t.id = :id and t.statut = :statutAttendu")
+    int changerStatut(@Param("id") Long id, @Param("statutAttendu") String statutAttendu,
+                      @Param("nouveauStatut") String nouveauStatut, @Param("type") String type);
+
+    // Libère en une requête les crédits suspendus de plusieurs locations
+    @Modifying
+    @Query("update Transaction t set t.statut = 'ANNULEE' " +
+           "where t.location.id in :locationIds and t.statut = 'EN_ATTENTE'")
+    int annulerTransactionsEnAttente(@Param("locationIds") Collection<Long> locationIds);
 }
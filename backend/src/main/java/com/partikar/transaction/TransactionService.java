@@ -1,6 +1,7 @@
 package com.partikar.transaction;
 
 import com.partikar.location.Location;
+import com.partikar.location.ReservationRefuseeException;
 import com.partikar.user.User;
 import com.partikar.user.UserRepository;
 import org.slf4j.Logger;
@@ -9,6 +10,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -18,10 +20,13 @@ public class TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
+    private final GrandLivreService grandLivreService;
 
-    public TransactionService(TransactionRepository transactionRepository, UserRepository userRepository) {
+    public TransactionService(TransactionRepository transactionRepository, UserRepository userRepository,
+                              GrandLivreService grandLivreService) {
         this.transactionRepository = transactionRepository;
         this.userRepository = userRepository;
+        this.grandLivreService = grandLivreService;
     }
 
     /**
@@ -30,15 +35,16 @@ public class TransactionService {
      */
     @Transactional
     public Transaction creerTransactionEnAttente(User locataire, Location location, BigDecimal montant) {
-        // Vérifier que le locataire a assez de crédits (incluant les crédits déjà suspendus)
-        BigDecimal creditsDisponibles = calculerCreditsDisponibles(locataire);
-
-        if (creditsDisponibles.compareTo(montant) < 0) {
-            throw new RuntimeException("Crédits insuffisants. Disponible: " + creditsDisponibles + " €, Requis: " + montant + " €");
+        // Bloquer le montant seulement si le locataire a assez de crédits (incluant les crédits déjà suspendus) :
+        // vérification et blocage dans la même requête, sans fenêtre pour une réservation concurrente
+        if (userRepository.suspendreCredits(locataire.getId(), montant) == 0) {
+            BigDecimal creditsDisponibles = calculerCreditsDisponibles(locataire);
+            throw new ReservationRefuseeException("Crédits insuffisants. Disponible: " + creditsDisponibles + " €, Requis: " + montant + " €");
         }
 
         Transaction transaction = new Transaction(locataire, location, montant.negate(), "RESERVATION_SUSPENSION", "EN_ATTENTE");
         Transaction saved = transactionRepository.save(transaction);
+        grandLivreService.enregistrerSuspension(saved.getId(), locataire.getId(), location.getId(), montant);
 
         logger.info("Transaction EN_ATTENTE créée: {} € suspendus pour l'utilisateur {}", montant, locataire.getId());
         return saved;
@@ -46,49 +52,55 @@ public class TransactionService {
 
     /**
      * Confirme une transaction EN_ATTENTE et débite réellement les crédits.
+     *
+     * @throws IllegalStateException si aucune transaction EN_ATTENTE n'a été confirmée (déjà confirmée,
+     *         ou annulée entre-temps : la réservation ne doit pas être acceptée sans paiement)
      */
     @Transactional
     public void confirmerTransaction(Long locationId) {
         List<Transaction> transactions = transactionRepository.findByLocationId(locationId);
+        boolean confirmee = false;
 
         for (Transaction transaction : transactions) {
-            if ("EN_ATTENTE".equals(transaction.getStatut())) {
-                // Débiter les crédits du locataire
-                User locataire = transaction.getUtilisateur();
-                BigDecimal montant = transaction.getMontant().abs();
-
-                BigDecimal nouveauSolde = locataire.getCredits().subtract(montant);
-                if (nouveauSolde.compareTo(BigDecimal.ZERO) < 0) {
-                    throw new RuntimeException("Crédits insuffisants lors de la confirmation");
-                }
-
-                locataire.setCredits(nouveauSolde);
-                userRepository.save(locataire);
-
-                // Changer le statut de la transaction
-                transaction.setStatut("CONFIRMEE");
-                transaction.setType("RESERVATION_DEBIT");
-                transactionRepository.save(transaction);
+            if (!"EN_ATTENTE".equals(transaction.getStatut())) {
+                continue;
+            }
+            // Une confirmation ou une annulation concurrente l'a déjà traitée
+            if (transactionRepository.changerStatut(transaction.getId(), "EN_ATTENTE", "CONFIRMEE", "RESERVATION_DEBIT") == 0) {
+                continue;
+            }
 
-                logger.info("Transaction confirmée: {} € débités de l'utilisateur {}", montant, locataire.getId());
+            // Débiter les crédits du locataire
+            Long locataireId = transaction.getUtilisateur().getId();
+            BigDecimal montant = transaction.getMontant().abs();
 
-                // Créer une transaction crédit pour le propriétaire
-                User proprietaire = transaction.getLocation().getVoiture().getProprietaire();
-                BigDecimal nouveauSoldeProprio = proprietaire.getCredits().add(montant);
-                proprietaire.setCredits(nouveauSoldeProprio);
-                userRepository.save(proprietaire);
+            if (userRepository.debiterCreditsSuspendus(locataireId, montant) == 0) {
+                throw new ReservationRefuseeException("Crédits insuffisants lors de la confirmation");
+            }
 
-                Transaction transactionProprio = new Transaction(
-                    proprietaire,
-                    transaction.getLocation(),
-                    montant,
-                    "PAIEMENT_LOCATION",
-                    "CONFIRMEE"
-                );
-                transactionRepository.save(transactionProprio);
+            logger.info("Transaction confirmée: {} € débités de l'utilisateur {}", montant, locataireId);
+
+            // Créer une transaction crédit pour le propriétaire
+            User proprietaire = transaction.getLocation().getVoiture().getProprietaire();
+            userRepository.crediter(proprietaire.getId(), montant);
+            grandLivreService.enregistrerPaiement(transaction.getId(), locataireId, proprietaire.getId(),
+                    locationId, montant);
+
+            Transaction transactionProprio = new Transaction(
+                proprietaire,
+                transaction.getLocation(),
+                montant,
+                "PAIEMENT_LOCATION",
+                "CONFIRMEE"
+            );
+            transactionRepository.save(transactionProprio);
+
+            logger.info("Transaction crédit créée: {} € crédités au propriétaire {}", montant, proprietaire.getId());
+            confirmee = true;
+        }
 
-                logger.info("Transaction crédit créée: {} € crédités au propriétaire {}", montant, proprietaire.getId());
-            }
+        if (!confirmee) {
+            throw new IllegalStateException("Aucune transaction en attente à confirmer pour la location " + locationId);
         }
     }
 
@@ -100,44 +112,50 @@ public class TransactionService {
         List<Transaction> transactions = transactionRepository.findByLocationId(locationId);
 
         for (Transaction transaction : transactions) {
-            if ("EN_ATTENTE".equals(transaction.getStatut())) {
-                transaction.setStatut("ANNULEE");
-                transactionRepository.save(transaction);
+            if ("EN_ATTENTE".equals(transaction.getStatut())
+                    && transactionRepository.changerStatut(transaction.getId(), "EN_ATTENTE", "ANNULEE", transaction.getType()) == 1) {
+                // Débloquer le montant suspendu
+                Long locataireId = transaction.getUtilisateur().getId();
+                if (userRepository.libererSuspension(locataireId, transaction.getMontant().abs()) == 0) {
+                    throw new RuntimeException("Crédits suspendus incohérents pour l'utilisateur " + locataireId);
+                }
+                grandLivreService.enregistrerLiberation(transaction.getId(), locataireId, locationId,
+                        transaction.getMontant().abs());
 
-                logger.info("Transaction annulée: crédits libérés pour l'utilisateur {}", transaction.getUtilisateur().getId());
+                logger.info("Transaction annulée: crédits libérés pour l'utilisateur {}", locataireId);
             }
         }
     }
 
+    /**
+     * Annule en masse les transactions EN_ATTENTE de plusieurs locations (libère les crédits suspendus).
+     *
+     * @return nombre de transactions annulées
+     */
+    @Transactional
+    public int annulerTransactionsEnAttente(Collection<Long> locationIds) {
+        if (locationIds.isEmpty()) {
+            return 0;
+        }
+        userRepository.libererCreditsSuspendus(locationIds);
+        grandLivreService.enregistrerLiberations(locationIds);
+        int nbAnnulees = transactionRepository.annulerTransactionsEnAttente(locationIds);
+        logger.info("{} transactions EN_ATTENTE annulées pour {} locations", nbAnnulees, locationIds.size());
+        return nbAnnulees;
+    }
+
     /**
      * Calcule les crédits disponibles d'un utilisateur (crédits totaux - crédits suspendus).
+     * Lecture d'une seule ligne en base : les mouvements de crédits étant faits par requêtes,
+     * l'entité User en mémoire peut ne pas être à jour.
      */
     public BigDecimal calculerCreditsDisponibles(User user) {
-        BigDecimal creditsTotal = user.getCredits();
-
-        // Calculer les crédits suspendus (transactions EN_ATTENTE)
-        List<Transaction> transactionsEnAttente = transactionRepository.findByUtilisateurId(user.getId()).stream()
-            .filter(t -> "EN_ATTENTE".equals(t.getStatut()))
-            .toList();
-
-        BigDecimal creditsSuspendus = transactionsEnAttente.stream()
-            .map(Transaction::getMontant)
-            .map(BigDecimal::abs)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal disponible = userRepository.findCreditsDisponibles(user.getId())
+                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
 
-        BigDecimal disponible = creditsTotal.subtract(creditsSuspendus);
-
-        logger.debug("Crédits utilisateur {}: total={}, suspendus={}, disponibles={}",
-            user.getId(), creditsTotal, creditsSuspendus, disponible);
+        logger.debug("Crédits disponibles de l'utilisateur {}: {}", user.getId(), disponible);
 
         return disponible;
     }
-
-    /**
-     * Récupère toutes les transactions d'un utilisateur.
-     */
-    public List<Transaction> getTransactionsUtilisateur(Long userId) {
-        return transactionRepository.findByUtilisateurId(userId);
-    }
 }
 
@@ -7,12 +7,15 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 @Entity
 @Table(name = "utilisateurs")
 @EntityListeners(AuditingEntityListener.class) // pour activer l'auditing (création/modification automatique des dates)
+@DynamicUpdate // n'écrit que les colonnes modifiées : une mise à jour du profil n'écrase pas les crédits
 public class User {
 
     @Id
@@ -49,6 +52,12 @@ public class User {
     @Column(nullable = false) // Jamais null, aura une valeur par défaut
     private BigDecimal credits;
 
+    // Somme des transactions EN_ATTENTE (crédits bloqués par des demandes de réservation),
+    // tenue à jour par TransactionService : crédits disponibles = credits - creditsSuspendus
+    @ColumnDefault("0") // valeur des lignes existantes lors de l'ajout de la colonne
+    @Column(name = "credits_suspendus", nullable = false, precision = 12, scale = 2)
+    private BigDecimal creditsSuspendus = BigDecimal.ZERO;
+
 
     @CreationTimestamp
     @Column(name = "cree_le", nullable = false, updatable = false)
@@ -84,6 +93,8 @@ public class User {
     public void setExpirationPermis(LocalDate expirationPermis) { this.expirationPermis = expirationPermis; }
     public BigDecimal getCredits() { return credits; }
     public void setCredits(BigDecimal credits) { this.credits = credits; }
+    public BigDecimal getCreditsSuspendus() { return creditsSuspendus; }
+    public void setCreditsSuspendus(BigDecimal creditsSuspendus) { this.creditsSuspendus = creditsSuspendus; }
     public LocalDateTime getCreeLe() { return creeLe; }
     public void setCreeLe(LocalDateTime creeLe) { this.creeLe = creeLe; }
     public LocalDateTime getMajLe() { return majLe; }
@@ -1,10 +1,69 @@
 package com.partikar.user;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    // Vérification légère d'un compte pour l'authentification par JWT (ComptesActifsCache)
+    @Query("select u.email from User u where u.id = :id")
+    Optional<String> findEmailById(@Param("id") Long id);
+
+    // ID d'un utilisateur authentifié sans ID dans son principal (UtilisateurCourant)
+    @Query("select u.id from User u where u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+
+    @Query("select u.credits - u.creditsSuspendus from User u where u.id = :id")
+    Optional<BigDecimal> findCreditsDisponibles(@Param("id") Long id);
+
+    // Mouvements de crédits : une seule requête conditionnelle par mouvement (pas de lecture-modification-écriture).
+    // Le nombre de lignes modifiées vaut 0 si la condition n'est pas remplie.
+
+    // Bloque un montant si les crédits disponibles le permettent
+    @Modifying
+    @Query("update User u set u.creditsSuspendus = u.creditsSuspendus + :montant " +
+           "where u.id = :id and u.credits - u.creditsSuspendus >= :montant")
+    int suspendreCredits(@Param("id") Long id, @Param("montant") BigDecimal montant);
+
+    // Débite un montant précédemment bloqué
+    @Modifying
+    @Query("update User u set u.credits = u.credits - :montant, u.creditsSuspendus = u.creditsSuspendus - :montant " +
+           "where u.id = :id and u.creditsSuspendus >= :montant and u.credits >= :montant")
+    int debiterCreditsSuspendus(@Param("id") Long id, @Param("montant") BigDecimal montant);
+
+    // Débloque un montant précédemment bloqué
+    @Modifying
+    @Query("update User u set u.creditsSuspendus = u.creditsSuspendus - :montant " +
+           "where u.id = :id and u.creditsSuspendus >= :montant")
+    int libererSuspension(@Param("id") Long id, @Param("montant") BigDecimal montant);
+
+    @Modifying
+    @Query("update User u set u.credits = u.credits + :montant where u.id = :id")
+    int crediter(@Param("id") Long id, @Param("montant") BigDecimal montant);
+
+    // Libère les crédits suspendus par les transactions EN_ATTENTE de ces locations
+    // (à exécuter avant de passer ces transactions en ANNULEE)
+    @Modifying
+    @Query("update User u set u.creditsSuspendus = u.creditsSuspendus - " +
+           "(select coalesce(sum(-t.montant), 0) from Transaction t " +
+           " where t.utilisateur = u and t.location.id in :locationIds and t.statut = 'EN_ATTENTE') " +
+           "where u.id in (select t2.utilisateur.id from Transaction t2 " +
+           "               where t2.location.id in :locationIds and t2.statut = 'EN_ATTENTE')")
+    int libererCreditsSuspendus(@Param("locationIds") Collection<Long> locationIds);
+
+    // Correction de la réconciliation, seulement si le solde n'a pas bougé depuis sa lecture
+    @Modifying
+    @Query("update User u set u.creditsSuspendus = :creditsSuspendus " +
+           "where u.id = :id and u.creditsSuspendus = :soldeLu")
+    int corrigerCreditsSuspendus(@Param("id") Long id, @Param("soldeLu") BigDecimal soldeLu,
+                                 @Param("creditsSuspendus") BigDecimal creditsSuspendus);
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.partikar.voiture; // Assure-toi que le package est correct
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.partikar.montant.Montant;
 import com.partikar.user.User; // Importe l'entité User
 import jakarta.persistence.*;
 import org.springframework.data.annotation.CreatedDate;
@@ -10,7 +12,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "voitures") // Nom de la table en BDD
+@Table(name = "voitures", indexes = { // Nom de la table en BDD
+        @Index(name = "idx_voitures_proprietaire", columnList = "proprietaire_id")
+})
 @EntityListeners(AuditingEntityListener.class) // Pour @CreatedDate et @LastModifiedDate
 public class Voiture {
 
@@ -63,6 +67,10 @@ public class Voiture {
     @Column(nullable = false)
     private BigDecimal prixParJour; // Utilise BigDecimal pour l'argent/les prix
 
+    // prixParJour en centimes, calculé une fois au chargement (filtres, tris et calcul de prix sans BigDecimal)
+    @Transient
+    private long prixParJourCentimes;
+
     @Enumerated(EnumType.STRING) // Stocke "MANUELLE" ou "AUTOMATIQUE" en BDD
     @Column(nullable = false)
     private BoiteVitesse boiteVitesse;
@@ -97,6 +105,11 @@ public class Voiture {
     public Voiture() {
     }
 
+    @PostLoad
+    private void calculerPrixParJourCentimes() {
+        prixParJourCentimes = prixParJour != null ? Montant.centimes(prixParJour) : 0;
+    }
+
     //  Enum pour BoiteVitesse
     public enum BoiteVitesse {
         MANUELLE, AUTOMATIQUE
@@ -215,6 +228,12 @@ public class Voiture {
 
     public void setPrixParJour(BigDecimal prixParJour) {
         this.prixParJour = prixParJour;
+        calculerPrixParJourCentimes();
+    }
+
+    @JsonIgnore
+    public long getPrixParJourCentimes() {
+        return prixParJourCentimes;
     }
 
     public BoiteVitesse getBoiteVitesse() {
@@ -1,9 +1,17 @@
 package com.partikar.voiture;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface VoitureRepository extends JpaRepository<Voiture, Long> {
@@ -11,4 +19,40 @@ public interface VoitureRepository extends JpaRepository<Voiture, Long> {
     List<Voiture> findByMarqueContainingIgnoreCase(String marque);
     List<Voiture> findByLocalisationContainingIgnoreCase(String ville);
 
+    // Voiture avec son propriétaire chargé dans la même requête
+    @EntityGraph(attributePaths = "proprietaire")
+    Optional<Voiture> findAvecProprietaireById(Long id);
+
+    @Query("select coalesce(min(v.id), 0), coalesce(max(v.id), 0) from Voiture v")
+    List<Object[]> findBornesIds();
+
+    // Par voiture non inactive d'une tranche d'IDs : statut actuel, dernier jour DISPONIBLE
+    // et dernier jour à partir d'aujourd'hui, en une seule requête groupée
+    @Query("select v.id, v.statut, " +
+           "max(case when d.statut = com.partikar.disponibilite.Disponibilite.Statut.DISPONIBLE then d.jour end), " +
+           "max(d.jour) " +
+           "from Voiture v left join Disponibilite d on d.voiture = v and d.jour >= :aujourdhui " +
+           "where v.id between :debut and :fin and lower(v.statut) <> 'inactive' " +
+           "group by v.id, v.statut")
+    List<Object[]> findJoursFutursParVoiture(@Param("aujourdhui") LocalDate aujourdhui,
+                                             @Param("debut") Long debut,
+                                             @Param("fin") Long fin);
+
+    // Même calcul pour une liste de voitures
+    @Query("select v.id, v.statut, " +
+           "max(case when d.statut = com.partikar.disponibilite.Disponibilite.Statut.DISPONIBLE then d.jour end), " +
+           "max(d.jour) " +
+           "from Voiture v left join Disponibilite d on d.voiture = v and d.jour >= :aujourdhui " +
+           "where v.id in :ids and lower(v.statut) <> 'inactive' " +
+           "group by v.id, v.statut")
+    List<Object[]> findJoursFutursParVoitureIdIn(@Param("aujourdhui") LocalDate aujourdhui,
+                                                 @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update Voiture v set v.statut = :statut, v.majLe = :maintenant " +
+           "where v.id in :ids and lower(v.statut) <> 'inactive'")
+    int changerStatut(@Param("ids") Collection<Long> ids,
+                      @Param("statut") String statut,
+                      @Param("maintenant") LocalDateTime maintenant);
+
 }
\ No newline at end of file
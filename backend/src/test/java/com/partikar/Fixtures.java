@@ -0,0 +1,61 @@
+package com.partikar;
+
+import com.partikar.location.Location;
+import com.partikar.user.User;
+import com.partikar.voiture.Voiture;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entités de test valides, non persistées : chaque test les enregistre (TestEntityManager ou repository)
+ * et ajuste avec les setters ce qui le concerne.
+ */
+public final class Fixtures {
+
+    private Fixtures() {}
+
+    public static User utilisateur(String email, BigDecimal credits) {
+        User user = new User();
+        user.setNom("Nom");
+        user.setPrenom("Prenom");
+        user.setEmail(email);
+        user.setPasswordHash("hash");
+        user.setDateDeNaissance(LocalDate.of(1990, 1, 1));
+        user.setCredits(credits);
+        return user;
+    }
+
+    /** Renault Clio AA-000-BB disponible à 30 crédits par jour */
+    public static Voiture voiture(User proprietaire) {
+        Voiture voiture = new Voiture();
+        voiture.setProprietaire(proprietaire);
+        voiture.setMarque("Renault");
+        voiture.setModele("Clio");
+        voiture.setAnnee(2020);
+        voiture.setImmatriculation("AA-000-BB");
+        voiture.setTypeCarburant("ESSENCE");
+        voiture.setNbPlaces(5);
+        voiture.setStatut("disponible");
+        voiture.setPrixParJour(new BigDecimal("30.00"));
+        voiture.setBoiteVitesse(Voiture.BoiteVitesse.MANUELLE);
+        voiture.setClimatisation(true);
+        voiture.setKilometrage(10000);
+        voiture.setCreeLe(LocalDateTime.now());
+        voiture.setMajLe(LocalDateTime.now());
+        return voiture;
+    }
+
+    /** Demande de réservation EN_ATTENTE */
+    public static Location demande(User locataire, Voiture voiture, LocalDate debut, LocalDate fin, BigDecimal prix) {
+        Location location = new Location();
+        location.setLocataire(locataire);
+        location.setVoiture(voiture);
+        location.setDateDebut(debut);
+        location.setDateFin(fin);
+        location.setPrixTotal(prix);
+        location.setStatut("EN_ATTENTE");
+        return location;
+    }
+}
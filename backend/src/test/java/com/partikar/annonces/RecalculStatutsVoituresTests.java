@@ -0,0 +1,117 @@
+package com.partikar.annonces;
+
+import com.partikar.Fixtures;
+import com.partikar.disponibilite.Disponibilite;
+import com.partikar.security.UtilisateurCourant;
+import com.partikar.user.User;
+import com.partikar.voiture.Voiture;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recalcul ensembliste du statut des voitures et index des dates de changement de statut.
+ */
+@DataJpaTest
+@Import({AnnonceService.class, VoituresARecalculer.class, UtilisateurCourant.class})
+class RecalculStatutsVoituresTests {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private AnnonceService annonceService;
+
+    @Autowired
+    private VoituresARecalculer voituresARecalculer;
+
+    @Test
+    void recalculerStatutsTranche_neModifieQueLesStatutsQuiChangent() {
+        LocalDate aujourdhui = LocalDate.now();
+        User proprietaire = persistUser();
+
+        // Jour futur disponible → reste disponible
+        Voiture disponible = persistVoiture(proprietaire, "disponible");
+        persistJour(disponible, aujourdhui.plusDays(3), Disponibilite.Statut.DISPONIBLE);
+        // Jours futurs tous réservés → completement_reservee
+        Voiture reservee = persistVoiture(proprietaire, "disponible");
+        persistJour(reservee, aujourdhui.plusDays(3), Disponibilite.Statut.RESERVE);
+        persistJour(reservee, aujourdhui.minusDays(3), Disponibilite.Statut.DISPONIBLE);
+        // Uniquement des jours passés → expiree
+        Voiture expiree = persistVoiture(proprietaire, "completement_reservee");
+        persistJour(expiree, aujourdhui.minusDays(1), Disponibilite.Statut.DISPONIBLE);
+        // Un jour futur disponible réapparu → disponible
+        Voiture redevenueDisponible = persistVoiture(proprietaire, "expiree");
+        persistJour(redevenueDisponible, aujourdhui.plusDays(1), Disponibilite.Statut.DISPONIBLE);
+        // Inactive : jamais modifiée
+        Voiture inactive = persistVoiture(proprietaire, "inactive");
+        em.flush();
+        em.clear();
+
+        int nbMisesAJour = annonceService.recalculerStatutsTranche(aujourdhui, 0, Long.MAX_VALUE);
+        em.flush();
+        em.clear();
+
+        assertEquals(3, nbMisesAJour);
+        assertEquals("disponible", em.find(Voiture.class, disponible.getId()).getStatut());
+        assertEquals("completement_reservee", em.find(Voiture.class, reservee.getId()).getStatut());
+        assertEquals("expiree", em.find(Voiture.class, expiree.getId()).getStatut());
+        assertEquals("disponible", em.find(Voiture.class, redevenueDisponible.getId()).getStatut());
+        assertEquals("inactive", em.find(Voiture.class, inactive.getId()).getStatut());
+
+        // Deuxième passage : plus rien à changer
+        assertEquals(0, annonceService.recalculerStatutsTranche(aujourdhui, 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    void changementDeJour_neRemetEnFileQueLesVoituresEchues() {
+        LocalDate aujourdhui = LocalDate.now();
+        User proprietaire = persistUser();
+        Voiture finDemain = persistVoiture(proprietaire, "disponible");
+        persistJour(finDemain, aujourdhui.plusDays(1), Disponibilite.Statut.DISPONIBLE);
+        Voiture finDansUneSemaine = persistVoiture(proprietaire, "disponible");
+        persistJour(finDansUneSemaine, aujourdhui.plusDays(7), Disponibilite.Statut.DISPONIBLE);
+        em.flush();
+        em.clear();
+
+        assertEquals(0, annonceService.recalculerStatuts(List.of(finDemain.getId(), finDansUneSemaine.getId()), aujourdhui));
+
+        // Après-demain, seule la première voiture change de statut
+        LocalDate apresDemain = aujourdhui.plusDays(2);
+        // (l'index est partagé avec les autres tests du contexte)
+        voituresARecalculer.marquerEcheances(apresDemain);
+        List<Long> lot = voituresARecalculer.extraireLot(100);
+        assertTrue(lot.contains(finDemain.getId()));
+        assertFalse(lot.contains(finDansUneSemaine.getId()));
+
+        assertEquals(1, annonceService.recalculerStatuts(lot, apresDemain));
+        em.flush();
+        em.clear();
+        assertEquals("expiree", em.find(Voiture.class, finDemain.getId()).getStatut());
+        assertEquals("disponible", em.find(Voiture.class, finDansUneSemaine.getId()).getStatut());
+    }
+
+    private User persistUser() {
+        return em.persist(Fixtures.utilisateur("proprio@test.fr", new BigDecimal("100.00")));
+    }
+
+    private Voiture persistVoiture(User proprietaire, String statut) {
+        Voiture voiture = Fixtures.voiture(proprietaire);
+        voiture.setStatut(statut);
+        return em.persist(voiture);
+    }
+
+    private void persistJour(Voiture voiture, LocalDate jour, Disponibilite.Statut statut) {
+        em.persist(new Disponibilite(voiture, jour, statut, null));
+    }
+}
@@ -0,0 +1,72 @@
+package com.partikar.auth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Refus rapides de l'authentification : limites de tentatives et pool BCrypt saturé.
+ */
+class AdmissionAuthentificationTests {
+
+    @Test
+    void limiteParEmail_puisParIp() {
+        LimiteurTentatives limiteur = limiteur(5, 3);
+
+        for (int i = 0; i < 3; i++) {
+            limiteur.verifierConnexion("10.0.0.1", "a@test.fr");
+        }
+        AuthentificationSatureeException refus = assertThrows(AuthentificationSatureeException.class,
+                () -> limiteur.verifierConnexion("10.0.0.2", " A@test.fr"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, refus.getStatut());
+
+        // Autre email depuis la première IP : 4e et 5e tentatives acceptées, la suivante non
+        limiteur.verifierConnexion("10.0.0.1", "b@test.fr");
+        limiteur.verifierConnexion("10.0.0.1", "c@test.fr");
+        assertThrows(AuthentificationSatureeException.class, () -> limiteur.verifierConnexion("10.0.0.1", "d@test.fr"));
+    }
+
+    @Test
+    void poolSature_refusImmediat() throws Exception {
+        ExecuteurMotsDePasse executeur = new ExecuteurMotsDePasse(1, 1);
+        CountDownLatch liberer = new CountDownLatch(1);
+        try {
+            CompletableFuture<Boolean> enCours = executeur.executer(() -> attendre(liberer));
+            CompletableFuture<Boolean> enFile = executeur.executer(() -> true);
+
+            AuthentificationSatureeException refus = assertThrows(AuthentificationSatureeException.class,
+                    () -> executeur.executer(() -> true));
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, refus.getStatut());
+
+            liberer.countDown();
+            enCours.get();
+            enFile.get();
+        } finally {
+            executeur.arreter();
+        }
+    }
+
+    private static LimiteurTentatives limiteur(int maxParIp, int maxParEmail) {
+        LimiteurTentatives limiteur = new LimiteurTentatives();
+        ReflectionTestUtils.setField(limiteur, "fenetreSecondes", 300L);
+        ReflectionTestUtils.setField(limiteur, "maxParIp", maxParIp);
+        ReflectionTestUtils.setField(limiteur, "maxParEmail", maxParEmail);
+        return limiteur;
+    }
+
+    private static boolean attendre(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
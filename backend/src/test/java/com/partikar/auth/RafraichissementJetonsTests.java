@@ -0,0 +1,60 @@
+package com.partikar.auth;
+
+import com.partikar.security.JetonRafraichissement;
+import com.partikar.security.JetonRafraichissementRepository;
+import com.partikar.security.ListeRevocation;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Réutilisation d'un jeton de rafraîchissement déjà renouvelé : tolérée juste après le renouvellement
+ * (onglets simultanés, réponse perdue), traitée comme un vol au-delà.
+ */
+class RafraichissementJetonsTests {
+
+    private static final Long UTILISATEUR_ID = 1L;
+
+    private final JetonRafraichissementRepository jetonRafraichissementRepository = mock(JetonRafraichissementRepository.class);
+    private final ListeRevocation listeRevocation = mock(ListeRevocation.class);
+    private final AuthService authService = new AuthService(null, null, null, null, null,
+            jetonRafraichissementRepository, listeRevocation);
+
+    @Test
+    void jetonRenouveleALInstant_refuseSansRevoquerLesAutresSessions() {
+        ReflectionTestUtils.setField(authService, "graceRafraichissementSecondes", 30L);
+        jetonRenouveleIlYA(5);
+
+        assertThrows(IllegalStateException.class, () -> authService.rafraichir("jeton"));
+        verify(jetonRafraichissementRepository, never()).revoquerTous(any(), any());
+        verify(listeRevocation, never()).revoquerUtilisateur(any());
+    }
+
+    @Test
+    void jetonReutiliseApresLeDelai_toutesLesSessionsRevoquees() {
+        ReflectionTestUtils.setField(authService, "graceRafraichissementSecondes", 30L);
+        jetonRenouveleIlYA(600);
+
+        assertThrows(IllegalStateException.class, () -> authService.rafraichir("jeton"));
+        verify(jetonRafraichissementRepository).revoquerTous(eq(UTILISATEUR_ID), any());
+        verify(listeRevocation).revoquerUtilisateur(UTILISATEUR_ID);
+    }
+
+    private void jetonRenouveleIlYA(long secondes) {
+        JetonRafraichissement jeton = new JetonRafraichissement(UTILISATEUR_ID, "hash", LocalDateTime.now().plusDays(30));
+        jeton.setId(10L);
+        jeton.setRevoqueLe(LocalDateTime.now().minusSeconds(secondes));
+        when(jetonRafraichissementRepository.findByHash(anyString())).thenReturn(Optional.of(jeton));
+    }
+}
@@ -0,0 +1,123 @@
+package com.partikar.geocode;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeocodeServiceTests {
+
+    private static final String REPONSE = "{\"features\":[{\"properties\":{\"label\":\"Paris\",\"city\":\"Paris\","
+            + "\"postcode\":\"75001\"},\"geometry\":{\"coordinates\":[2.35,48.85]}}]}";
+
+    private HttpServer serveur;
+
+    @AfterEach
+    void tearDown() {
+        if (serveur != null) {
+            serveur.stop(0);
+        }
+    }
+
+    @Test
+    void cleNormalisee_casseAccentsEspaces() {
+        assertEquals(GeocodeService.cle("Évry  Courcouronnes", 5), GeocodeService.cle("evry courcouronnes ", 5));
+        assertEquals("saint-etienne|5", GeocodeService.cle("Saint-Étienne", 5));
+        assertNotEquals(GeocodeService.cle("lyon", 5), GeocodeService.cle("lyon", 8));
+    }
+
+    @Test
+    void recherchesSimultanees_unSeulAppelParCle() throws Exception {
+        AtomicInteger nbAppels = new AtomicInteger();
+        GeocodeService service = service(nbAppels, 200, 300);
+
+        List<CompletableFuture<List<GeocodeResult>>> recherches = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            recherches.add(service.searchAsync(i % 2 == 0 ? "Paris" : " paris", 5));
+        }
+        for (CompletableFuture<List<GeocodeResult>> recherche : recherches) {
+            assertEquals("Paris", recherche.get().get(0).getCity());
+        }
+        assertEquals(1, nbAppels.get());
+    }
+
+    @Test
+    void erreurOuDelaiDepasse_listeVide_nonMiseEnCache() {
+        AtomicInteger nbAppels = new AtomicInteger();
+        GeocodeService service = service(nbAppels, 500, 0);
+
+        assertTrue(service.search("Lyon", 5).isEmpty());
+        assertTrue(service.search("Lyon", 5).isEmpty());
+        assertEquals(2, nbAppels.get());
+    }
+
+    @Test
+    void communesLocalesInsuffisantes_completeesParLApiSansDoublon() {
+        AtomicInteger nbAppels = new AtomicInteger();
+        String reponse = "{\"features\":["
+                + "{\"properties\":{\"label\":\"Paris\",\"city\":\"Paris\",\"postcode\":\"75001\"},"
+                + "\"geometry\":{\"coordinates\":[2.35,48.85]}},"
+                + "{\"properties\":{\"label\":\"Rue de Paris 93100 Montreuil\",\"city\":\"Montreuil\",\"postcode\":\"93100\"},"
+                + "\"geometry\":{\"coordinates\":[2.44,48.86]}}]}";
+        RepertoireCommunes repertoire = new RepertoireCommunes(List.of(
+                new RepertoireCommunes.Commune("Paris", "75001", 48.85, 2.35, 2_100_000)));
+        GeocodeService service = service(repertoire, nbAppels, 200, 0, reponse);
+
+        List<GeocodeResult> resultats = service.search("Paris", 5);
+        assertEquals(List.of("Paris", "Montreuil"), resultats.stream().map(GeocodeResult::getCity).toList());
+        assertEquals(1, nbAppels.get());
+
+        // Limite atteinte avec les seules communes locales : pas d'appel à l'API
+        assertEquals(1, service.search("Paris", 1).size());
+        assertEquals(1, nbAppels.get());
+    }
+
+    @Test
+    void erreurApi_communesLocalesRenvoyees() {
+        RepertoireCommunes repertoire = new RepertoireCommunes(List.of(
+                new RepertoireCommunes.Commune("Lyon", "69001", 45.76, 4.83, 500_000)));
+        GeocodeService service = service(repertoire, new AtomicInteger(), 500, 0, REPONSE);
+
+        assertEquals(List.of("Lyon"), service.search("Lyon", 5).stream().map(GeocodeResult::getCity).toList());
+    }
+
+    private GeocodeService service(AtomicInteger nbAppels, int statut, long attenteMs) {
+        return service(new RepertoireCommunes(List.of()), nbAppels, statut, attenteMs, REPONSE);
+    }
+
+    private GeocodeService service(RepertoireCommunes repertoire, AtomicInteger nbAppels, int statut, long attenteMs, String reponse) {
+        try {
+            serveur = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        serveur.createContext("/search/", echange -> {
+            nbAppels.incrementAndGet();
+            try {
+                Thread.sleep(attenteMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] corps = reponse.getBytes(StandardCharsets.UTF_8);
+            echange.sendResponseHeaders(statut, corps.length);
+            try (OutputStream out = echange.getResponseBody()) {
+                out.write(corps);
+            }
+        });
+        serveur.start();
+        String url = "http://127.0.0.1:" + serveur.getAddress().getPort() + "/search/";
+        return new GeocodeService(repertoire, new SimpleMeterRegistry(), url, 2000, 100, 5);
+    }
+}
@@ -0,0 +1,47 @@
+package com.partikar.geocode;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RepertoireCommunesTests {
+
+    private final RepertoireCommunes repertoire = new RepertoireCommunes(List.of(
+            new RepertoireCommunes.Commune("Saint-Étienne", "42000", 45.4397, 4.3872, 174000),
+            new RepertoireCommunes.Commune("Saint-Denis", "93200", 48.9362, 2.3574, 113000),
+            new RepertoireCommunes.Commune("Saint-Malo", "35400", 48.6493, -2.0257, 47000),
+            new RepertoireCommunes.Commune("Paris", "75001", 48.8566, 2.3522, 2133000),
+            new RepertoireCommunes.Commune("Parthenay", "79200", 46.6486, -0.2473, 10000)));
+
+    @Test
+    void prefixeSansAccents_plusPeupleesDAbord() {
+        List<GeocodeResult> resultats = repertoire.rechercher("saint e", 5);
+        assertEquals(1, resultats.size());
+        assertEquals("Saint-Étienne", resultats.get(0).getCity());
+
+        List<GeocodeResult> saints = repertoire.rechercher("SAINT", 2);
+        assertEquals(List.of("Saint-Étienne", "Saint-Denis"), saints.stream().map(GeocodeResult::getCity).toList());
+
+        assertEquals(List.of("Paris", "Parthenay"),
+                repertoire.rechercher("Par", 5).stream().map(GeocodeResult::getCity).toList());
+    }
+
+    @Test
+    void codePostal_etAbsence() {
+        assertEquals("Saint-Malo", repertoire.rechercher("354", 5).get(0).getCity());
+        assertTrue(repertoire.rechercher("10 rue de Rivoli", 5).isEmpty());
+        assertTrue(repertoire.rechercher("p", 5).isEmpty());
+    }
+
+    @Test
+    void fichierFourni_charge() {
+        RepertoireCommunes fourni = new RepertoireCommunes(new DefaultResourceLoader(), true, "classpath:geocode/communes.csv");
+        GeocodeResult lyon = fourni.rechercher("lyon", 1).get(0);
+        assertEquals("69001", lyon.getPostcode());
+        assertEquals(45.764, lyon.getLatitude(), 0.01);
+    }
+}
@@ -0,0 +1,153 @@
+package com.partikar.idempotence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({IdempotenceService.class, JacksonAutoConfiguration.class})
+class IdempotenceServiceTests {
+
+    @Autowired
+    private IdempotenceService idempotenceService;
+
+    @Autowired
+    private CleIdempotenceRepository cleIdempotenceRepository;
+
+    @Autowired
+    private TestEntityManager em;
+
+    private final AtomicInteger nbAppels = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("locataire@test.fr", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void rejeu_renvoieLaReponseEnregistreeSansRappeler() {
+        ResponseEntity<?> premiere = idempotenceService.executer("cle-1", "POST /api/locations", this::creer);
+        ResponseEntity<?> rejeu = idempotenceService.executer("cle-1", "POST /api/locations", this::creer);
+
+        assertEquals(1, nbAppels.get());
+        assertEquals(HttpStatus.CREATED, premiere.getStatusCode());
+        assertEquals(HttpStatus.CREATED, rejeu.getStatusCode());
+        assertEquals("{\"locationId\":1}", rejeu.getBody());
+        assertEquals("true", rejeu.getHeaders().getFirst(IdempotenceService.ENTETE_REJOUEE));
+    }
+
+    @Test
+    void cleReutiliseePourUneAutreOperation_refusee() {
+        idempotenceService.executer("cle-1", "POST /api/locations", this::creer);
+        ResponseEntity<?> autre = idempotenceService.executer("cle-1", "POST /api/locations/1/valider", this::creer);
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, autre.getStatusCode());
+        assertEquals(1, nbAppels.get());
+    }
+
+    @Test
+    void cleReutiliseeAvecUnAutreCorps_refusee() {
+        idempotenceService.executer("cle-1", "POST /api/locations", Map.of("voitureId", 1), this::creer);
+        ResponseEntity<?> autre = idempotenceService.executer("cle-1", "POST /api/locations", Map.of("voitureId", 2), this::creer);
+        ResponseEntity<?> rejeu = idempotenceService.executer("cle-1", "POST /api/locations", Map.of("voitureId", 1), this::creer);
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, autre.getStatusCode());
+        assertEquals(HttpStatus.CREATED, rejeu.getStatusCode());
+        assertEquals(1, nbAppels.get());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // la clé doit être visible de l'autre thread
+    void requetesSimultanees_secondeRecoit409() throws Exception {
+        CountDownLatch appelEnCours = new CountDownLatch(1);
+        CountDownLatch finAppel = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ResponseEntity<?>> premiere = executor.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken("locataire@test.fr", null, List.of()));
+                return idempotenceService.executer("cle-1", "POST /api/locations", () -> {
+                    appelEnCours.countDown();
+                    try {
+                        finAppel.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return creer();
+                });
+            });
+            assertTrue(appelEnCours.await(10, TimeUnit.SECONDS));
+
+            ResponseEntity<?> concurrente = idempotenceService.executer("cle-1", "POST /api/locations", this::creer);
+            assertEquals(HttpStatus.CONFLICT, concurrente.getStatusCode());
+
+            finAppel.countDown();
+            assertEquals(HttpStatus.CREATED, premiere.get(10, TimeUnit.SECONDS).getStatusCode());
+            ResponseEntity<?> rejeu = idempotenceService.executer("cle-1", "POST /api/locations", this::creer);
+            assertEquals("true", rejeu.getHeaders().getFirst(IdempotenceService.ENTETE_REJOUEE));
+            assertEquals(1, nbAppels.get());
+        } finally {
+            executor.shutdownNow();
+            cleIdempotenceRepository.deleteAllInBatch();
+        }
+    }
+
+    @Test
+    void cleResteeEnCours_repriseApresLeDelai() {
+        CleIdempotence abandonnee = cleIdempotenceRepository.saveAndFlush(
+                new CleIdempotence("locataire@test.fr", "cle-1", "POST /api/locations", null));
+        em.getEntityManager().createNativeQuery("update cles_idempotence set cree_le = :date where id = :id")
+                .setParameter("date", LocalDateTime.now().minusHours(1))
+                .setParameter("id", abandonnee.getId())
+                .executeUpdate();
+        em.clear();
+
+        ResponseEntity<?> reponse = idempotenceService.executer("cle-1", "POST /api/locations", this::creer);
+
+        assertEquals(HttpStatus.CREATED, reponse.getStatusCode());
+        assertEquals(1, nbAppels.get());
+    }
+
+    @Test
+    void sansCle_appelToujoursExecute() {
+        idempotenceService.executer(null, "POST /api/locations", this::creer);
+        idempotenceService.executer(null, "POST /api/locations", this::creer);
+
+        assertEquals(2, nbAppels.get());
+    }
+
+    private ResponseEntity<?> creer() {
+        nbAppels.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("locationId", 1));
+    }
+}
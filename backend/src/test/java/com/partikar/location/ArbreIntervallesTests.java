@@ -0,0 +1,67 @@
+package com.partikar.location;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ArbreIntervallesTests {
+
+    private static final LocalDate ORIGINE = LocalDate.of(2025, 1, 1);
+
+    @Test
+    void chevauchements_bornesIncluses() {
+        ArbreIntervalles arbre = new ArbreIntervalles();
+        arbre.ajouter(1L, jour(0), jour(4));
+        arbre.ajouter(2L, jour(5), jour(9));
+        arbre.ajouter(3L, jour(10), jour(12));
+
+        assertEquals(List.of(1L, 2L), arbre.chevauchements(jour(4), jour(5), null));
+        assertEquals(List.of(2L), arbre.chevauchements(jour(4), jour(5), 1L));
+        assertEquals(List.of(), arbre.chevauchements(jour(13), jour(20), null));
+    }
+
+    @Test
+    void ajoutsEtRetraitsAleatoires_identiquesAUnParcoursComplet() {
+        Random random = new Random(42);
+        ArbreIntervalles arbre = new ArbreIntervalles();
+        Map<Long, int[]> reference = new HashMap<>();
+
+        for (int i = 0; i < 5000; i++) {
+            long id = random.nextInt(300);
+            if (random.nextInt(3) == 0) {
+                arbre.retirer(id);
+                reference.remove(id);
+            } else {
+                int debut = random.nextInt(365);
+                int fin = debut + random.nextInt(30);
+                arbre.ajouter(id, jour(debut), jour(fin));
+                reference.put(id, new int[]{debut, fin});
+            }
+
+            int debut = random.nextInt(365);
+            int fin = debut + random.nextInt(30);
+            List<Long> attendus = new ArrayList<>();
+            reference.forEach((cle, intervalle) -> {
+                if (intervalle[0] <= fin && intervalle[1] >= debut) {
+                    attendus.add(cle);
+                }
+            });
+            List<Long> obtenus = new ArrayList<>(arbre.chevauchements(jour(debut), jour(fin), null));
+            attendus.sort(null);
+            obtenus.sort(null);
+            assertEquals(attendus, obtenus);
+        }
+        assertEquals(reference.size(), arbre.taille());
+    }
+
+    private static LocalDate jour(int decalage) {
+        return ORIGINE.plusDays(decalage);
+    }
+}
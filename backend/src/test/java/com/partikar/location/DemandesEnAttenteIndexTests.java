@@ -0,0 +1,69 @@
+package com.partikar.location;
+
+import com.partikar.voiture.Voiture;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DemandesEnAttenteIndexTests {
+
+    private static final Long VOITURE_ID = 7L;
+    private static final LocalDate DEBUT = LocalDate.of(2025, 6, 1);
+
+    private final LocationRepository locationRepository = mock(LocationRepository.class);
+
+    @Test
+    void conflits_arbreGardePendantLeTtl() {
+        when(locationRepository.findByVoitureIdAndStatut(VOITURE_ID, "EN_ATTENTE"))
+                .thenReturn(List.of(demande(1L), demande(2L)));
+        DemandesEnAttenteIndex index = new DemandesEnAttenteIndex(locationRepository, 3600, 100);
+
+        assertEquals(List.of(2L), index.conflits(VOITURE_ID, 1L, DEBUT, DEBUT));
+        assertEquals(List.of(1L), index.conflits(VOITURE_ID, 2L, DEBUT, DEBUT));
+        verify(locationRepository, times(1)).findByVoitureIdAndStatut(VOITURE_ID, "EN_ATTENTE");
+    }
+
+    @Test
+    void conflits_changementFaitParUnAutreNoeud_vuApresLeTtl() {
+        // La demande 2 est expirée par un autre nœud : ce nœud n'en est pas notifié
+        when(locationRepository.findByVoitureIdAndStatut(VOITURE_ID, "EN_ATTENTE"))
+                .thenReturn(List.of(demande(1L), demande(2L)))
+                .thenReturn(List.of(demande(1L)));
+        DemandesEnAttenteIndex index = new DemandesEnAttenteIndex(locationRepository, 0, 100);
+
+        assertEquals(List.of(2L), index.conflits(VOITURE_ID, 1L, DEBUT, DEBUT));
+        assertEquals(List.of(), index.conflits(VOITURE_ID, 1L, DEBUT, DEBUT));
+    }
+
+    @Test
+    void ajouterEtRetirer_appliquesALArbreCharge() {
+        when(locationRepository.findByVoitureIdAndStatut(VOITURE_ID, "EN_ATTENTE"))
+                .thenReturn(List.of(demande(1L)));
+        DemandesEnAttenteIndex index = new DemandesEnAttenteIndex(locationRepository, 3600, 100);
+        assertEquals(List.of(), index.conflits(VOITURE_ID, 1L, DEBUT, DEBUT));
+
+        index.ajouter(demande(3L));
+        assertEquals(List.of(3L), index.conflits(VOITURE_ID, 1L, DEBUT, DEBUT));
+        index.retirer(3L);
+        assertEquals(List.of(), index.conflits(VOITURE_ID, 1L, DEBUT, DEBUT));
+    }
+
+    private Location demande(Long id) {
+        Voiture voiture = new Voiture();
+        voiture.setId(VOITURE_ID);
+        Location location = new Location();
+        location.setId(id);
+        location.setVoiture(voiture);
+        location.setDateDebut(DEBUT);
+        location.setDateFin(DEBUT);
+        location.setStatut("EN_ATTENTE");
+        return location;
+    }
+}
@@ -0,0 +1,81 @@
+package com.partikar.location;
+
+import com.partikar.idempotence.IdempotenceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Réponses enregistrées pour une Idempotency-Key : refus métier rejoués, erreurs passagères jamais figées.
+ */
+@DataJpaTest
+@Import({LocationController.class, IdempotenceService.class, JacksonAutoConfiguration.class})
+class LocationControllerIdempotenceTests {
+
+    @Autowired
+    private LocationController locationController;
+
+    @MockitoBean
+    private LocationService locationService;
+
+    @MockitoBean
+    private LotReservationService lotReservationService;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("proprio@test.fr", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void erreurPassagere_nonEnregistree_nouvelEssaiAvecLaMemeCleReussit() {
+        doThrow(new CannotAcquireLockException("délai de verrou dépassé"))
+                .doNothing()
+                .when(locationService).validerReservation(1L);
+
+        assertThrows(CannotAcquireLockException.class, () -> locationController.validerReservation(1L, "cle-1"));
+        ResponseEntity<?> nouvelEssai = locationController.validerReservation(1L, "cle-1");
+
+        assertEquals(HttpStatus.OK, nouvelEssai.getStatusCode());
+        verify(locationService, times(2)).validerReservation(1L);
+    }
+
+    @Test
+    void refusMetier_enregistreEtRejoue() {
+        doThrow(new ReservationRefuseeException("Cette réservation ne peut pas être validée (statut: ANNULEE)"))
+                .when(locationService).validerReservation(1L);
+
+        ResponseEntity<?> premiere = locationController.validerReservation(1L, "cle-1");
+        doNothing().when(locationService).validerReservation(1L);
+        ResponseEntity<?> rejeu = locationController.validerReservation(1L, "cle-1");
+
+        assertEquals(HttpStatus.BAD_REQUEST, premiere.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, rejeu.getStatusCode());
+        assertEquals("true", rejeu.getHeaders().getFirst(IdempotenceService.ENTETE_REJOUEE));
+        verify(locationService, times(1)).validerReservation(1L);
+    }
+}
@@ -0,0 +1,223 @@
+package com.partikar.location;
+
+import com.partikar.Fixtures;
+import com.partikar.annonces.VoituresARecalculer;
+import com.partikar.avis.Avis;
+import com.partikar.email.EmailService;
+import com.partikar.security.UtilisateurConnecte;
+import com.partikar.security.UtilisateurCourant;
+import com.partikar.transaction.GrandLivreService;
+import com.partikar.transaction.TransactionService;
+import com.partikar.user.User;
+import com.partikar.voiture.Voiture;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Garde-fou sur le nombre de requêtes SQL des endpoints de liste de LocationController :
+ * convertir une page en LocationResponse ne doit pas déclencher de requête par location.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({LocationService.class, LotReservationService.class, DemandesEnAttenteIndex.class, VoituresARecalculer.class, TransactionService.class, GrandLivreService.class, UtilisateurCourant.class})
+class LocationServiceRequetesTests {
+
+    /** Page de locations + notes des locataires (+ seconde liste pour mes-reservations,
+     *  ou chargement de l'index des demandes en conflit pour la boîte de réception).
+     *  L'utilisateur courant vient du principal (ID issu du JWT) : aucune requête. */
+    private static final long MAX_REQUETES_PAR_PAGE = 3;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private LotReservationService lotReservationService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @MockitoBean
+    private EmailService emailService;
+
+    private User proprietaire;
+    private User locataire;
+
+    @BeforeEach
+    void setUp() {
+        proprietaire = persistUser("proprio@test.fr");
+        locataire = persistUser("locataire@test.fr");
+
+        List<Voiture> voitures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            voitures.add(persistVoiture(proprietaire, "AA-00" + i + "-BB"));
+        }
+
+        // Plusieurs locataires, plusieurs voitures, tous les statuts
+        String[] statuts = {"EN_ATTENTE", "CONFIRMEE", "TERMINEE", "ANNULEE"};
+        for (int i = 0; i < 20; i++) {
+            User autre = persistUser("autre" + i + "@test.fr");
+            User loueur = i % 2 == 0 ? locataire : autre;
+            Location location = persistLocation(loueur, voitures.get(i % voitures.size()), statuts[i % statuts.length], i);
+            em.persist(new Avis(location, proprietaire, loueur, 4, 5, null));
+        }
+
+        em.flush();
+        em.clear();
+        statistiques().clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void demandesEnAttenteProprietaire_nombreDeRequetesBorne() {
+        connecter(proprietaire);
+        List<LocationResponse> demandes = locationService.getDemandesEnAttenteProprietaire(0, 50);
+
+        assertEquals(5, demandes.size());
+        assertTrue(demandes.stream().allMatch(d -> d.getLocataireNbAvis() == 10));
+        assertRequetesBornees();
+    }
+
+    @Test
+    void mesDemandes_nombreDeRequetesBorne() {
+        connecter(locataire);
+        List<LocationResponse> demandes = locationService.getMesDemandesReservation(null, null, null, 50);
+
+        assertEquals(10, demandes.size());
+        assertRequetesBornees();
+    }
+
+    @Test
+    void mesReservations_nombreDeRequetesBorne() {
+        connecter(locataire);
+        MesReservationsResponse reservations = locationService.getMesReservations(null, null, null, 50);
+
+        assertEquals(5, reservations.getEnCours().size() + reservations.getPassees().size());
+        assertTrue(reservations.getEnCours().stream().allMatch(r -> r.getProprietaireNom() != null));
+        assertRequetesBornees();
+    }
+
+    @Test
+    void mesReservations_pageSuivanteParPeriode() {
+        connecter(locataire);
+        MesReservationsResponse premiere = locationService.getMesReservations(null, null, null, 1);
+        assertTrue(premiere.isSuitePassees());
+        LocationResponse dernier = premiere.getPassees().get(0);
+
+        // Curseur de la liste des passées : sans période, il serait appliqué aussi aux réservations en cours
+        assertThrows(IllegalArgumentException.class,
+                () -> locationService.getMesReservations(null, dernier.getCreeLe(), dernier.getLocationId(), 1));
+
+        MesReservationsResponse suite = locationService.getMesReservations(
+                "passees", dernier.getCreeLe(), dernier.getLocationId(), 1);
+        assertTrue(suite.getEnCours().isEmpty());
+        assertEquals(1, suite.getPassees().size());
+        assertTrue(suite.getPassees().get(0).getLocationId() < dernier.getLocationId()
+                || suite.getPassees().get(0).getCreeLe().isBefore(dernier.getCreeLe()));
+    }
+
+    @Test
+    void mesLocations_nombreDeRequetesBorne() {
+        connecter(proprietaire);
+        MesReservationsResponse locations = locationService.getMesLocations();
+
+        assertEquals(10, locations.getEnCours().size() + locations.getPassees().size());
+        assertRequetesBornees();
+    }
+
+    @Test
+    void traiterLot_resultatParOperationDansLOrdre() {
+        List<Location> enAttente = em.getEntityManager()
+                .createQuery("select l from Location l where l.statut = 'EN_ATTENTE' order by l.id", Location.class)
+                .getResultList();
+        Location confirmee = em.getEntityManager()
+                .createQuery("select l from Location l where l.statut = 'CONFIRMEE' order by l.id", Location.class)
+                .setMaxResults(1).getSingleResult();
+        // La demande acceptée doit avoir ses crédits suspendus pour être payée
+        transactionService.creerTransactionEnAttente(enAttente.get(0).getLocataire(), enAttente.get(0), new BigDecimal("90.00"));
+        em.flush();
+        em.clear();
+
+        connecter(proprietaire);
+        List<ResultatOperationResponse> resultats = lotReservationService.traiterLot(List.of(
+                new OperationLotRequest(enAttente.get(0).getId(), OperationLotRequest.ACTION_VALIDER),
+                new OperationLotRequest(-1L, OperationLotRequest.ACTION_REFUSER),
+                new OperationLotRequest(confirmee.getId(), OperationLotRequest.ACTION_REFUSER),
+                new OperationLotRequest(enAttente.get(1).getId(), OperationLotRequest.ACTION_REFUSER)));
+
+        assertEquals(4, resultats.size());
+        assertTrue(resultats.get(0).isSucces());
+        assertEquals("Location introuvable", resultats.get(1).getMessage());
+        assertFalse(resultats.get(2).isSucces());
+        assertTrue(resultats.get(3).isSucces());
+
+        em.flush();
+        em.clear();
+        assertEquals("CONFIRMEE", em.find(Location.class, enAttente.get(0).getId()).getStatut());
+        assertEquals("ANNULEE", em.find(Location.class, enAttente.get(1).getId()).getStatut());
+        verify(emailService).envoyerNotificationsDecisions(
+                List.of(enAttente.get(0).getId()), List.of(enAttente.get(1).getId()));
+    }
+
+    private void assertRequetesBornees() {
+        long nbRequetes = statistiques().getPrepareStatementCount();
+        assertTrue(nbRequetes <= MAX_REQUETES_PAR_PAGE,
+                "Trop de requêtes pour une page de locations: " + nbRequetes + " > " + MAX_REQUETES_PAR_PAGE);
+    }
+
+    private Statistics statistiques() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private void connecter(User user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new UtilisateurConnecte(user.getId(), user.getEmail()), null, List.of()));
+    }
+
+    private User persistUser(String email) {
+        return em.persist(Fixtures.utilisateur(email, new BigDecimal("100.00")));
+    }
+
+    private Voiture persistVoiture(User proprietaire, String immatriculation) {
+        Voiture voiture = Fixtures.voiture(proprietaire);
+        voiture.setImmatriculation(immatriculation);
+        return em.persist(voiture);
+    }
+
+    private Location persistLocation(User locataire, Voiture voiture, String statut, int decalageJours) {
+        Location location = Fixtures.demande(locataire, voiture, LocalDate.now().plusDays(decalageJours - 10),
+                LocalDate.now().plusDays(decalageJours - 8), new BigDecimal("90.00"));
+        location.setStatut(statut);
+        return em.persist(location);
+    }
+}
@@ -0,0 +1,225 @@
+package com.partikar.location;
+
+import com.partikar.Fixtures;
+import com.partikar.annonces.VoituresARecalculer;
+import com.partikar.email.EmailService;
+import com.partikar.security.UtilisateurConnecte;
+import com.partikar.security.UtilisateurCourant;
+import com.partikar.transaction.EcritureRepository;
+import com.partikar.transaction.GrandLivreService;
+import com.partikar.transaction.Transaction;
+import com.partikar.transaction.TransactionRepository;
+import com.partikar.transaction.TransactionService;
+import com.partikar.user.User;
+import com.partikar.user.UserRepository;
+import com.partikar.voiture.Voiture;
+import com.partikar.voiture.VoitureRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Un propriétaire accepte une demande pendant que DemandeExpirationScheduler l'expire, ou pendant que
+ * le locataire l'annule : la demande doit finir soit CONFIRMEE et payée, soit annulée et ses crédits libérés,
+ * jamais entre les deux.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // chaque appel du service est commité
+@Import({LocationService.class, DemandesEnAttenteIndex.class, VoituresARecalculer.class, TransactionService.class, GrandLivreService.class, UtilisateurCourant.class})
+class ValidationExpirationConcurrenceTests {
+
+    private static final int NB_COURSES = 30;
+    private static final BigDecimal PRIX = new BigDecimal("10.00");
+    private static final BigDecimal CREDITS_INITIAUX = new BigDecimal("1000.00");
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private GrandLivreService grandLivreService;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EcritureRepository ecritureRepository;
+
+    @Autowired
+    private VoitureRepository voitureRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @AfterEach
+    void tearDown() {
+        ecritureRepository.deleteAllInBatch();
+        transactionRepository.deleteAllInBatch();
+        locationRepository.deleteAllInBatch();
+        voitureRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void validationPendantExpiration_jamaisConfirmeeSansPaiement() throws Exception {
+        User proprietaire = userRepository.save(Fixtures.utilisateur("proprio@test.fr", CREDITS_INITIAUX));
+        User locataire = userRepository.save(Fixtures.utilisateur("locataire@test.fr", CREDITS_INITIAUX));
+        Voiture voiture = voitureRepository.save(Fixtures.voiture(proprietaire));
+        grandLivreService.ouvrirComptesManquants();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        int nbConfirmees = 0;
+        try {
+            for (int i = 0; i < NB_COURSES; i++) {
+                Location location = locationRepository.save(nouvelleLocation(locataire, voiture, i));
+                transactionService.creerTransactionEnAttente(locataire, location, PRIX);
+
+                CountDownLatch depart = new CountDownLatch(1);
+                Future<?> validation = executor.submit(() -> {
+                    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                            new UtilisateurConnecte(proprietaire.getId(), proprietaire.getEmail()), null, List.of()));
+                    try {
+                        depart.await();
+                        locationService.validerReservation(location.getId());
+                    } catch (RuntimeException e) {
+                        // Demande déjà expirée : refus attendu
+                    } finally {
+                        SecurityContextHolder.clearContext();
+                    }
+                    return null;
+                });
+                // Toutes les demandes sont expirées (créées avant la limite)
+                Future<?> expiration = executor.submit(() -> {
+                    depart.await();
+                    return locationService.expirerLotDemandesEnAttente(LocalDate.now(), LocalDateTime.now().plusHours(1), 10);
+                });
+                depart.countDown();
+                validation.get(30, TimeUnit.SECONDS);
+                expiration.get(30, TimeUnit.SECONDS);
+
+                String statutLocation = locationRepository.findById(location.getId()).orElseThrow().getStatut();
+                String statutTransaction = transactionRepository.findByLocationId(location.getId()).stream()
+                        .filter(t -> t.getUtilisateur().getId().equals(locataire.getId()))
+                        .map(Transaction::getStatut)
+                        .findFirst().orElseThrow();
+                if ("CONFIRMEE".equals(statutLocation)) {
+                    assertEquals("CONFIRMEE", statutTransaction);
+                    nbConfirmees++;
+                } else {
+                    assertEquals("ANNULEE", statutLocation);
+                    assertEquals("ANNULEE", statutTransaction);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+
+        BigDecimal totalDebite = PRIX.multiply(BigDecimal.valueOf(nbConfirmees));
+        User locataireFinal = userRepository.findById(locataire.getId()).orElseThrow();
+        User proprietaireFinal = userRepository.findById(proprietaire.getId()).orElseThrow();
+        assertEquals(0, locataireFinal.getCreditsSuspendus().signum());
+        assertEquals(0, CREDITS_INITIAUX.subtract(totalDebite).compareTo(locataireFinal.getCredits()));
+        assertEquals(0, CREDITS_INITIAUX.add(totalDebite).compareTo(proprietaireFinal.getCredits()));
+        assertEquals(0, grandLivreService.verifierSoldes());
+    }
+
+    @Test
+    void validationPendantAnnulationLocataire_jamaisConfirmeeAfficheeAnnulee() throws Exception {
+        User proprietaire = userRepository.save(Fixtures.utilisateur("proprio@test.fr", CREDITS_INITIAUX));
+        User locataire = userRepository.save(Fixtures.utilisateur("locataire@test.fr", CREDITS_INITIAUX));
+        Voiture voiture = voitureRepository.save(Fixtures.voiture(proprietaire));
+        grandLivreService.ouvrirComptesManquants();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        int nbConfirmees = 0;
+        try {
+            for (int i = 0; i < NB_COURSES; i++) {
+                Location location = locationRepository.save(nouvelleLocation(locataire, voiture, i));
+                transactionService.creerTransactionEnAttente(locataire, location, PRIX);
+
+                CountDownLatch depart = new CountDownLatch(1);
+                Future<?> validation = executor.submit(() ->
+                        executerEnTantQue(proprietaire, depart, () -> locationService.validerReservation(location.getId())));
+                Future<?> annulation = executor.submit(() ->
+                        executerEnTantQue(locataire, depart, () -> locationService.annulerDemandeLocataire(location.getId())));
+                depart.countDown();
+                validation.get(30, TimeUnit.SECONDS);
+                annulation.get(30, TimeUnit.SECONDS);
+
+                String statutLocation = locationRepository.findById(location.getId()).orElseThrow().getStatut();
+                String statutTransaction = transactionRepository.findByLocationId(location.getId()).stream()
+                        .filter(t -> t.getUtilisateur().getId().equals(locataire.getId()))
+                        .map(Transaction::getStatut)
+                        .findFirst().orElseThrow();
+                if ("CONFIRMEE".equals(statutLocation)) {
+                    assertEquals("CONFIRMEE", statutTransaction);
+                    nbConfirmees++;
+                } else {
+                    assertEquals("ANNULEE_PAR_LOCATAIRE", statutLocation);
+                    assertEquals("ANNULEE", statutTransaction);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+
+        BigDecimal totalDebite = PRIX.multiply(BigDecimal.valueOf(nbConfirmees));
+        User locataireFinal = userRepository.findById(locataire.getId()).orElseThrow();
+        User proprietaireFinal = userRepository.findById(proprietaire.getId()).orElseThrow();
+        assertEquals(0, locataireFinal.getCreditsSuspendus().signum());
+        assertEquals(0, CREDITS_INITIAUX.subtract(totalDebite).compareTo(locataireFinal.getCredits()));
+        assertEquals(0, CREDITS_INITIAUX.add(totalDebite).compareTo(proprietaireFinal.getCredits()));
+        assertEquals(0, grandLivreService.verifierSoldes());
+    }
+
+    // Appel du service par l'utilisateur donné, au signal de départ ; le perdant de la course est refusé
+    private Void executerEnTantQue(User utilisateur, CountDownLatch depart, Runnable appel) throws InterruptedException {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new UtilisateurConnecte(utilisateur.getId(), utilisateur.getEmail()), null, List.of()));
+        try {
+            depart.await();
+            appel.run();
+        } catch (ReservationRefuseeException e) {
+            // Demande déjà traitée par l'autre partie : refus attendu
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return null;
+    }
+
+    // Dates distinctes : accepter une demande n'annule pas les suivantes
+    private Location nouvelleLocation(User locataire, Voiture voiture, int rang) {
+        LocalDate jour = LocalDate.now().plusDays(2L * rang + 1);
+        return Fixtures.demande(locataire, voiture, jour, jour, PRIX);
+    }
+}
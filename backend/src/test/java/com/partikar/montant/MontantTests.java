@@ -0,0 +1,33 @@
+package com.partikar.montant;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MontantTests {
+
+    @Test
+    void conversionsAllerRetour() {
+        assertEquals(3050, Montant.centimes(new BigDecimal("30.5")));
+        assertEquals(3051, Montant.centimes(new BigDecimal("30.505")));
+        assertEquals(1999, Montant.centimes(19.99));
+        assertEquals(new BigDecimal("30.50"), Montant.versBigDecimal(3050));
+    }
+
+    @Test
+    void prixDUnePeriodeExact() {
+        // 0.1 * 3 en double donne 0.30000000000000004 ; en centimes le résultat est exact
+        Montant total = Montant.de(new BigDecimal("0.10")).fois(3);
+        assertEquals(new BigDecimal("0.30"), total.toBigDecimal());
+        assertTrue(Montant.de(new BigDecimal("29.99")).estInferieurA(Montant.deCentimes(3000)));
+    }
+
+    @Test
+    void depassementDetecte() {
+        assertThrows(ArithmeticException.class, () -> Montant.deCentimes(Long.MAX_VALUE).fois(2));
+    }
+}
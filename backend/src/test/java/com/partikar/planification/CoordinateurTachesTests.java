@@ -0,0 +1,76 @@
+package com.partikar.planification;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deux nœuds qui se disputent les mêmes baux de tâches.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // les baux sont commités immédiatement
+class CoordinateurTachesTests {
+
+    @Autowired
+    private BailTacheRepository bailTacheRepository;
+
+    @AfterEach
+    void tearDown() {
+        bailTacheRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void unSeulNoeudObtientLeBail() {
+        CoordinateurTaches noeudA = new CoordinateurTaches(bailTacheRepository, "noeud-a");
+        CoordinateurTaches noeudB = new CoordinateurTaches(bailTacheRepository, "noeud-b");
+
+        assertTrue(noeudA.acquerir("tache", Duration.ofMinutes(5)));
+        assertFalse(noeudB.acquerir("tache", Duration.ofMinutes(5)));
+        // Le propriétaire peut prolonger son bail
+        assertTrue(noeudA.acquerir("tache", Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void bailExpireRepris() {
+        CoordinateurTaches noeudA = new CoordinateurTaches(bailTacheRepository, "noeud-a");
+        CoordinateurTaches noeudB = new CoordinateurTaches(bailTacheRepository, "noeud-b");
+
+        // Nœud A arrêté avec un bail déjà expiré
+        assertTrue(noeudA.acquerir("tache", Duration.ofSeconds(-1)));
+        assertTrue(noeudB.acquerir("tache", Duration.ofMinutes(5)));
+        assertFalse(noeudA.acquerir("tache", Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void bailProlongeParSonProprietaireSeulement() {
+        CoordinateurTaches noeudA = new CoordinateurTaches(bailTacheRepository, "noeud-a");
+        CoordinateurTaches noeudB = new CoordinateurTaches(bailTacheRepository, "noeud-b");
+
+        assertTrue(noeudA.acquerir("tache", Duration.ofSeconds(-1)));
+        assertTrue(noeudA.prolonger("tache", Duration.ofMinutes(5)));
+        assertFalse(noeudB.acquerir("tache", Duration.ofMinutes(5)));
+
+        // Bail expiré puis repris par B : A ne peut plus le prolonger
+        assertTrue(noeudA.prolonger("tache", Duration.ofSeconds(-1)));
+        assertTrue(noeudB.acquerir("tache", Duration.ofMinutes(5)));
+        assertFalse(noeudA.prolonger("tache", Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void partitionsReparties() {
+        CoordinateurTaches noeudA = new CoordinateurTaches(bailTacheRepository, "noeud-a");
+        CoordinateurTaches noeudB = new CoordinateurTaches(bailTacheRepository, "noeud-b");
+
+        assertTrue(noeudA.acquerir(CoordinateurTaches.partition("tache", 0), Duration.ofMinutes(5)));
+        assertTrue(noeudB.acquerir(CoordinateurTaches.partition("tache", 1), Duration.ofMinutes(5)));
+        assertFalse(noeudB.acquerir(CoordinateurTaches.partition("tache", 0), Duration.ofMinutes(5)));
+    }
+}
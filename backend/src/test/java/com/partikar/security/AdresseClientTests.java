@@ -0,0 +1,99 @@
+package com.partikar.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.autoconfigure.web.embedded.TomcatWebServerFactoryCustomizer;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Adresse du client derrière le reverse proxy (configuration server.* de application.properties) :
+ * X-Forwarded-For n'est pris en compte que s'il est envoyé par un proxy de confiance.
+ */
+class AdresseClientTests {
+
+    private static final String RECHERCHE = "/api/annonces/search";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private WebServer serveur;
+
+    @AfterEach
+    void tearDown() {
+        if (serveur != null) {
+            serveur.stop();
+        }
+    }
+
+    @Test
+    void proxyDeConfiance_seauParAdresseTransmise() throws Exception {
+        demarrer(Map.of()); // Requêtes envoyées depuis la boucle locale, proxy de confiance par défaut
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, rechercher("203.0.113.1"));
+        }
+        assertEquals(429, rechercher("203.0.113.1"));
+        // Autre client derrière le même proxy : seau indépendant
+        assertEquals(200, rechercher("203.0.113.2"));
+    }
+
+    @Test
+    void proxyInconnu_enTeteIgnore() throws Exception {
+        demarrer(Map.of("server.tomcat.remoteip.internal-proxies", "10\\.0\\.0\\.5"));
+
+        // X-Forwarded-For falsifié à chaque requête : toutes comptées pour l'adresse réelle
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, rechercher("203.0.113." + i));
+        }
+        assertEquals(429, rechercher("203.0.113.99"));
+    }
+
+    private void demarrer(Map<String, Object> surcharges) throws IOException {
+        StandardEnvironment environnement = new StandardEnvironment();
+        environnement.getPropertySources().addFirst(new MapPropertySource("surcharges", surcharges));
+        environnement.getPropertySources().addLast(new ResourcePropertySource(new ClassPathResource("application.properties")));
+        ServerProperties proprietes = Binder.get(environnement).bind("server", ServerProperties.class).get();
+
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        new TomcatWebServerFactoryCustomizer(environnement, proprietes).customize(factory);
+
+        LimiteurDebit limiteur = new LimiteurDebit(new SimpleMeterRegistry(), 3, 0.01, 30, 10);
+        serveur = factory.getWebServer(contexte -> {
+            contexte.addFilter("limiteurDebit", new LimiteurDebitFilter(limiteur))
+                    .addMappingForUrlPatterns(null, false, "/*");
+            contexte.addServlet("ok", new HttpServlet() {
+                @Override
+                protected void service(HttpServletRequest request, HttpServletResponse response) {
+                    response.setStatus(200);
+                }
+            }).addMapping("/*");
+        });
+        serveur.start();
+    }
+
+    private int rechercher(String adresseTransmise) throws Exception {
+        HttpRequest requete = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + serveur.getPort() + RECHERCHE))
+                .header("X-Forwarded-For", adresseTransmise)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(requete, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,31 @@
+package com.partikar.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FiltreBloomTests {
+
+    @Test
+    void aucunFauxNegatif_etTauxDeFauxPositifsProcheDeLaCible() {
+        FiltreBloom filtre = new FiltreBloom(10_000, 0.01);
+        String[] revoques = new String[10_000];
+        for (int i = 0; i < revoques.length; i++) {
+            revoques[i] = UUID.randomUUID().toString();
+            filtre.ajouter(revoques[i]);
+        }
+
+        for (String jti : revoques) {
+            assertTrue(filtre.peutContenir(jti));
+        }
+        int fauxPositifs = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filtre.peutContenir(UUID.randomUUID().toString())) {
+                fauxPositifs++;
+            }
+        }
+        assertTrue(fauxPositifs < 2_000, "Trop de faux positifs: " + fauxPositifs);
+    }
+}
@@ -0,0 +1,112 @@
+package com.partikar.security;
+
+import com.partikar.user.User;
+import com.partikar.user.UserRepository;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Authentification par JWT sans requête en base à chaque appel.
+ */
+class JwtAuthFilterTests {
+
+    private static final String SECRET = "dGVzdHRlc3R0ZXN0dGVzdHRlc3R0ZXN0dGVzdHRlc3R0ZXN0dGVzdHRlc3R0ZXN0";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final JetonRevoqueRepository jetonRevoqueRepository = mock(JetonRevoqueRepository.class);
+    private ListeRevocation listeRevocation;
+    private JwtService jwtService;
+    private JwtAuthFilter filtre;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(SECRET, 15);
+        ComptesActifsCache cache = new ComptesActifsCache(userRepository);
+        ReflectionTestUtils.setField(cache, "ttlSecondes", 60L);
+        listeRevocation = new ListeRevocation(jetonRevoqueRepository);
+        ReflectionTestUtils.setField(listeRevocation, "capacite", 1000);
+        ReflectionTestUtils.setField(listeRevocation, "dureeAccesMinutes", 15L);
+        listeRevocation.reconstruire();
+        filtre = new JwtAuthFilter(jwtService, cache, listeRevocation);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void principalConstruitDepuisLesClaims_compteVerifieUneSeuleFois() throws Exception {
+        when(userRepository.findEmailById(7L)).thenReturn(Optional.of("a@test.fr"));
+        String token = jwtService.generateToken(user(7L, "a@test.fr"));
+
+        for (int i = 0; i < 3; i++) {
+            SecurityContextHolder.clearContext();
+            filtrer(token);
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            assertEquals("a@test.fr", auth.getName());
+            assertEquals(7L, ((UtilisateurConnecte) auth.getPrincipal()).id());
+        }
+        verify(userRepository, times(1)).findEmailById(7L);
+        // Aucun token révoqué : le filtre de Bloom suffit, sans requête
+        verify(jetonRevoqueRepository, never()).existsById(anyString());
+        verify(jetonRevoqueRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void tokenRevoque_refuse() throws Exception {
+        when(userRepository.findEmailById(9L)).thenReturn(Optional.of("c@test.fr"));
+        String token = jwtService.generateToken(user(9L, "c@test.fr"));
+        Claims claims = jwtService.extraireClaims(token);
+        when(jetonRevoqueRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+        when(jetonRevoqueRepository.existsById(claims.getId())).thenReturn(true);
+
+        listeRevocation.revoquerJeton(claims.getId(), claims.getExpiration());
+        filtrer(token);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+
+        // Un nouveau token du même utilisateur reste accepté
+        filtrer(jwtService.generateToken(user(9L, "c@test.fr")));
+        assertEquals("c@test.fr", SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    @Test
+    void compteSupprime_tokenRefuse() throws Exception {
+        when(userRepository.findEmailById(8L)).thenReturn(Optional.empty());
+        filtrer(jwtService.generateToken(user(8L, "b@test.fr")));
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private void filtrer(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/locations/mes-reservations");
+        request.addHeader("Authorization", "Bearer " + token);
+        filtre.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    private User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+}
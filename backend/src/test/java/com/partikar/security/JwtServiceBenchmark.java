@@ -0,0 +1,81 @@
+package com.partikar.security;
+
+import com.partikar.user.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit de vérification d'un token par JwtAuthFilter.
+ *
+ * - verificationUnique : JwtService actuel (clé et parser construits une fois, une seule analyse du token)
+ * - verificationParClaim : ancien fonctionnement (clé décodée et parser construit à chaque claim,
+ *   token vérifié 3 fois : sujet, sujet, expiration)
+ *
+ * Lancement : mvn test-compile puis exécuter main() avec le classpath de test
+ * (ex: depuis l'IDE, ou mvn exec:java -Dexec.classpathScope=test -Dexec.mainClass=...).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "dGVzdHRlc3R0ZXN0dGVzdHRlc3R0ZXN0dGVzdHRlc3R0ZXN0dGVzdHRlc3R0ZXN0";
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET, 15);
+        User user = new User();
+        user.setId(42L);
+        user.setEmail("benchmark@test.fr");
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public Long verificationUnique() {
+        Claims claims = jwtService.extraireClaims(token);
+        claims.getSubject();
+        return claims.get(JwtService.CLAIM_UTILISATEUR_ID, Long.class);
+    }
+
+    @Benchmark
+    public boolean verificationParClaim() {
+        String sujet = analyser().getSubject();
+        boolean memeSujet = sujet.equals(analyser().getSubject());
+        return memeSujet && !analyser().getExpiration().before(new Date());
+    }
+
+    private Claims analyser() {
+        Key cle = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        return Jwts.parserBuilder().setSigningKey(cle).build().parseClaimsJws(token).getBody();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(JwtServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
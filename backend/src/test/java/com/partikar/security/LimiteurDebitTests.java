@@ -0,0 +1,35 @@
+package com.partikar.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimiteurDebitTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LimiteurDebit limiteur = new LimiteurDebit(registry, 3, 0.5, 30, 10);
+
+    @Test
+    void rafaleAcceptee_puisRefusAvecDelai_seauParClient() {
+        LimiteurDebit.Regle recherche = limiteur.regle("POST", "/api/annonces/search");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiteur.consommer(recherche, "ip:10.0.0.1"));
+        }
+        long reessayerApres = limiteur.consommer(recherche, "ip:10.0.0.1");
+        assertTrue(reessayerApres >= 1 && reessayerApres <= 2, "Retry-After: " + reessayerApres);
+
+        // Autre client : seau indépendant
+        assertEquals(0, limiteur.consommer(recherche, "u:42"));
+        assertEquals(1.0, registry.get("partikar.limite.debit.refus").tag("route", "recherche").counter().count());
+    }
+
+    @Test
+    void routesNonLimitees() {
+        assertNull(limiteur.regle("GET", "/api/annonces/search"));
+        assertNull(limiteur.regle("GET", "/api/locations/mes-locations"));
+    }
+}
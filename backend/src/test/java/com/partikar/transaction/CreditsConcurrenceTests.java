@@ -0,0 +1,184 @@
+package com.partikar.transaction;
+
+import com.partikar.Fixtures;
+import com.partikar.location.Location;
+import com.partikar.location.LocationRepository;
+import com.partikar.user.User;
+import com.partikar.user.UserRepository;
+import com.partikar.voiture.Voiture;
+import com.partikar.voiture.VoitureRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test de charge : des milliers de réservations/confirmations/annulations en parallèle
+ * sur les mêmes comptes ne doivent perdre aucune mise à jour de crédits,
+ * et le grand livre doit rester identique aux soldes.
+ */
+@DataJpaTest(properties = {"app.grand-livre.instantane.delai-secondes=3", "spring.transaction.default-timeout=2s"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // chaque appel du service est commité
+@Import({TransactionService.class, GrandLivreService.class})
+class CreditsConcurrenceTests {
+
+    private static final int NB_RESERVATIONS = 2000;
+    private static final int NB_THREADS = 16;
+    private static final BigDecimal PRIX = new BigDecimal("1.00");
+    private static final BigDecimal CREDITS_INITIAUX = new BigDecimal("1000.00");
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private GrandLivreService grandLivreService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EcritureRepository ecritureRepository;
+
+    @Autowired
+    private SoldeInstantaneRepository soldeInstantaneRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private VoitureRepository voitureRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        soldeInstantaneRepository.deleteAllInBatch();
+        ecritureRepository.deleteAllInBatch();
+        transactionRepository.deleteAllInBatch();
+        locationRepository.deleteAllInBatch();
+        voitureRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void reservationsParalleles_soldesExacts() throws Exception {
+        User proprietaire = userRepository.save(Fixtures.utilisateur("proprio@test.fr", CREDITS_INITIAUX));
+        User locataire = userRepository.save(Fixtures.utilisateur("locataire@test.fr", CREDITS_INITIAUX));
+        Voiture voiture = voitureRepository.save(Fixtures.voiture(proprietaire));
+        grandLivreService.ouvrirComptesManquants();
+
+        ExecutorService executor = Executors.newFixedThreadPool(NB_THREADS);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < NB_RESERVATIONS; i++) {
+            locations.add(Fixtures.demande(locataire, voiture,
+                    LocalDate.now().plusDays(1), LocalDate.now().plusDays(2), PRIX));
+        }
+        locations = locationRepository.saveAll(locations);
+
+        // Un instantané au milieu des mouvements
+        executor.submit(grandLivreService::creerInstantanes);
+
+        // Deux fois plus de demandes que de crédits : une sur trois suspendues est ensuite annulée,
+        // les autres confirmées (certaines deux fois)
+        AtomicInteger nbSuspendues = new AtomicInteger();
+        AtomicInteger nbRefusees = new AtomicInteger();
+        List<Future<?>> taches = new ArrayList<>();
+        for (int i = 0; i < NB_RESERVATIONS; i++) {
+            Location location = locations.get(i);
+            int rang = i;
+            taches.add(executor.submit(() -> {
+                try {
+                    transactionService.creerTransactionEnAttente(locataire, location, PRIX);
+                    nbSuspendues.incrementAndGet();
+                } catch (RuntimeException e) {
+                    nbRefusees.incrementAndGet();
+                    return;
+                }
+                if (rang % 3 == 0) {
+                    transactionService.annulerTransaction(location.getId());
+                } else {
+                    transactionService.confirmerTransaction(location.getId());
+                    if (rang % 3 == 1) {
+                        // Déjà confirmée : la seconde confirmation est refusée sans nouveau débit
+                        assertThrows(IllegalStateException.class,
+                                () -> transactionService.confirmerTransaction(location.getId()));
+                    }
+                }
+            }));
+        }
+        for (Future<?> tache : taches) {
+            tache.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(NB_RESERVATIONS, nbSuspendues.get() + nbRefusees.get());
+
+        long nbConfirmees = transactionRepository.findByUtilisateurId(locataire.getId()).stream()
+                .filter(t -> "CONFIRMEE".equals(t.getStatut()))
+                .count();
+        BigDecimal totalDebite = PRIX.multiply(BigDecimal.valueOf(nbConfirmees));
+
+        User locataireFinal = userRepository.findById(locataire.getId()).orElseThrow();
+        User proprietaireFinal = userRepository.findById(proprietaire.getId()).orElseThrow();
+
+        assertTrue(nbConfirmees > 0);
+        assertEquals(0, locataireFinal.getCreditsSuspendus().signum());
+        assertEquals(0, CREDITS_INITIAUX.subtract(totalDebite).compareTo(locataireFinal.getCredits()));
+        assertEquals(0, CREDITS_INITIAUX.add(totalDebite).compareTo(proprietaireFinal.getCredits()));
+        assertTrue(locataireFinal.getCredits().signum() >= 0);
+        assertEquals(nbConfirmees, transactionRepository.findByUtilisateurId(proprietaire.getId()).size());
+
+        // Grand livre : solde lu depuis le dernier instantané + écritures suivantes, et vérification complète.
+        // Après le délai des instantanés, le dernier instantané couvre toutes les écritures
+        Thread.sleep(3100);
+        assertTrue(grandLivreService.creerInstantanes() > 0);
+        SoldeCredits soldeLocataire = grandLivreService.soldeA(locataire.getId(), LocalDateTime.now());
+        assertEquals(0, soldeLocataire.credits().compareTo(locataireFinal.getCredits()));
+        assertEquals(0, soldeLocataire.suspendu().signum());
+        assertEquals(0, grandLivreService.verifierSoldes());
+    }
+
+    @Test
+    void ecritureCommiteeApresUnInstantaneDIdSuperieur_compteeAuSuivant() {
+        User premier = userRepository.save(Fixtures.utilisateur("premier@test.fr", CREDITS_INITIAUX));
+        User second = userRepository.save(Fixtures.utilisateur("second@test.fr", CREDITS_INITIAUX));
+        LocalDateTime ilYAUneHeure = LocalDateTime.now().minusHours(1);
+
+        // L'écriture du premier utilisateur a un ID supérieur à celle du second, commitée plus tard
+        jdbcTemplate.update("INSERT INTO ecritures (id, mouvement, utilisateur_id, compte, montant, cree_le) " +
+                "VALUES (1000000, 'DOTATION-1', ?, 'DISPONIBLE', 10.00, ?)", premier.getId(), ilYAUneHeure);
+        assertEquals(1, grandLivreService.creerInstantanes());
+        ecritureRepository.save(new Ecriture("DOTATION-2", second.getId(), Ecriture.Compte.DISPONIBLE,
+                new BigDecimal("20.00"), null, ilYAUneHeure));
+
+        assertEquals(1, grandLivreService.creerInstantanes());
+        SoldeInstantane instantane = soldeInstantaneRepository
+                .findFirstByUtilisateurIdAndCreeLeLessThanEqualOrderByIdDesc(second.getId(), LocalDateTime.now())
+                .orElseThrow();
+        assertEquals(0, new BigDecimal("20.00").compareTo(instantane.getSoldeDisponible()));
+    }
+}
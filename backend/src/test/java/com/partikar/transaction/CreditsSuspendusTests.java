@@ -0,0 +1,107 @@
+package com.partikar.transaction;
+
+import com.partikar.Fixtures;
+import com.partikar.location.Location;
+import com.partikar.user.User;
+import com.partikar.voiture.Voiture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Le solde credits_suspendus doit toujours égaler la somme des transactions EN_ATTENTE.
+ */
+@DataJpaTest
+@Import({TransactionService.class, GrandLivreService.class, CreditsSuspendusReconciliation.class})
+class CreditsSuspendusTests {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private CreditsSuspendusReconciliation reconciliation;
+
+    @Autowired
+    private GrandLivreService grandLivreService;
+
+    private User proprietaire;
+    private User locataire;
+    private Voiture voiture;
+
+    @BeforeEach
+    void setUp() {
+        proprietaire = persistUser("proprio@test.fr");
+        locataire = persistUser("locataire@test.fr");
+        voiture = em.persist(Fixtures.voiture(proprietaire));
+    }
+
+    @Test
+    void suspensionConfirmationAnnulation_soldeMaintenu() {
+        Location l1 = persistLocation();
+        Location l2 = persistLocation();
+        Location l3 = persistLocation();
+        Location l4 = persistLocation();
+
+        transactionService.creerTransactionEnAttente(locataire, l1, new BigDecimal("30.00"));
+        transactionService.creerTransactionEnAttente(locataire, l2, new BigDecimal("20.00"));
+        transactionService.creerTransactionEnAttente(locataire, l3, new BigDecimal("10.00"));
+        transactionService.creerTransactionEnAttente(locataire, l4, new BigDecimal("5.00"));
+        assertEquals(new BigDecimal("35.00"), transactionService.calculerCreditsDisponibles(locataire));
+
+        // Au-delà des crédits disponibles
+        assertThrows(RuntimeException.class,
+                () -> transactionService.creerTransactionEnAttente(locataire, persistLocation(), new BigDecimal("40.00")));
+
+        transactionService.confirmerTransaction(l1.getId());
+        transactionService.annulerTransaction(l2.getId());
+        em.flush();
+        transactionService.annulerTransactionsEnAttente(List.of(l3.getId()));
+        em.clear();
+
+        User recharge = em.find(User.class, locataire.getId());
+        assertEquals(new BigDecimal("70.00"), recharge.getCredits());
+        assertEquals(new BigDecimal("5.00"), recharge.getCreditsSuspendus());
+        assertEquals(0, reconciliation.reconcilier());
+    }
+
+    @Test
+    void reconciliation_corrigeLesEcarts() {
+        grandLivreService.ouvrirComptesManquants();
+        Location location = persistLocation();
+        em.persist(new Transaction(locataire, location, new BigDecimal("-25.00"), "RESERVATION_SUSPENSION", "EN_ATTENTE"));
+        em.flush();
+
+        assertEquals(1, reconciliation.reconcilier());
+        em.clear();
+        assertEquals(new BigDecimal("25.00"), em.find(User.class, locataire.getId()).getCreditsSuspendus());
+        assertEquals(0, reconciliation.reconcilier());
+
+        // La correction est passée par le grand livre : 25 déplacés de DISPONIBLE vers SUSPENDU
+        SoldeCredits solde = grandLivreService.soldeA(locataire.getId(), LocalDateTime.now());
+        assertEquals(0, new BigDecimal("100.00").compareTo(solde.credits()));
+        assertEquals(0, new BigDecimal("25.00").compareTo(solde.suspendu()));
+    }
+
+    private User persistUser(String email) {
+        return em.persist(Fixtures.utilisateur(email, new BigDecimal("100.00")));
+    }
+
+    private Location persistLocation() {
+        return em.persist(Fixtures.demande(locataire, voiture,
+                LocalDate.now().plusDays(1), LocalDate.now().plusDays(2), new BigDecimal("30.00")));
+    }
+}
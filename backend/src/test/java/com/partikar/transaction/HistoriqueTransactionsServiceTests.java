@@ -0,0 +1,98 @@
+package com.partikar.transaction;
+
+import com.partikar.Fixtures;
+import com.partikar.security.UtilisateurCourant;
+import com.partikar.location.Location;
+import com.partikar.user.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({HistoriqueTransactionsService.class, UtilisateurCourant.class})
+class HistoriqueTransactionsServiceTests {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private HistoriqueTransactionsService historiqueTransactionsService;
+
+    @BeforeEach
+    void setUp() {
+        // 100 crédits de départ, -30 confirmés, -20 en attente, +50 confirmés : 120 crédits
+        User locataire = em.persist(Fixtures.utilisateur("locataire@test.fr", new BigDecimal("120.00")));
+        User proprietaire = em.persist(Fixtures.utilisateur("proprio@test.fr", new BigDecimal("100.00")));
+        Location location = Fixtures.demande(locataire, em.persist(Fixtures.voiture(proprietaire)),
+                LocalDate.now().plusDays(1), LocalDate.now().plusDays(2), new BigDecimal("30.00"));
+        location.setStatut("CONFIRMEE");
+        em.persist(location);
+
+        em.persist(new Transaction(locataire, location, new BigDecimal("-30.00"), "RESERVATION_DEBIT", "CONFIRMEE"));
+        em.persist(new Transaction(locataire, location, new BigDecimal("-20.00"), "RESERVATION_SUSPENSION", "EN_ATTENTE"));
+        em.persist(new Transaction(locataire, location, new BigDecimal("50.00"), "PAIEMENT_LOCATION", "CONFIRMEE"));
+        em.flush();
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(locataire.getEmail(), null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void historique_soldeApresChaqueTransaction_parPages() {
+        List<LigneHistoriqueResponse> page1 = historiqueTransactionsService.getHistorique(null, 2);
+        List<LigneHistoriqueResponse> page2 = historiqueTransactionsService.getHistorique(page1.get(1).getTransactionId(), 2);
+
+        assertEquals(2, page1.size());
+        assertEquals(0, new BigDecimal("120.00").compareTo(page1.get(0).getSoldeApres()));
+        assertEquals(0, new BigDecimal("70.00").compareTo(page1.get(1).getSoldeApres())); // EN_ATTENTE : solde inchangé
+        assertEquals(1, page2.size());
+        assertEquals(0, new BigDecimal("70.00").compareTo(page2.get(0).getSoldeApres()));
+        assertEquals("RESERVATION_DEBIT", page2.get(0).getType());
+    }
+
+    @Test
+    void historique_pagesDUneLigne_soldesAncresSurLesPagesPrecedentes() {
+        List<LigneHistoriqueResponse> complet = historiqueTransactionsService.getHistorique(null, 10);
+
+        Long apresId = null;
+        for (LigneHistoriqueResponse attendue : complet) {
+            List<LigneHistoriqueResponse> page = historiqueTransactionsService.getHistorique(apresId, 1);
+            assertEquals(1, page.size());
+            assertEquals(attendue.getTransactionId(), page.get(0).getTransactionId());
+            assertEquals(0, attendue.getSoldeApres().compareTo(page.get(0).getSoldeApres()));
+            apresId = page.get(0).getTransactionId();
+        }
+        assertTrue(historiqueTransactionsService.getHistorique(apresId, 1).isEmpty());
+    }
+
+    @Test
+    void exportCsv_ordreChronologique() {
+        StringWriter writer = new StringWriter();
+        historiqueTransactionsService.exporterCsv(LocalDate.now().minusDays(1), LocalDate.now(), writer);
+
+        String[] lignes = writer.toString().split("\n");
+        assertEquals(4, lignes.length);
+        assertTrue(lignes[1].contains(";RESERVATION_DEBIT;CONFIRMEE;-30.00;"));
+        assertTrue(lignes[1].endsWith(";70.00"));
+        assertTrue(lignes[3].endsWith(";120.00"));
+    }
+}
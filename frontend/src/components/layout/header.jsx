@@ -13,6 +13,7 @@ import {
     DropdownMenuItem, DropdownMenuSeparator,
 } from "@/components/ui/dropdown-menu";
 import { Avatar, AvatarImage, AvatarFallback } from "@/components/ui/avatar";
+import { deconnecter } from "@/lib/session.js";
 
 export default function Header() {
     // Anti-flash: on lit le token dès l'init (pas après le premier render)
@@ -57,8 +58,7 @@ export default function Header() {
     const initials = makeInitials(user.prenom, user.nom);
 
     function handleLogout() {
-        localStorage.removeItem("token");
-        fetch("/api/auth/logout", { method: "POST", credentials: "include" }).finally(() => {
+        deconnecter().finally(() => {
             setIsAuth(false);
             setUser({ prenom: "", nom: "", avatarUrl: "" });
             // notifier le reste de l'app si besoin
@@ -1,5 +1,6 @@
 import React, { createContext, useContext, useState, useEffect } from 'react';
 import axios from 'axios';
+import { enregistrerSession } from '@/lib/session.js';
 
 // 1. On crée le "contexte"
 const AuthContext = createContext();
@@ -36,7 +37,8 @@ export function AuthProvider({ children }) {
         // (On utilise /api/auth/register car ton vite.config.js gère le proxy)
         const response = await axios.post('/api/auth/register', userData);
 
-        // On met à jour le token dans notre état
+        // On met à jour le token dans notre état (et on garde le jeton de rafraîchissement)
+        enregistrerSession(response.data);
         setToken(response.data.token);
 
         // (Tu pourrais aussi setter l'utilisateur si le backend le renvoie)
@@ -48,6 +50,7 @@ export function AuthProvider({ children }) {
         // credentials est un objet : { email, password }
 
         const response = await axios.post('/api/auth/login', credentials);
+        enregistrerSession(response.data);
         setToken(response.data.token);
 
         // (Tu pourrais aussi setter l'utilisateur ici)
@@ -0,0 +1,83 @@
+// Session JWT : token d'accès de courte durée + jeton de rafraîchissement (usage unique).
+// Une réponse 401 d'un appel authentifié déclenche un seul rafraîchissement, puis la requête est rejouée.
+
+const fetchOriginal = window.fetch.bind(window);
+let rafraichissementEnCours = null;
+
+export function enregistrerSession(data) {
+    if (data?.token) localStorage.setItem("token", data.token);
+    if (data?.refreshToken) localStorage.setItem("refreshToken", data.refreshToken);
+}
+
+export function effacerSession() {
+    localStorage.removeItem("token");
+    localStorage.removeItem("refreshToken");
+}
+
+// Révoque la session côté serveur puis l'efface localement
+export function deconnecter() {
+    const token = localStorage.getItem("token");
+    const refreshToken = localStorage.getItem("refreshToken");
+    effacerSession();
+    return fetchOriginal("/api/auth/logout", {
+        method: "POST",
+        credentials: "include",
+        headers: {
+            "Content-Type": "application/json",
+            ...(token ? { Authorization: `Bearer ${token}` } : {}),
+        },
+        body: JSON.stringify({ refreshToken }),
+    }).catch(() => {});
+}
+
+// Un seul rafraîchissement à la fois, y compris entre onglets (le jeton de rafraîchissement est partagé
+// dans localStorage) : verrou navigator.locks, et les appels simultanés d'un même onglet partagent la promesse
+function rafraichir(tokenRefuse) {
+    if (!rafraichissementEnCours) {
+        const executer = () => rafraichirSession(tokenRefuse);
+        rafraichissementEnCours = (navigator.locks
+            ? navigator.locks.request("partikar-rafraichissement", executer)
+            : executer())
+            .catch(() => null)
+            .finally(() => { rafraichissementEnCours = null; });
+    }
+    return rafraichissementEnCours;
+}
+
+async function rafraichirSession(tokenRefuse) {
+    // Session déjà renouvelée par un autre onglet pendant l'attente du verrou
+    const tokenActuel = localStorage.getItem("token");
+    if (tokenActuel && tokenActuel !== tokenRefuse) return tokenActuel;
+
+    const refreshToken = localStorage.getItem("refreshToken");
+    if (!refreshToken) return null;
+    const res = await fetchOriginal("/api/auth/refresh", {
+        method: "POST",
+        headers: { "Content-Type": "application/json" },
+        body: JSON.stringify({ refreshToken }),
+    });
+    if (!res.ok) {
+        // Erreur passagère (serveur) : session conservée, la requête échoue simplement
+        if (res.status !== 401) return null;
+        // N'effacer la session que si elle n'a pas été renouvelée entre-temps (autre onglet sans navigator.locks)
+        if (localStorage.getItem("refreshToken") !== refreshToken) return localStorage.getItem("token");
+        effacerSession();
+        window.dispatchEvent(new Event("auth:changed"));
+        return null;
+    }
+    const data = await res.json();
+    enregistrerSession(data);
+    return data.token;
+}
+
+window.fetch = async (input, init = {}) => {
+    const res = await fetchOriginal(input, init);
+    const url = typeof input === "string" ? input : input.url;
+    const headers = new Headers(init.headers || {});
+    if (res.status !== 401 || url.startsWith("/api/auth/") || !headers.has("Authorization")) return res;
+
+    const token = await rafraichir(headers.get("Authorization").replace(/^Bearer /, ""));
+    if (!token) return res;
+    headers.set("Authorization", `Bearer ${token}`);
+    return fetchOriginal(input, { ...init, headers });
+};
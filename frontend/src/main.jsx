@@ -2,6 +2,8 @@ import React from 'react';
 import ReactDOM from 'react-dom/client';
 import App from './App.jsx';
 import './index.css';
+// Rafraîchissement automatique du token JWT (avant tout appel à l'API)
+import '@/lib/session.js';
 // Il utilise le bon alias '@/context/AuthContext' (qui a corrigé ton bug)
 import { AuthProvider } from "@/context/AuthContext.jsx";
 // Il importe le BrowserRouter (essentiel)
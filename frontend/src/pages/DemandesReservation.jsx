@@ -7,12 +7,18 @@ import { useNavigate } from 'react-router-dom';
 import { Card, CardContent, CardHeader, CardTitle } from '@/components/ui/card';
 import { Star } from 'lucide-react';
 
+// Taille des pages demandées au serveur (le serveur plafonne à 100)
+const TAILLE_PAGE = 50;
+
 export default function DemandesReservation() {
   const { token } = useAuth();
   const navigate = useNavigate();
   const [loading, setLoading] = useState(true);
   const [demandesRecues, setDemandesRecues] = useState([]);
   const [mesDemandesEnvoyees, setMesDemandesEnvoyees] = useState([]);
+  // Curseur de la page suivante des demandes envoyées (creeLe et locationId du dernier élément reçu)
+  const [curseurEnvoyees, setCurseurEnvoyees] = useState(null);
+  const [chargementSuite, setChargementSuite] = useState(false);
   const [error, setError] = useState(null);
   const [activeTab, setActiveTab] = useState('recues'); // 'recues' ou 'envoyees'
   const [subTab, setSubTab] = useState('en-cours'); // 'en-cours' ou 'passees'
@@ -31,28 +37,28 @@ export default function DemandesReservation() {
         setLoading(true);
         setError(null);
 
-        // Récupérer les demandes reçues (en attente)
-        const resRecues = await fetch('/api/locations/proprietaire/en-attente', {
-          headers: { 'Authorization': `Bearer ${token}` }
-        });
-        if (resRecues.status === 401) {
-          setError('Session expirée. Veuillez vous reconnecter.');
-          navigate('/login');
-          return;
-        }
-        if (resRecues.ok) {
+        // Récupérer les demandes reçues (en attente), page par page jusqu'à une page incomplète :
+        // la boîte de réception se vide au fil des acceptations et des refus
+        const recues = [];
+        for (let page = 0; ; page++) {
+          const resRecues = await fetch(`/api/locations/proprietaire/en-attente?page=${page}&taille=${TAILLE_PAGE}`, {
+            headers: { 'Authorization': `Bearer ${token}` }
+          });
+          if (resRecues.status === 401) {
+            setError('Session expirée. Veuillez vous reconnecter.');
+            navigate('/login');
+            return;
+          }
+          if (!resRecues.ok) break;
           const dataRecues = await resRecues.json();
-          setDemandesRecues(Array.isArray(dataRecues) ? dataRecues : []);
+          if (!Array.isArray(dataRecues)) break;
+          recues.push(...dataRecues);
+          if (dataRecues.length < TAILLE_PAGE) break;
         }
+        setDemandesRecues(recues);
 
-        // Récupérer mes demandes envoyées
-        const resEnvoyees = await fetch('/api/locations/mes-demandes', {
-          headers: { 'Authorization': `Bearer ${token}` }
-        });
-        if (resEnvoyees.ok) {
-          const dataEnvoyees = await resEnvoyees.json();
-          setMesDemandesEnvoyees(Array.isArray(dataEnvoyees) ? dataEnvoyees : []);
-        }
+        // Récupérer mes demandes envoyées (première page, les suivantes avec « Voir plus »)
+        await chargerMesDemandes(null);
       } catch (e) {
         setError(e.message);
       } finally {
@@ -62,6 +68,38 @@ export default function DemandesReservation() {
     fetchDemandes();
   }, [token, navigate]);
 
+  // Charge une page de mes demandes envoyées, après le curseur donné (null pour la première page)
+  const chargerMesDemandes = async (curseur) => {
+    const params = new URLSearchParams({ taille: TAILLE_PAGE });
+    if (curseur) {
+      params.set('apresCreeLe', curseur.creeLe);
+      params.set('apresId', curseur.locationId);
+    }
+    const resEnvoyees = await fetch(`/api/locations/mes-demandes?${params}`, {
+      headers: { 'Authorization': `Bearer ${token}` }
+    });
+    if (!resEnvoyees.ok) return;
+    const dataEnvoyees = await resEnvoyees.json();
+    if (!Array.isArray(dataEnvoyees)) return;
+    setMesDemandesEnvoyees(prev => curseur ? [...prev, ...dataEnvoyees] : dataEnvoyees);
+    // Page complète : il peut en rester d'autres
+    const dernier = dataEnvoyees[dataEnvoyees.length - 1];
+    setCurseurEnvoyees(dataEnvoyees.length === TAILLE_PAGE
+      ? { creeLe: dernier.creeLe, locationId: dernier.locationId }
+      : null);
+  };
+
+  const handleVoirPlusEnvoyees = async () => {
+    setChargementSuite(true);
+    try {
+      await chargerMesDemandes(curseurEnvoyees);
+    } catch (e) {
+      alert('❌ Erreur : ' + e.message);
+    } finally {
+      setChargementSuite(false);
+    }
+  };
+
   const handleAccepter = async (locationId) => {
     setActionLoading(true);
     try {
@@ -425,6 +463,14 @@ export default function DemandesReservation() {
                 )}
               </>
             )}
+
+            {curseurEnvoyees && (
+              <div className='flex justify-center mt-6'>
+                <Button onClick={handleVoirPlusEnvoyees} variant='outline' disabled={chargementSuite}>
+                  {chargementSuite ? 'Chargement...' : 'Voir plus de demandes'}
+                </Button>
+              </div>
+            )}
           </>
         )}
       </section>
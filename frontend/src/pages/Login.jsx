@@ -6,6 +6,7 @@ import { Input } from "@/components/ui/input";
 import { Button } from "@/components/ui/button";
 import { Label } from "@/components/ui/label";
 import { Car } from "lucide-react";
+import { enregistrerSession } from "@/lib/session.js";
 
 export default function Login() {
     const [mode, setMode] = useState("login");
@@ -101,9 +102,7 @@ export default function Login() {
 
             // ✅ On lit le body et on stocke le token JWT
             const data = await res.json().catch(() => ({}));
-            if (data && data.token) {
-                localStorage.setItem("token", data.token);
-            }
+            enregistrerSession(data);
 
             // ✅ Redirection vers /profile pour login ET inscription
             window.location.href = "/profile";
@@ -10,12 +10,18 @@ import { Dialog, DialogContent, DialogHeader, DialogTitle, DialogDescription } f
 import { Label } from '@/components/ui/label';
 import { Textarea } from '@/components/ui/textarea';
 
+// Taille des pages demandées au serveur (le serveur plafonne à 100)
+const TAILLE_PAGE = 50;
+
 export default function MesReservations() {
   const { token } = useAuth();
   const navigate = useNavigate();
   const [loading, setLoading] = useState(true);
   const [reservationsEnCours, setReservationsEnCours] = useState([]);
   const [reservationsPassees, setReservationsPassees] = useState([]);
+  // Page suivante disponible pour chaque liste de réservations (chacune a son propre curseur)
+  const [suiteReservations, setSuiteReservations] = useState({ 'en-cours': false, passees: false });
+  const [chargementSuite, setChargementSuite] = useState(false);
   const [locationsEnCours, setLocationsEnCours] = useState([]);
   const [locationsPassees, setLocationsPassees] = useState([]);
   const [error, setError] = useState(null);
@@ -46,13 +52,14 @@ export default function MesReservations() {
       setError(null);
 
       // Récupérer mes réservations (en tant que locataire)
-      const resReservations = await fetch('/api/locations/mes-reservations', {
+      const resReservations = await fetch(`/api/locations/mes-reservations?taille=${TAILLE_PAGE}`, {
         headers: { 'Authorization': `Bearer ${token}` }
       });
       if (resReservations.ok) {
         const data = await resReservations.json();
         setReservationsEnCours(Array.isArray(data.enCours) ? data.enCours : []);
         setReservationsPassees(Array.isArray(data.passees) ? data.passees : []);
+        setSuiteReservations({ 'en-cours': !!data.suiteEnCours, passees: !!data.suitePassees });
       }
 
       // Récupérer mes locations (en tant que propriétaire)
@@ -71,6 +78,41 @@ export default function MesReservations() {
     }
   };
 
+  // Page suivante d'une seule liste (periode obligatoire avec un curseur) après son dernier élément
+  const handleVoirPlusReservations = async (periode) => {
+    const liste = periode === 'en-cours' ? reservationsEnCours : reservationsPassees;
+    const dernier = liste[liste.length - 1];
+    if (!dernier) return;
+    setChargementSuite(true);
+    try {
+      const params = new URLSearchParams({
+        periode,
+        taille: TAILLE_PAGE,
+        apresCreeLe: dernier.creeLe,
+        apresId: dernier.locationId
+      });
+      const res = await fetch(`/api/locations/mes-reservations?${params}`, {
+        headers: { 'Authorization': `Bearer ${token}` }
+      });
+      if (!res.ok) {
+        const txt = await res.text();
+        throw new Error(txt || 'Erreur lors du chargement des réservations');
+      }
+      const data = await res.json();
+      if (periode === 'en-cours') {
+        setReservationsEnCours(prev => [...prev, ...(Array.isArray(data.enCours) ? data.enCours : [])]);
+        setSuiteReservations(prev => ({ ...prev, 'en-cours': !!data.suiteEnCours }));
+      } else {
+        setReservationsPassees(prev => [...prev, ...(Array.isArray(data.passees) ? data.passees : [])]);
+        setSuiteReservations(prev => ({ ...prev, passees: !!data.suitePassees }));
+      }
+    } catch (e) {
+      alert('❌ Erreur : ' + e.message);
+    } finally {
+      setChargementSuite(false);
+    }
+  };
+
   const handleTerminerReservation = async (locationId) => {
     setActionLoading(true);
     try {
@@ -403,6 +445,13 @@ export default function MesReservations() {
                 )}
               </>
             )}
+            {suiteReservations[subTab] && (
+              <div className='flex justify-center mt-6'>
+                <Button onClick={() => handleVoirPlusReservations(subTab)} variant='outline' disabled={chargementSuite}>
+                  {chargementSuite ? 'Chargement...' : 'Voir plus de réservations'}
+                </Button>
+              </div>
+            )}
           </>
         )}
 
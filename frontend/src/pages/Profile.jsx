@@ -7,6 +7,7 @@ import { Card, CardHeader, CardTitle, CardContent } from "@/components/ui/card";
 import { Button } from "@/components/ui/button";
 import { Separator } from "@/components/ui/separator";
 import { Avatar, AvatarImage, AvatarFallback } from "@/components/ui/avatar";
+import { deconnecter } from "@/lib/session.js";
 import {
     User as UserIcon,
     Mail,
@@ -75,10 +76,7 @@ export default function Profile() {
     }, []);
 
     function handleLogout() {
-        localStorage.removeItem("token");
-        fetch("/api/auth/logout", { method: "POST", credentials: "include" }).finally(
-            () => window.location.replace("/login")
-        );
+        deconnecter().finally(() => window.location.replace("/login"));
     }
 
     // état de chargement (sans Skeleton)